@@ -0,0 +1,198 @@
+/**
+ * 
+ */
+package rq.common.algorithms;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Function;
+
+import rq.common.annotations.Algorithm;
+import rq.common.exceptions.TableRecordSchemaMismatch;
+import rq.common.interfaces.LazyExpression;
+import rq.common.interfaces.Table;
+import rq.common.statistic.Statistics;
+import rq.common.table.ConcurrentMemoryTable;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+import rq.common.tools.AlgorithmMonitor;
+
+/**
+ * Semi-naive evaluation of the fuzzy fixpoint with the recursive step evaluated in parallel.
+ * Delta of each iteration is partitioned into chunks and the step is applied to every chunk in a ForkJoinPool.
+ * Tasks upsert their tuples directly into the shared result and delta tables, so the tables must be safe for concurrent use.
+ * Tables read by the recursive step, such as the base relation, are read by all tasks at once and must support concurrent reading,
+ * which MemoryTable, ConcurrentMemoryTable and FileMappedTable do as long as they are not modified.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+@Algorithm("parallel")
+public class LazyRecursiveParallel extends LazyRecursive {
+	
+	private final Function<Schema, Table> returnTableProvider;
+	private final Function<Schema, Table> deltaTableProvider;
+	private final int parallelism;
+	
+	protected LazyRecursiveParallel(
+			LazyExpression arg, 
+			Function<Table, LazyExpression> fun,
+			Function<Schema, Table> returnTableProvider,
+			Function<Schema, Table> deltaTableProvider,
+			int parallelism,
+			AlgorithmMonitor monitor) {
+		super(arg, fun, monitor);
+		if(parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be positive, got " + parallelism);
+		}
+		this.returnTableProvider = returnTableProvider;
+		this.deltaTableProvider = deltaTableProvider;
+		this.parallelism = parallelism;
+	}
+	
+	public static LazyRecursiveParallel factory(
+			LazyExpression arg, 
+			Function<Table, LazyExpression> fun,
+			int parallelism,
+			AlgorithmMonitor monitor) {
+		return LazyRecursiveParallel.factory(
+				arg, 
+				fun,
+				(Schema s) -> new ConcurrentMemoryTable(s),
+				(Schema s) -> new ConcurrentMemoryTable(s),
+				parallelism,
+				monitor);
+	}
+	
+	/**
+	 * Creates the algorithm
+	 * @param arg initial expression
+	 * @param fun recursive step, must be safe to evaluate concurrently on distinct tables, tables it reads must support concurrent reading
+	 * @param returnTableProvider provider of the result table, the table must be thread safe
+	 * @param deltaTableProvider provider of the delta and chunk tables, the tables must be thread safe
+	 * @param parallelism number of threads
+	 * @param monitor
+	 * @return LazyRecursiveParallel instance
+	 */
+	public static LazyRecursiveParallel factory(
+			LazyExpression arg, 
+			Function<Table, LazyExpression> fun,
+			Function<Schema, Table> returnTableProvider,
+			Function<Schema, Table> deltaTableProvider,
+			int parallelism,
+			AlgorithmMonitor monitor) {
+		return new LazyRecursiveParallel(
+				arg,
+				fun,
+				returnTableProvider,
+				deltaTableProvider,
+				parallelism,
+				monitor);
+	}
+	
+	/**
+	 * Drains the expression into the result table. Records improving the result are upserted into the delta.
+	 * @param exp drained expression
+	 * @param r result table
+	 * @param delta delta table
+	 * @return number of generated tuples and number of result candidates
+	 */
+	private long[] drain(LazyExpression exp, Table r, Table delta) {
+		long generated = 0, candidates = 0;
+		Record record = exp.next();
+		while(record != null) {
+			generated++;
+			try {
+				if(r.upsertIfHigherRank(record)) {
+					delta.upsertIfHigherRank(record);
+					candidates++;
+				}
+			} catch (TableRecordSchemaMismatch e) {
+				// Unlikely
+				throw new RuntimeException(e);
+			}
+			record = exp.next();
+		}
+		return new long[] {generated, candidates};
+	}
+	
+	/**
+	 * Splits the table into at most parallelism chunks
+	 * @param table split table
+	 * @return list of chunks
+	 */
+	private List<Table> partition(Table table) {
+		int n = Math.min(this.parallelism, table.size());
+		List<Table> chunks = new ArrayList<Table>(n);
+		for(int i = 0; i < n; i++) {
+			chunks.add(this.deltaTableProvider.apply(this.argExp.schema()));
+		}
+		int i = 0;
+		for(Record record : table) {
+			try {
+				chunks.get(i).insert(record);
+			} catch (TableRecordSchemaMismatch e) {
+				// Unlikely
+				throw new RuntimeException(e);
+			}
+			i = (i + 1) % n;
+		}
+		return chunks;
+	}
+
+	@Override
+	public Table eval() {
+		Table r = this.returnTableProvider.apply(this.schema());
+		Table delta = this.deltaTableProvider.apply(this.argExp.schema());
+		List<long[]> results = new ArrayList<long[]>();
+		results.add(this.drain(this.argExp, r, delta));
+		
+		ForkJoinPool pool = new ForkJoinPool(this.parallelism);
+		try {
+			while(true) {
+				for(long[] result : results) {
+					this.monitor.generatedTuples.add(result[0]);
+					this.monitor.resultCandidates.add(result[1]);
+				}
+				
+				this.monitor.iterations.increment();
+				this.monitor.deltaSizes.add((long)delta.size());
+				
+				if(delta.isEmpty()) {
+					break;
+				}
+				
+				Table next = this.deltaTableProvider.apply(this.argExp.schema());
+				List<Callable<long[]>> tasks = new ArrayList<Callable<long[]>>();
+				for(Table chunk : this.partition(delta)) {
+					tasks.add(() -> this.drain(this.funExpr.apply(chunk), r, next));
+				}
+				
+				results = new ArrayList<long[]>(tasks.size());
+				for(Future<long[]> future : pool.invokeAll(tasks)) {
+					results.add(future.get());
+				}
+				delta = next;
+			}
+		} catch (InterruptedException | ExecutionException e) {
+			throw new RuntimeException(e);
+		} finally {
+			pool.shutdown();
+		}
+		
+		return r;
+	}
+
+	@Override
+	public Statistics getStatistics() {
+		return null;
+	}
+
+	@Override
+	public boolean hasStatistics() {
+		return false;
+	}
+}
@@ -0,0 +1,70 @@
+/**
+ * 
+ */
+package rq.common.algorithms;
+
+import java.util.function.Function;
+
+import rq.common.annotations.Algorithm;
+import rq.common.exceptions.TableRecordSchemaMismatch;
+import rq.common.interfaces.LazyExpression;
+import rq.common.interfaces.Table;
+import rq.common.table.MemoryTable;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+import rq.common.tools.AlgorithmMonitor;
+
+/**
+ * Semi-naive evaluation of the fuzzy fixpoint.
+ * Each iteration applies the recursive step only to the delta, i.e. the tuples that were new
+ * or improved their rank in the previous iteration. Delta keeps a single tuple with the highest rank
+ * for the same values, so a tuple improved several times within an iteration is joined only once.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+@Algorithm("seminaive")
+public class LazyRecursiveSemiNaive extends LazyRecursiveUnrestricted {
+
+	protected LazyRecursiveSemiNaive(
+			LazyExpression arg, 
+			Function<Table, LazyExpression> fun,
+			Function<Schema, Table> returnTableProvider,
+			Function<Schema, Table> deltaTableProvider,
+			AlgorithmMonitor monitor) {
+		super(arg, fun, returnTableProvider, deltaTableProvider, monitor);
+	}
+	
+	public static LazyRecursiveSemiNaive factory(
+			LazyExpression arg, 
+			Function<Table, LazyExpression> fun,
+			AlgorithmMonitor monitor) {
+		return LazyRecursiveSemiNaive.factory(
+				arg, 
+				fun,
+				(Schema s) -> new MemoryTable(s),
+				(Schema s) -> new MemoryTable(s),
+				monitor);
+	}
+	
+	public static LazyRecursiveSemiNaive factory(
+			LazyExpression arg, 
+			Function<Table, LazyExpression> fun,
+			Function<Schema, Table> returnTableProvider,
+			Function<Schema, Table> deltaTableProvider,
+			AlgorithmMonitor monitor) {
+		return new LazyRecursiveSemiNaive(
+				arg,
+				fun,
+				returnTableProvider,
+				deltaTableProvider,
+				monitor);
+	}
+
+	/**
+	 * Keeps only the highest rank of the same values in the delta
+	 */
+	@Override
+	protected void addIntermediate(Table delta, Record record) throws TableRecordSchemaMismatch {
+		delta.upsertIfHigherRank(record);
+	}
+}
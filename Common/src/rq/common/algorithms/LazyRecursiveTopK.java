@@ -1,6 +1,6 @@
 package rq.common.algorithms;
 
-import java.util.Optional;
+import java.util.function.DoubleSupplier;
 import java.util.function.Function;
 
 import rq.common.annotations.Algorithm;
@@ -59,32 +59,29 @@ public class LazyRecursiveTopK extends LazyRecursive {
 		LazyExpression w = this.argExp;
 		TopKTable r = TopKTable.factory(this.schema(), this.k);
 		Table n = this.intermediateTableProvider.apply(this.argExp.schema());
+		// Records under the minimal rank of the full top k table are refused anyway
+		DoubleSupplier threshold = () -> r.isFull() ? r.minRank() : 0.0d;
 		
+		w.setThreshold(threshold);
 		Record record = w.next();
 		while (record != null) {
 			this.monitor.generatedTuples.increment();
-			Optional<Record> o = r.findNoRank(record);
-			if (   ( o.isEmpty() || o.get().rank < record.rank)
-				&& (	r.size() < this.k
-					||	record.rank >= r.minRank())){
-				try {
+			try {
+				// Top k table refuses records under its minimal rank once it is full
+				if (r.upsertIfHigherRank(record)) {
 					n.insert(record);
-					if(o.isPresent()) {
-						r.delete(o.get());
-					}					
-					
 					this.monitor.resultCandidates.increment();
-					r.insert(record);
-				} catch (TableRecordSchemaMismatch e) {
-					// Unlikely
-					throw new RuntimeException(e);
 				}
+			} catch (TableRecordSchemaMismatch e) {
+				// Unlikely
+				throw new RuntimeException(e);
 			}
 
 			record = w.next();
 			if (record == null) {
 				w = this.funExpr.apply(n);
 				n = this.intermediateTableProvider.apply(this.argExp.schema());
+				w.setThreshold(threshold);
 				record = w.next();
 			}
 		}
@@ -3,7 +3,6 @@
  */
 package rq.common.algorithms;
 
-import java.util.Optional;
 import java.util.function.Function;
 
 import rq.common.annotations.Algorithm;
@@ -76,35 +75,25 @@ public class LazyRecursiveTransformed extends LazyRecursive {
 		Record record = w.next();
 		while (record != null) {	
 			this.monitor.generatedTuples.increment();
-			Optional<Record> o = ri.findNoRank(record);
-			if(o.isEmpty() || o.get().rank < record.rank) {
-				try {
+			try {
+				if(ri.upsertIfHigherRank(record)) {
 					n.insert(record);
 					
-					if(o.isPresent()) {
-						ri.delete(o.get());
-					}
-					ri.insert(record);
 					if(r.size() <= this.k || record.rank >= r.minRank()) {
 						LazyExpression le = this.transformation.apply(record);
 						Record transformedRecord = le.next();
 						while(transformedRecord != null) {
-							Optional<Record> to = r.findNoRank(transformedRecord);
-							if(to.isEmpty() || to.get().rank < transformedRecord.rank) {
+							if(r.upsertIfHigherRank(transformedRecord)) {
 								this.monitor.resultCandidates.increment();
-								if(to.isPresent()) {
-									r.delete(to.get());
-								}
-								r.insert(transformedRecord);
-							}						
+							}
 							transformedRecord = le.next();
 						}
 					}
 				}
-				catch(TableRecordSchemaMismatch e) {
-					//Unlikely
-					throw new RuntimeException(e);
-				}
+			}
+			catch(TableRecordSchemaMismatch e) {
+				//Unlikely
+				throw new RuntimeException(e);
 			}
 			
 			record = w.next();
@@ -3,7 +3,7 @@
  */
 package rq.common.algorithms;
 
-import java.util.Optional;
+import java.util.function.DoubleSupplier;
 import java.util.function.Function;
 
 import rq.common.annotations.Algorithm;
@@ -87,46 +87,40 @@ public class LazyRecursiveTransformed_topKpruning extends LazyRecursive {
 		TopKTable r = TopKTable.factory(this.schema(), this.k);
 		Table ri = this.intermediateTableProvider.apply(this.argExp.schema());
 		Table n = this.intermediateTableProvider.apply(this.argExp.schema());
+		// Records under the minimal rank of the full top k table are not transformed
+		DoubleSupplier threshold = () -> r.isFull() ? r.minRank() : 0.0d;
 		
+		w.setThreshold(threshold);
 		Record record = w.next();
 		while (record != null) {	
 			this.monitor.generatedTuples.increment();
-			Optional<Record> o = ri.findNoRank(record);
-			if((o.isEmpty() || o.get().rank < record.rank)
-					&& (record.rank >= r.minRank() || r.size() < this.k)) {
-				try {
+			try {
+				if((record.rank >= r.minRank() || r.size() < this.k)
+						&& ri.upsertIfHigherRank(record)) {
 					n.insert(record);
 					
-					if(o.isPresent()) {
-						ri.delete(o.get());
-					}
-					ri.insert(record);
 					if(r.size() <= this.k || record.rank >= r.minRank()) {
 						LazyExpression le = this.transformation.apply(record);
 						Record transformedRecord = le.next();
 						while(transformedRecord != null) {
-							Optional<Record> to = r.findNoRank(transformedRecord);
-							if(to.isEmpty() || to.get().rank < transformedRecord.rank) {
+							if(r.upsertIfHigherRank(transformedRecord)) {
 								this.monitor.resultCandidates.increment();
-								if(to.isPresent()) {
-									r.delete(to.get());
-								}
-								r.insert(transformedRecord);
-							}						
+							}
 							transformedRecord = le.next();
 						}
 					}
 				}
-				catch(TableRecordSchemaMismatch e) {
-					//Unlikely
-					throw new RuntimeException(e);
-				}
+			}
+			catch(TableRecordSchemaMismatch e) {
+				//Unlikely
+				throw new RuntimeException(e);
 			}
 			
 			record = w.next();
 			if (record == null) {
 				w = this.funExpr.apply(n);
 				n = this.intermediateTableProvider.apply(this.argExp.schema());
+				w.setThreshold(threshold);
 				record = w.next();
 			}
 		}
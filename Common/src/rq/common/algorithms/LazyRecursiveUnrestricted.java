@@ -3,7 +3,6 @@
  */
 package rq.common.algorithms;
 
-import java.util.Optional;
 import java.util.function.Function;
 
 import rq.common.annotations.Algorithm;
@@ -67,38 +66,47 @@ public class LazyRecursiveUnrestricted extends LazyRecursive {
 	public Table eval() {
 		LazyExpression w = this.argExp;
 		Table r = this.returnTableProvider.apply(this.schema());
-		Table n = this.intermediateTableProvider.apply(this.argExp.schema());
 
-		Record record = w.next();
-		while (record != null) {			
-			this.monitor.generatedTuples.increment();
-			Optional<Record> o = r.findNoRank(record);
-			if (o.isEmpty() || o.get().rank < record.rank) {
+		while (true) {
+			Table n = this.intermediateTableProvider.apply(this.argExp.schema());
+
+			Record record = w.next();
+			while (record != null) {
+				this.monitor.generatedTuples.increment();
 				try {
-					n.insert(record);
-					if(o.isPresent()) {
-						r.delete(o.get());
+					if (r.upsertIfHigherRank(record)) {
+						this.addIntermediate(n, record);
+						this.monitor.resultCandidates.increment();
 					}
-					
-					this.monitor.resultCandidates.increment();
-					r.insert(record);
 				} catch (TableRecordSchemaMismatch e) {
 					// Unlikely
 					throw new RuntimeException(e);
 				}
+				record = w.next();
 			}
 
-			record = w.next();
-			if (record == null) {
-				w = this.funExpr.apply(n);
-				n = this.intermediateTableProvider.apply(this.argExp.schema());
-				record = w.next();
+			this.monitor.iterations.increment();
+			this.monitor.deltaSizes.add((long)n.size());
+
+			if (n.isEmpty()) {
+				break;
 			}
+			w = this.funExpr.apply(n);
 		}
 
 		return r;
 	}
 
+	/**
+	 * Adds record that improved the result to the table the recursive step is applied to next
+	 * @param intermediate intermediate table
+	 * @param record added record
+	 * @throws TableRecordSchemaMismatch
+	 */
+	protected void addIntermediate(Table intermediate, Record record) throws TableRecordSchemaMismatch {
+		intermediate.insert(record);
+	}
+
 	@Override
 	public Statistics getStatistics() {
 		return null;
@@ -1,10 +1,13 @@
 package rq.common.interfaces;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.DoubleSupplier;
 
 import rq.common.exceptions.TableRecordSchemaMismatch;
 import rq.common.statistic.Statistics;
 import rq.common.table.Record;
+import rq.common.table.RecordBatch;
 import rq.common.table.Schema;
 import rq.common.table.FileMappedTable;
 import rq.common.table.MemoryTable;
@@ -12,6 +15,34 @@ import rq.common.table.MemoryTable;
 public interface LazyExpression extends SchemaProvider, StatisticsProvider {
 	public abstract Record next();
 	
+	/**
+	 * Gets next records of the expression at once.
+	 * Calls of next and nextBatch can be mixed, records are returned exactly once.
+	 * The default implementation collects records returned by next.
+	 * @param max maximal number of returned records
+	 * @return non empty batch of at most max records or null if there are no more records
+	 */
+	public default RecordBatch nextBatch(int max) {
+		RecordBatch batch = new RecordBatch(max);
+		while(!batch.isFull()) {
+			Record record = this.next();
+			if(record == null) {
+				break;
+			}
+			batch.add(record);
+		}
+		return batch.isEmpty() ? null : batch;
+	}
+	
+	/**
+	 * Sets lower bound of the ranks the consumer of the expression accepts.
+	 * Records ranked under the bound may be omitted, the bound may only grow during the evaluation.
+	 * The default implementation ignores the bound.
+	 * @param threshold supplier of the current bound
+	 */
+	public default void setThreshold(DoubleSupplier threshold) {
+	}
+	
 	/**
 	 * Realizes lazy expression into the table
 	 * @param exp
@@ -19,18 +50,20 @@ public interface LazyExpression extends SchemaProvider, StatisticsProvider {
 	 */
 	public static MemoryTable realizeInMemory(LazyExpression exp) {
 		MemoryTable table = null;
-		Record record = exp.next();
-		while(record != null) {
+		RecordBatch batch = exp.nextBatch(RecordBatch.DEFAULT_SIZE);
+		while(batch != null) {
 			if(table == null) {
-				table = new MemoryTable(record.schema);
+				table = new MemoryTable(batch.get(0).schema);
 			}
-			try {
-				table.insert(record);
-			} catch (TableRecordSchemaMismatch e) {
-				//Unlikely
-				throw new RuntimeException(e);
+			for(Record record : batch) {
+				try {
+					table.insert(record);
+				} catch (TableRecordSchemaMismatch e) {
+					//Unlikely
+					throw new RuntimeException(e);
+				}
 			}
-			record = exp.next();
+			batch = exp.nextBatch(RecordBatch.DEFAULT_SIZE);
 		}
 		return table;
 	}
@@ -61,24 +94,58 @@ public interface LazyExpression extends SchemaProvider, StatisticsProvider {
 		};
 	}
 	
+	/**
+	 * Realizes lazy expression into file mapped table without an estimate of its size
+	 * @param exp expression
+	 * @return file mapped table
+	 * @throws IOException
+	 */
+	public static FileMappedTable realizeMapped(LazyExpression exp)
+			throws IOException {
+		return LazyExpression.realizeMapped(exp, Integer.MAX_VALUE);
+	}
+	
 	/**
 	 * Realizes lazy expression into file mapped table
 	 * @param exp expression
-	 * @param expectedCount expected count of records
+	 * @param expectedCount expected count of records, the table grows beyond it if needed
 	 * @return file mapped table
 	 * @throws IOException
 	 */
 	public static FileMappedTable realizeMapped(LazyExpression exp, int expectedCount)
 			throws IOException {
 		FileMappedTable table = null;
-		Record record = exp.next();
-		while(record != null) {
+		RecordBatch batch = exp.nextBatch(RecordBatch.DEFAULT_SIZE);
+		while(batch != null) {
 			if(table == null) {
-				table = FileMappedTable.factory(record.schema, expectedCount);
+				table = FileMappedTable.factory(batch.get(0).schema, expectedCount);
+			}
+			for(Record record : batch) {
+				table.insert(record);
+			}
+			batch = exp.nextBatch(RecordBatch.DEFAULT_SIZE);
+		}
+		return table;
+	}
+	
+	/**
+	 * Realizes lazy expression into persistent file mapped table, which can be opened again by FileMappedTable.open
+	 * @param exp expression
+	 * @param path path of the table file, existing file is overwritten
+	 * @return file mapped table
+	 * @throws IOException
+	 */
+	public static FileMappedTable realizeMapped(LazyExpression exp, Path path)
+			throws IOException {
+		FileMappedTable table = FileMappedTable.create(exp.schema(), path);
+		RecordBatch batch = exp.nextBatch(RecordBatch.DEFAULT_SIZE);
+		while(batch != null) {
+			for(Record record : batch) {
+				table.insert(record);
 			}
-			table.insert(record);
-			record = exp.next();
+			batch = exp.nextBatch(RecordBatch.DEFAULT_SIZE);
 		}
+		table.flush();
 		return table;
 	}
 	
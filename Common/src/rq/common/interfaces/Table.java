@@ -1,6 +1,7 @@
 package rq.common.interfaces;
 
 import java.util.Collection;
+import java.util.Iterator;
 import java.util.Optional;
 import java.util.stream.Stream;
 
@@ -32,12 +33,30 @@ public interface Table extends TabularExpression, Iterable<Record> {
 			throws TypeSchemaMismatchException, AttributeNotInSchemaException, TableRecordSchemaMismatch;
 
 	boolean delete(Record record) throws TableRecordSchemaMismatch;
+	
+	/**
+	 * Inserts record unless the table already contains a record with the same values and higher or equal rank.
+	 * Record with the same values and lower rank is replaced.
+	 * @param record inserted record
+	 * @return true if the table changed, false otherwise
+	 * @throws TableRecordSchemaMismatch
+	 */
+	boolean upsertIfHigherRank(Record record) throws TableRecordSchemaMismatch;
 
 	/**
 	 * Gets the stream of records in this table
 	 * @return
 	 */
 	Stream<Record> stream();
+	
+	/**
+	 * Gets iterator over the records in descending order of their rank.
+	 * The default implementation sorts the records on every call.
+	 * @return iterator
+	 */
+	default Iterator<Record> rankIterator() {
+		return this.stream().sorted(Record.RANK_COMPARATOR_DSC).iterator();
+	}
 
 	boolean contains(Record record);
 
@@ -42,7 +42,7 @@ public class ValueSerializerContext {
 	public Function<Object, String> getSerializingFunction(Class<?> type)
 		throws ClassNotInContextException {
 		Function<Object, String> sFunction = this.serializers.get(type);
-		if(type == null) {
+		if(sFunction == null) {
 			throw new ClassNotInContextException(this, type);
 		}
 		return sFunction;
@@ -53,5 +53,10 @@ public class DivDouble implements RecordValue {
 				.append(")")
 				.toString();
 	}
+	
+	@Override
+	public RecordValue bind(Schema schema) {
+		return new DivDouble(this.left.bind(schema), this.right.bind(schema));
+	}
 
 }
@@ -23,6 +23,11 @@ public class OnEquals extends OnOperator {
 		return leftValue.equals(rightValue) ? 1.0d : 0.0d;
 	}
 	
+	@Override
+	protected OnOperator withOperands(RecordValue left, RecordValue right) {
+		return new OnEquals(left, right);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
@@ -33,6 +33,11 @@ public class OnGreaterThan extends OnCompare {
 		return leftValue.compareTo(rightValue) >= 1 ? 1.0d : 0.0d; 
 	}
 
+	@Override
+	protected OnOperator withOperands(RecordValue left, RecordValue right) {
+		return new OnGreaterThan(left, right);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
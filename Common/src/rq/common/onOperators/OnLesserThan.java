@@ -32,6 +32,11 @@ public class OnLesserThan extends OnCompare {
 		return leftValue.compareTo(rightValue) <= -1 ? 1.0d : 0.0d; 
 	}
 
+	@Override
+	protected OnOperator withOperands(RecordValue left, RecordValue right) {
+		return new OnLesserThan(left, right);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
@@ -35,6 +35,11 @@ public class OnLesserThanOrEquals extends OnCompare {
 		return cmp < 1 ? 1.0d : 0.0d; 
 	}
 
+	@Override
+	protected OnOperator withOperands(RecordValue left, RecordValue right) {
+		return new OnLesserThanOrEquals(left, right);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
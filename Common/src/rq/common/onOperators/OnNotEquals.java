@@ -16,6 +16,10 @@ public class OnNotEquals extends OnOperator {
 	public OnNotEquals(Attribute left, Attribute right) {
 		super(left, right);
 	}
+	
+	private OnNotEquals(RecordValue left, RecordValue right) {
+		super(left, right);
+	}
 
 	@Override
 	public double eval(Record leftRecord, Record rightRecord) {
@@ -24,6 +28,11 @@ public class OnNotEquals extends OnOperator {
 		return leftValue.equals(rightValue) ? 0.0d : 1.0d;
 	}
 
+	@Override
+	protected OnOperator withOperands(RecordValue left, RecordValue right) {
+		return new OnNotEquals(left, right);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
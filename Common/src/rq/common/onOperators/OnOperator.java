@@ -28,6 +28,24 @@ public abstract class OnOperator {
 	 */
 	public abstract double eval(Record leftRecord, Record rightRecord);
 	
+	/**
+	 * Creates operator of the same kind with other operands
+	 * @param left left operand
+	 * @param right right operand
+	 * @return OnOperator instance
+	 */
+	protected abstract OnOperator withOperands(RecordValue left, RecordValue right);
+	
+	/**
+	 * Resolves operands of this operator against the schemas of the joined records
+	 * @param leftSchema schema of the left joined records
+	 * @param rightSchema schema of the right joined records
+	 * @return OnOperator equivalent to this
+	 */
+	public OnOperator bind(Schema leftSchema, Schema rightSchema) {
+		return this.withOperands(this.left.bind(leftSchema), this.right.bind(rightSchema));
+	}
+	
 	public boolean isApplicableToSchema(Schema leftSchema, Schema rightSchema) {
 		return this.left.isApplicableToSchema(leftSchema)
 				&& this.right.isApplicableToSchema(rightSchema);
@@ -28,6 +28,11 @@ public class OnSimilar extends OnOperator {
 		return similarity.apply(leftValue, rightValue);
 	}
 
+	@Override
+	protected OnOperator withOperands(RecordValue left, RecordValue right) {
+		return new OnSimilar(left, right, this.similarity);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
@@ -37,5 +37,10 @@ public class PlusDateTime implements RecordValue {
 	public Class<?> domain() {
 		return DateTime.class;
 	}
+	
+	@Override
+	public RecordValue bind(Schema schema) {
+		return new PlusDateTime(this.left.bind(schema), this.right);
+	}
 
 }
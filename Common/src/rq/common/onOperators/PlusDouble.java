@@ -42,5 +42,10 @@ public class PlusDouble implements RecordValue {
 	public Class<?> domain() {
 		return Double.class;
 	}
+	
+	@Override
+	public RecordValue bind(Schema schema) {
+		return new PlusDouble(this.left.bind(schema), this.right.bind(schema));
+	}
 
 }
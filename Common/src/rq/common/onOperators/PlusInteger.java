@@ -39,5 +39,10 @@ public class PlusInteger implements RecordValue {
 	public Class<?> domain() {
 		return Integer.class;
 	}
+	
+	@Override
+	public RecordValue bind(Schema schema) {
+		return new PlusInteger(this.left.bind(schema), this.right.bind(schema));
+	}
 
 }
@@ -8,4 +8,14 @@ public interface RecordValue {
 	public boolean isApplicableToSchema(Schema schema);
 	
 	public Class<?> domain();
+	
+	/**
+	 * Resolves this value against the schema of the records it will be evaluated on.
+	 * Attributes are resolved to their index, so evaluation does not have to look them up.
+	 * @param schema schema of the evaluated records
+	 * @return RecordValue equivalent to this
+	 */
+	public default RecordValue bind(Schema schema) {
+		return this;
+	}
 }
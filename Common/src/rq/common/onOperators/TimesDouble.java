@@ -39,5 +39,10 @@ public class TimesDouble implements RecordValue {
 	public Class<?> domain() {
 		return Double.class;
 	}
+	
+	@Override
+	public RecordValue bind(Schema schema) {
+		return new TimesDouble(this.left.bind(schema), this.right.bind(schema));
+	}
 
 }
@@ -1,5 +1,6 @@
 package rq.common.operators;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
@@ -7,12 +8,14 @@ import java.util.Set;
 import java.util.function.BinaryOperator;
 import java.util.stream.Collectors;
 
-import rq.common.exceptions.AttributeNotInSchemaException;
-import rq.common.exceptions.TypeSchemaMismatchException;
+import rq.common.exceptions.DuplicateAttributeNameException;
+import rq.common.onOperators.OnEquals;
 import rq.common.onOperators.OnOperator;
+import rq.common.onOperators.OnSimilar;
+import rq.common.similarities.BoundedSimilarity;
 import rq.common.table.Attribute;
 import rq.common.table.Record;
-import rq.common.table.Record.AttributeValuePair;
+import rq.common.table.RecordBuilder;
 import rq.common.table.Schema;
 
 public class AbstractJoin {
@@ -58,12 +61,34 @@ public class AbstractJoin {
 		return m;
 	}
 
+	/**
+	 * Resolves the ON clause operators against the schemas of the joined arguments
+	 * @param onClause ON clause
+	 * @param leftSchema schema of the left argument
+	 * @param rightSchema schema of the right argument
+	 * @return list of bound operators
+	 */
+	protected static List<OnOperator> bind(Collection<OnOperator> onClause, Schema leftSchema, Schema rightSchema) {
+		return onClause.stream()
+				.map(c -> c.bind(leftSchema, rightSchema))
+				.collect(Collectors.toList());
+	}
+
 	protected final List<OnOperator> onClause;
+	/** Crisp equality clauses the records can be hashed on */
+	protected final List<OnOperator> equalityClauses;
+	/** Clauses that remain to be evaluated on the records sharing the hash key */
+	protected final List<OnOperator> residualClauses;
+	/** Similarity clause with bounded support restricting candidates to a band, or null */
+	protected final OnSimilar bandClause;
 	protected final BinaryOperator<Double> product;
 	protected final BinaryOperator<Double> infimum;
 	protected final java.util.Map<Attribute, Attribute> leftProjection;
 	protected final java.util.Map<Attribute, Attribute> rightProjection;
 	protected final Schema schema;
+	private final RecordBuilder builder;
+	private final RecordBuilder.Copy leftCopy;
+	private final RecordBuilder.Copy rightCopy;
 	
 	protected AbstractJoin(List<OnOperator> onClause,
 			BinaryOperator<Double> product,
@@ -72,11 +97,31 @@ public class AbstractJoin {
 			java.util.Map<Attribute, Attribute> rightProjection,
 			Schema schema) {
 		this.onClause = onClause;
+		this.equalityClauses = onClause.stream()
+				.filter(c -> c instanceof OnEquals)
+				.collect(Collectors.toList());
+		this.residualClauses = onClause.stream()
+				.filter(c -> !(c instanceof OnEquals))
+				.collect(Collectors.toList());
+		this.bandClause = onClause.stream()
+				.filter(c -> c instanceof OnSimilar
+						&& ((OnSimilar)c).similarity instanceof BoundedSimilarity)
+				.map(c -> (OnSimilar)c)
+				.findFirst()
+				.orElse(null);
 		this.product = product;
 		this.infimum = infimum;
 		this.leftProjection = leftProjection;
 		this.rightProjection = rightProjection;
 		this.schema = schema;
+		this.builder = RecordBuilder.factory(schema);
+		try {
+			this.leftCopy = this.builder.copy(Schema.factory(leftProjection.keySet()), leftProjection);
+			this.rightCopy = this.builder.copy(Schema.factory(rightProjection.keySet()), rightProjection);
+		} catch (DuplicateAttributeNameException e) {
+			// Unlikely
+			throw new RuntimeException(e);
+		}
 	}
 
 	/**
@@ -86,15 +131,94 @@ public class AbstractJoin {
 	 * @return A degree
 	 */
 	protected double joinClauseSatisfyDegree(Record record1, Record record2) {
+		return this.clauseSatisfyDegree(this.onClause, record1, record2);
+	}
+	
+	/**
+	 * Returns degree to which the residual clauses of the ON clause are satisfied.
+	 * Equality clauses are assumed satisfied by matching hash keys.
+	 * @param record1 left joined record
+	 * @param record2 right joined record
+	 * @return A degree
+	 */
+	protected double residualClauseSatisfyDegree(Record record1, Record record2) {
+		return this.clauseSatisfyDegree(this.residualClauses, record1, record2);
+	}
+	
+	private double clauseSatisfyDegree(List<OnOperator> clauses, Record record1, Record record2) {
 		double rank = 1.0d;
 		
-		for(OnOperator clause : this.onClause) {
+		for(OnOperator clause : clauses) {
 			double clauseRank = clause.eval(record1, record2);
 			rank = this.infimum.apply(rank, clauseRank);
 		}
 		return rank;
 	}
 	
+	/**
+	 * Returns true if the join can be evaluated using an index of the right argument,
+	 * that is the ON clause contains an equality or a similarity with bounded support. Returns false otherwise.
+	 * @return true or false
+	 */
+	protected boolean isIndexedJoin() {
+		return !this.equalityClauses.isEmpty() || this.bandClause != null;
+	}
+	
+	/**
+	 * Gets hash key of the left joined record
+	 * @param record left joined record
+	 * @return key object
+	 */
+	protected Object leftKey(Record record) {
+		if(this.equalityClauses.size() == 1) {
+			return this.equalityClauses.get(0).left.value(record);
+		}
+		return Arrays.asList(this.equalityClauses.stream().map(c -> c.left.value(record)).toArray());
+	}
+	
+	/**
+	 * Gets hash key of the right joined record
+	 * @param record right joined record
+	 * @return key object
+	 */
+	protected Object rightKey(Record record) {
+		if(this.equalityClauses.size() == 1) {
+			return this.equalityClauses.get(0).right.value(record);
+		}
+		return Arrays.asList(this.equalityClauses.stream().map(c -> c.right.value(record)).toArray());
+	}
+	
+	/**
+	 * Creates empty index for the right joined records
+	 * @return JoinIndex instance
+	 */
+	protected JoinIndex createIndex() {
+		if(this.bandClause == null) {
+			return new JoinIndex(this::rightKey);
+		}
+		BoundedSimilarity similarity = (BoundedSimilarity)this.bandClause.similarity;
+		return new JoinIndex(
+				this::rightKey,
+				(Record r) -> similarity.position(this.bandClause.right.value(r)),
+				similarity.supportRadius);
+	}
+	
+	/**
+	 * Gets right joined records from the index that can join with the left record
+	 * @param index index of the right joined records
+	 * @param record left joined record
+	 * @return list of candidate records
+	 */
+	protected List<Record> candidates(JoinIndex index, Record record) {
+		if(this.bandClause == null) {
+			return index.candidates(this.leftKey(record), 0.0d);
+		}
+		BoundedSimilarity similarity = (BoundedSimilarity)this.bandClause.similarity;
+		return index.candidates(
+				this.leftKey(record),
+				similarity.position(this.bandClause.left.value(record)));
+	}
+	
 	/**
 	 * Computes final rank of the joined record
 	 * @param leftRank
@@ -113,23 +237,8 @@ public class AbstractJoin {
 	 * @param record2
 	 * @return Record instance
 	 */
-	protected Record joinRecords(Record record1, Record record2, Double rank) {
-		try {
-			Collection<AttributeValuePair> vls = record1.schema.stream()
-															.map((Attribute a) -> new AttributeValuePair(this.leftProjection.get(a), record1.getNoThrow(a)))
-															.collect(Collectors.toList());
-			record2.schema.stream()
-				.map(a -> new AttributeValuePair(this.rightProjection.get(a), record2.getNoThrow(a)))
-				.forEach(p -> vls.add(p));
-			
-			return Record.factory(
-					this.schema, 
-					vls, 
-					rank);
-		} catch (TypeSchemaMismatchException | AttributeNotInSchemaException e) {
-			// Unlikely
-			throw new RuntimeException(e);
-		}
+	protected Record joinRecords(Record record1, Record record2, double rank) {
+		return this.builder.combine(record1, this.leftCopy, record2, this.rightCopy, rank);
 	}
 
 }
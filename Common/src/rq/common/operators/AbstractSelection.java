@@ -2,6 +2,7 @@ package rq.common.operators;
 
 import java.util.function.BinaryOperator;
 import rq.common.restrictions.SelectionCondition;
+import rq.common.table.Schema;
 
 /**
  * Abstract class for selection operation with structured condition
@@ -10,10 +11,20 @@ public class AbstractSelection {
 
 	public final SelectionCondition condition;
 	public final BinaryOperator<Double> product;
+	/** Condition resolved against the schema of the argument */
+	private final SelectionCondition boundCondition;
 
 	public AbstractSelection(SelectionCondition condition, BinaryOperator<Double> product) {
 		super();
 		this.condition = condition;
+		this.boundCondition = condition;
+		this.product = product;
+	}
+	
+	protected AbstractSelection(SelectionCondition condition, BinaryOperator<Double> product, Schema schema) {
+		super();
+		this.condition = condition;
+		this.boundCondition = condition.bind(schema);
 		this.product = product;
 	}
 	
@@ -23,7 +34,7 @@ public class AbstractSelection {
 	 * @return rank of the record in the selection
 	 */
 	protected double recordSatisfaction(rq.common.table.Record record) {
-		double condRank = this.condition.eval(record);
+		double condRank = this.boundCondition.eval(record);
 		if(condRank > 0.0d) {
 			double rank = this.product.apply(record.rank, condRank);
 			return rank;
@@ -110,7 +110,7 @@ public class Join extends AbstractJoin implements TabularExpression {
 			throw new RuntimeException(e);
 		}
 		
-		return new Join(argument1, argument2, onClause, product, infimum, leftProjection, rightProjection, schema, tableSupplier);
+		return new Join(argument1, argument2, AbstractJoin.bind(onClause, schema1, schema2), product, infimum, leftProjection, rightProjection, schema, tableSupplier);
 	}
 	
 	public static Join factory(
@@ -184,6 +184,11 @@ public class Join extends AbstractJoin implements TabularExpression {
 		Table t2 = this.argument2.eval();
 		Table table = this.tableSupplier.apply(schema, t1.size() * t2.size());
 		
+		if(this.isIndexedJoin()) {
+			this.evalIndexed(t1, t2, table);
+			return table;
+		}
+		
 		for(Record record1 : t1) {
 			for(Record record2 : t2) {
 				Double onClauseSatisfyDegree = this.joinClauseSatisfyDegree(record1, record2);
@@ -204,6 +209,37 @@ public class Join extends AbstractJoin implements TabularExpression {
 		
 		return table;
 	}
+	
+	/**
+	 * Evaluates the join probing an index of the right table
+	 * @param t1 left table
+	 * @param t2 right table
+	 * @param table table the joined records are inserted into
+	 */
+	private void evalIndexed(Table t1, Table t2, Table table) {
+		JoinIndex index = this.createIndex();
+		for(Record record2 : t2) {
+			index.add(record2);
+		}
+		
+		for(Record record1 : t1) {
+			for(Record record2 : this.candidates(index, record1)) {
+				double onClauseSatisfyDegree = this.residualClauseSatisfyDegree(record1, record2);
+				if(onClauseSatisfyDegree > 0.0d) {
+					double rank = this.recordRank(record1.rank, record2.rank, onClauseSatisfyDegree);
+					if(rank > 0.0d) {
+						Record record = this.joinRecords(record1, record2, rank);
+						try {
+							table.insert(record);
+						} catch (TableRecordSchemaMismatch e) {
+							//Unlikely
+							throw new RuntimeException(e);
+						}
+					}
+				}
+			}
+		}
+	}
 
 	@Override
 	public Schema schema() {
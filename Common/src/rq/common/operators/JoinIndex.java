@@ -0,0 +1,153 @@
+package rq.common.operators;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToDoubleFunction;
+
+import rq.common.table.Record;
+
+/**
+ * Index of the right join argument. Records are hashed on the values of the equality clauses.
+ * If the join has a band clause, records of each bucket are sorted by position of the band operand,
+ * so only the window [position - radius, position + radius] of a bucket is returned as candidates.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+class JoinIndex {
+
+	private static class Bucket {
+		private List<Record> records = new ArrayList<Record>();
+		private double[] positions = null;
+	}
+
+	private final java.util.Map<Object, Bucket> buckets = new HashMap<Object, Bucket>();
+	private final Function<Record, Object> key;
+	private final ToDoubleFunction<Record> position;
+	private final double radius;
+	private boolean isSorted = false;
+
+	/**
+	 * Creates index without a band
+	 * @param key hash key of the indexed records
+	 */
+	JoinIndex(Function<Record, Object> key) {
+		this(key, null, 0.0d);
+	}
+
+	/**
+	 * Creates index with a band
+	 * @param key hash key of the indexed records
+	 * @param position position of the indexed records in the band
+	 * @param radius radius of the band window
+	 */
+	JoinIndex(Function<Record, Object> key, ToDoubleFunction<Record> position, double radius) {
+		this.key = key;
+		this.position = position;
+		this.radius = radius;
+	}
+
+	/**
+	 * Adds record to the index
+	 * @param record indexed record
+	 */
+	public void add(Record record) {
+		this.buckets.computeIfAbsent(this.key.apply(record), k -> new Bucket()).records.add(record);
+		this.isSorted = false;
+	}
+
+	/**
+	 * Sorts records of each bucket by their band position
+	 */
+	private void sort() {
+		for(Bucket bucket : this.buckets.values()) {
+			List<Object[]> pairs = new ArrayList<Object[]>(bucket.records.size());
+			for(Record r : bucket.records) {
+				pairs.add(new Object[] {this.position.applyAsDouble(r), r});
+			}
+			Collections.sort(pairs, Comparator.comparingDouble(p -> (Double)p[0]));
+
+			bucket.positions = new double[pairs.size()];
+			for(int i = 0; i < pairs.size(); i++) {
+				bucket.positions[i] = (Double)pairs.get(i)[0];
+				bucket.records.set(i, (Record)pairs.get(i)[1]);
+			}
+		}
+		this.isSorted = true;
+	}
+
+	/**
+	 * Sorts records of each bucket by descending rank, so candidates are returned from the highest ranked.
+	 * Applicable only to the index without a band.
+	 */
+	void sortByRank() {
+		if(this.position != null) {
+			throw new IllegalStateException("Buckets of index with a band are sorted by position");
+		}
+		for(Bucket bucket : this.buckets.values()) {
+			bucket.records.sort(Record.RANK_COMPARATOR_DSC);
+		}
+	}
+
+	/**
+	 * Gets index of the first position not lesser than value
+	 */
+	private static int lowerBound(double[] positions, double value) {
+		int lo = 0, hi = positions.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(positions[mid] < value) {
+				lo = mid + 1;
+			}
+			else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Gets index of the first position greater than value
+	 */
+	private static int upperBound(double[] positions, double value) {
+		int lo = 0, hi = positions.length;
+		while(lo < hi) {
+			int mid = (lo + hi) >>> 1;
+			if(positions[mid] <= value) {
+				lo = mid + 1;
+			}
+			else {
+				hi = mid;
+			}
+		}
+		return lo;
+	}
+
+	/**
+	 * Gets the indexed records that can join with a record of given key and band position
+	 * @param key hash key of the probing record
+	 * @param position band position of the probing record, ignored if the index has no band
+	 * @return list of candidate records
+	 */
+	public List<Record> candidates(Object key, double position) {
+		Bucket bucket = this.buckets.get(key);
+		if(bucket == null) {
+			return Collections.emptyList();
+		}
+		if(this.position == null) {
+			return bucket.records;
+		}
+		if(!this.isSorted) {
+			this.sort();
+		}
+		int from = lowerBound(bucket.positions, position - this.radius);
+		int to = upperBound(bucket.positions, position + this.radius);
+		if(from >= to) {
+			return Collections.emptyList();
+		}
+		return bucket.records.subList(from, to);
+	}
+}
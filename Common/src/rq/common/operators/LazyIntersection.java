@@ -1,7 +1,9 @@
 package rq.common.operators;
 
-import java.util.PriorityQueue;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.function.BinaryOperator;
+import java.util.function.DoubleSupplier;
 
 import rq.common.exceptions.SchemaNotEqualException;
 import rq.common.interfaces.LazyExpression;
@@ -9,37 +11,104 @@ import rq.common.interfaces.SchemaProvider;
 import rq.common.interfaces.Table;
 import rq.common.latices.LaticeFactory;
 import rq.common.statistic.Statistics;
+import rq.common.table.LazyFacade;
 import rq.common.table.Record;
 import rq.common.table.Schema;
 
+/**
+ * Represents lazy intersection. Records of equal values get infimum of their ranks.
+ *
+ * By default records of one argument are hashed on their values and the other argument is streamed,
+ * so matching records are returned at once.
+ * Sort merge intersection reads arguments sorted by a value comparator and keeps no records.
+ * Each argument is expected to contain a value at most once.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
 public class LazyIntersection implements LazyExpression, SchemaProvider {
-	
+
 	private final Schema schema;
-	private final Table leftTable;
-	private final PriorityQueue<Record> left = new PriorityQueue<Record>(); 
-	private final Table rightTable;
-	private final PriorityQueue<Record> right = new PriorityQueue<Record>();
+
+	private final LazyExpression leftArg;
+	private final LazyExpression rightArg;
+
 	private final BinaryOperator<Double> infimum;
-	
-	public static LazyIntersection factory(Table left, Table right) throws SchemaNotEqualException {
-		Schema schema1 = left.schema();
-		Schema schema2 = right.schema();
+	/** Comparator the arguments are sorted by, null for the hash intersection */
+	private final Comparator<Record> comparator;
+
+	/** Hashed records of the right argument */
+	private HashMap<Record.NoRankKey, Record> hashed = null;
+
+	private Record leftCurrent = null;
+	private Record rightCurrent = null;
+	private boolean isStarted = false;
+
+	private LazyIntersection(LazyExpression left, LazyExpression right, Schema schema, BinaryOperator<Double> infimum, Comparator<Record> comparator) {
+		this.schema = schema;
+		this.leftArg = left;
+		this.rightArg = right;
+		this.infimum = infimum;
+		this.comparator = comparator;
+	}
+
+	private static Schema checkSchema(Schema schema1, Schema schema2) throws SchemaNotEqualException {
 		if (!schema1.equals(schema2)) {
 			throw new SchemaNotEqualException(schema1, schema2);
 		}
-		return new LazyIntersection(left, right, LaticeFactory.instance().getInfimum());
+		return schema1;
 	}
-	
-	private LazyIntersection(
-			Table left,
-			Table right,
-			BinaryOperator<Double> infimum) {
-		this.schema = left.schema();
-		this.leftTable = left;
-		this.leftTable.stream().forEach(r -> this.left.add(r));
-		this.rightTable = right;
-		this.rightTable.stream().forEach(r -> this.right.add(r));
-		this.infimum = infimum;
+
+	/**
+	 * Creates hash intersection of tables, the smaller one is hashed
+	 * @param left
+	 * @param right
+	 * @return LazyIntersection instance
+	 * @throws SchemaNotEqualException
+	 */
+	public static LazyIntersection factory(Table left, Table right) throws SchemaNotEqualException {
+		Schema schema = LazyIntersection.checkSchema(left.schema(), right.schema());
+		Table hashed = left.size() < right.size() ? left : right;
+		Table streamed = hashed == left ? right : left;
+		return new LazyIntersection(new LazyFacade(streamed), new LazyFacade(hashed), schema, LaticeFactory.instance().getInfimum(), null);
+	}
+
+	/**
+	 * Creates hash intersection, the right argument is hashed and should be the smaller one
+	 * @param left streamed argument
+	 * @param right hashed argument
+	 * @return LazyIntersection instance
+	 * @throws SchemaNotEqualException
+	 */
+	public static <T extends LazyExpression & SchemaProvider, U extends LazyExpression & SchemaProvider>
+		LazyIntersection factory(T left, U right) throws SchemaNotEqualException {
+		Schema schema = LazyIntersection.checkSchema(left.schema(), right.schema());
+		return new LazyIntersection(left, right, schema, LaticeFactory.instance().getInfimum(), null);
+	}
+
+	/**
+	 * Creates sort merge intersection of arguments sorted by values
+	 * @param left
+	 * @param right
+	 * @param comparator comparator of values both arguments are sorted by
+	 * @return LazyIntersection instance
+	 * @throws SchemaNotEqualException
+	 */
+	public static <T extends LazyExpression & SchemaProvider, U extends LazyExpression & SchemaProvider>
+		LazyIntersection sortMerge(T left, U right, Comparator<Record> comparator) throws SchemaNotEqualException {
+		Schema schema = LazyIntersection.checkSchema(left.schema(), right.schema());
+		return new LazyIntersection(left, right, schema, LaticeFactory.instance().getInfimum(), comparator);
+	}
+
+	/**
+	 * Creates sort merge intersection of arguments sorted by Record.VALUE_COMPARATOR
+	 * @param left
+	 * @param right
+	 * @return LazyIntersection instance
+	 * @throws SchemaNotEqualException
+	 */
+	public static <T extends LazyExpression & SchemaProvider, U extends LazyExpression & SchemaProvider>
+		LazyIntersection sortMerge(T left, U right) throws SchemaNotEqualException {
+		return LazyIntersection.sortMerge(left, right, Record.VALUE_COMPARATOR);
 	}
 
 	@Override
@@ -57,45 +126,97 @@ public class LazyIntersection implements LazyExpression, SchemaProvider {
 		return this.schema;
 	}
 
+	/**
+	 * Infimum never exceeds ranks of the intersected records, so the bound is passed to both arguments.
+	 */
+	@Override
+	public void setThreshold(DoubleSupplier threshold) {
+		this.leftArg.setThreshold(threshold);
+		this.rightArg.setThreshold(threshold);
+	}
+
 	@Override
 	public Record next() {
-		if(this.left.isEmpty()) {
-			return null;
+		if(this.comparator == null) {
+			return this.nextHashed();
+		}
+		return this.nextMerged();
+	}
+
+	/**
+	 * Gets next record of the hash intersection
+	 * @return record or null
+	 */
+	private Record nextHashed() {
+		if(this.hashed == null) {
+			this.hashed = new HashMap<Record.NoRankKey, Record>();
+			Record record = this.rightArg.next();
+			while(record != null) {
+				this.hashed.put(record.noRankKey(), record);
+				record = this.rightArg.next();
+			}
+		}
+
+		Record record = this.leftArg.next();
+		while(record != null) {
+			Record match = this.hashed.get(record.noRankKey());
+			if(match != null) {
+				return new Record(record, this.infimum.apply(record.rank, match.rank));
+			}
+			record = this.leftArg.next();
 		}
-		if(this.right.isEmpty()) {
-			return null;
+		return null;
+	}
+
+	/**
+	 * Reads next record of a sorted argument
+	 * @param arg argument
+	 * @param previous previous record of the argument
+	 * @return record or null
+	 */
+	private Record pull(LazyExpression arg, Record previous) {
+		Record record = arg.next();
+		if(record != null && previous != null && this.comparator.compare(previous, record) > 0) {
+			throw new IllegalStateException("Argument of sort merge intersection is not sorted");
 		}
-		
-		var lCurrent = this.left.peek();
-		var rCurrent = this.right.peek();
-		
-		while(!lCurrent.equalsNoRank(rCurrent)) {
-			if(lCurrent.compareTo(rCurrent) < 0) {
-				this.left.poll();
-				lCurrent = this.left.peek();
+		return record;
+	}
+
+	/**
+	 * Gets next record of the sort merge intersection
+	 * @return record or null
+	 */
+	private Record nextMerged() {
+		if(!this.isStarted) {
+			this.leftCurrent = this.pull(this.leftArg, null);
+			this.rightCurrent = this.pull(this.rightArg, null);
+			this.isStarted = true;
+		}
+
+		while(this.leftCurrent != null && this.rightCurrent != null) {
+			Record l = this.leftCurrent;
+			Record r = this.rightCurrent;
+			int cmp = this.comparator.compare(l, r);
+			if(cmp <= 0) {
+				this.leftCurrent = this.pull(this.leftArg, l);
 			}
-			else {
-				this.right.poll();
-				rCurrent = this.right.peek();
+			if(cmp >= 0) {
+				this.rightCurrent = this.pull(this.rightArg, r);
 			}
-			if(lCurrent == null || rCurrent == null) {
-				return null;
+			if(cmp == 0) {
+				return new Record(l, this.infimum.apply(l.rank, r.rank));
 			}
 		}
-		
-		var rec = new Record(lCurrent, this.infimum.apply(lCurrent.rank, rCurrent.rank));
-		this.left.poll();
-		this.right.poll();
-		return rec;
+		return null;
 	}
 
 	 @Override
 	 public String toString() {
 		 return new StringBuilder()
 				 .append("(")
-				 .append(this.leftTable.toString())
+				 .append(this.leftArg.toString())
 				 .append(") /\\ (")
-				 .append(this.rightTable.toString())
+				 .append(this.rightArg.toString())
 				 .append(")")
 				 .toString();
 	 }
@@ -7,6 +7,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.function.BinaryOperator;
+import java.util.function.DoubleSupplier;
 
 import rq.common.exceptions.DuplicateAttributeNameException;
 import rq.common.exceptions.OnOperatornNotApplicableToSchemaException;
@@ -20,10 +21,14 @@ import rq.common.statistic.Statistics;
 import rq.common.table.Attribute;
 import rq.common.table.CachedExpression;
 import rq.common.table.Record;
+import rq.common.table.RecordBatch;
 import rq.common.table.Schema;
 
 /**
- * Represents lazy join operator
+ * Represents lazy join operator.
+ * Once a rank threshold is set, the right argument is iterated from the highest rank
+ * and the iteration stops as soon as product of the ranks falls under the threshold.
+ * This assumes the product is monotone and bounded by its arguments, as all t-norms are.
  * @author Mgr. Radomir Skrabal
  *
  */
@@ -34,6 +39,20 @@ public class LazyJoin extends AbstractJoin implements LazyExpression, SchemaProv
 	
 	private final LazyIterator rightIterator;
 	private Record leftCurrent;
+	/** Records of the left argument pulled at once */
+	private RecordBatch leftBatch = null;
+	private int leftPosition = 0;
+	
+	private JoinIndex rightIndex = null;
+	/** Candidates of the current left record and position of the next one to probe */
+	private List<Record> bucket = null;
+	private int bucketPosition = 0;
+	
+	/** Lower bound of the accepted ranks, null if not set */
+	private DoubleSupplier threshold = null;
+	/** Records of the right argument sorted by descending rank */
+	private Record[] rightByRank = null;
+	private int rightPosition = 0;
 	
 	private LazyJoin(
 			LazyExpression leftArg,
@@ -88,7 +107,7 @@ public class LazyJoin extends AbstractJoin implements LazyExpression, SchemaProv
 		return new LazyJoin(
 				leftArg,
 				CachedExpression.factory(rightArg),
-				onClause,
+				AbstractJoin.bind(onClause, leftSchema, rightSchema),
 				product,
 				infimum,
 				leftProjection,
@@ -150,8 +169,67 @@ public class LazyJoin extends AbstractJoin implements LazyExpression, SchemaProv
 
 	@Override
 	public Record next() {
+		if(this.isIndexedJoin()) {
+			return this.nextIndexed();
+		}
+		if(this.threshold != null) {
+			return this.nextRanked();
+		}
+		return this.nextNested();
+	}
+	
+	@Override
+	public RecordBatch nextBatch(int max) {
+		RecordBatch batch = new RecordBatch(max);
+		if(this.isIndexedJoin()) {
+			this.fillIndexed(batch);
+		} else if(this.threshold != null) {
+			this.fillRanked(batch);
+		} else {
+			this.fillNested(batch);
+		}
+		return batch.isEmpty() ? null : batch;
+	}
+	
+	/**
+	 * Sets lower bound of the accepted ranks. Joined rank never exceeds rank of the left record,
+	 * so the bound is passed to the left argument. Must be set before the first record is read.
+	 */
+	@Override
+	public void setThreshold(DoubleSupplier threshold) {
+		this.threshold = threshold;
+		this.leftArg.setThreshold(threshold);
+	}
+	
+	/**
+	 * @return current lower bound of the accepted ranks
+	 */
+	private double bound() {
+		return this.threshold == null ? 0.0d : this.threshold.getAsDouble();
+	}
+	
+	/**
+	 * Gets next record of the left argument, which is read in batches
+	 * @return record or null
+	 */
+	private Record nextLeft() {
+		if(this.leftBatch == null || this.leftPosition >= this.leftBatch.size()) {
+			this.leftBatch = this.leftArg.nextBatch(RecordBatch.DEFAULT_SIZE);
+			this.leftPosition = 0;
+			if(this.leftBatch == null) {
+				return null;
+			}
+		}
+		return this.leftBatch.get(this.leftPosition++);
+	}
+	
+	/**
+	 * Gets next joined record by nested loops
+	 * @return joined record or null
+	 */
+	private Record nextNested() {
 		if(leftCurrent == null) {
-			leftCurrent = this.leftArg.next();
+			leftCurrent = this.nextLeft();
 		}
 		
 		while(this.leftCurrent != null) {
@@ -167,11 +245,240 @@ public class LazyJoin extends AbstractJoin implements LazyExpression, SchemaProv
 				}
 				right = this.rightIterator.next();
 			}
-			this.leftCurrent = this.leftArg.next();
+			this.leftCurrent = this.nextLeft();
 			this.rightIterator.restart();
 		}
 		return null;
 	}
+	
+	/**
+	 * Fills the batch with joined records by nested loops
+	 * @param batch filled batch
+	 */
+	private void fillNested(RecordBatch batch) {
+		if(this.leftCurrent == null) {
+			this.leftCurrent = this.nextLeft();
+		}
+		
+		while(this.leftCurrent != null) {
+			Record left = this.leftCurrent;
+			while(!batch.isFull()) {
+				Record right = this.rightIterator.next();
+				if(right == null) {
+					break;
+				}
+				double clauseRank = this.joinClauseSatisfyDegree(left, right);
+				if(clauseRank > 0.0d) {
+					double rank = this.product.apply(left.rank, this.product.apply(right.rank, clauseRank));
+					if(rank > 0.0d) {
+						batch.add(this.joinRecords(left, right, rank));
+					}
+				}
+			}
+			if(batch.isFull()) {
+				return;
+			}
+			this.leftCurrent = this.nextLeft();
+			this.rightIterator.restart();
+		}
+	}
+	
+	/**
+	 * Reads the right argument sorted by descending rank
+	 */
+	private void sortRight() {
+		List<Record> right = new ArrayList<Record>();
+		Record r = this.rightIterator.next();
+		while(r != null) {
+			right.add(r);
+			r = this.rightIterator.next();
+		}
+		right.sort(Record.RANK_COMPARATOR_DSC);
+		this.rightByRank = right.toArray(new Record[right.size()]);
+	}
+	
+	/**
+	 * Gets next joined record by nested loops over the right argument sorted by descending rank
+	 * @return joined record or null
+	 */
+	private Record nextRanked() {
+		if(this.rightByRank == null) {
+			this.sortRight();
+		}
+		
+		while(true) {
+			if(this.leftCurrent == null) {
+				this.leftCurrent = this.nextLeft();
+				if(this.leftCurrent == null) {
+					return null;
+				}
+				this.rightPosition = 0;
+			}
+			
+			double bound = this.threshold.getAsDouble();
+			while(this.rightPosition < this.rightByRank.length) {
+				Record right = this.rightByRank[this.rightPosition++];
+				if(this.product.apply(this.leftCurrent.rank, right.rank) < bound) {
+					// Remaining right records have lower rank
+					break;
+				}
+				double clauseRank = this.joinClauseSatisfyDegree(this.leftCurrent, right);
+				if(clauseRank > 0.0d) {
+					double rank = this.recordRank(this.leftCurrent.rank, right.rank, clauseRank);
+					if(rank > 0.0d && rank >= bound) {
+						return this.joinRecords(this.leftCurrent, right, rank);
+					}
+				}
+			}
+			this.leftCurrent = null;
+		}
+	}
+	
+	/**
+	 * Fills the batch with joined records by nested loops over the right argument sorted by descending rank
+	 * @param batch filled batch
+	 */
+	private void fillRanked(RecordBatch batch) {
+		if(this.rightByRank == null) {
+			this.sortRight();
+		}
+		
+		while(!batch.isFull()) {
+			if(this.leftCurrent == null) {
+				this.leftCurrent = this.nextLeft();
+				if(this.leftCurrent == null) {
+					return;
+				}
+				this.rightPosition = 0;
+			}
+			
+			Record left = this.leftCurrent;
+			double bound = this.threshold.getAsDouble();
+			int position = this.rightPosition;
+			boolean exhausted = true;
+			while(position < this.rightByRank.length) {
+				if(batch.isFull()) {
+					exhausted = false;
+					break;
+				}
+				Record right = this.rightByRank[position++];
+				if(this.product.apply(left.rank, right.rank) < bound) {
+					// Remaining right records have lower rank
+					break;
+				}
+				double clauseRank = this.joinClauseSatisfyDegree(left, right);
+				if(clauseRank > 0.0d) {
+					double rank = this.product.apply(left.rank, this.product.apply(right.rank, clauseRank));
+					if(rank > 0.0d && rank >= bound) {
+						batch.add(this.joinRecords(left, right, rank));
+					}
+				}
+			}
+			this.rightPosition = position;
+			if(exhausted) {
+				this.leftCurrent = null;
+			}
+		}
+	}
+	
+	/**
+	 * Builds index of the right argument
+	 */
+	private void buildRightIndex() {
+		this.rightIndex = this.createIndex();
+		Record right = this.rightIterator.next();
+		while(right != null) {
+			this.rightIndex.add(right);
+			right = this.rightIterator.next();
+		}
+		if(this.threshold != null && this.bandClause == null) {
+			this.rightIndex.sortByRank();
+		}
+	}
+	
+	/**
+	 * Gets next joined record probing the index of the right argument
+	 * @return joined record or null
+	 */
+	private Record nextIndexed() {
+		if(this.rightIndex == null) {
+			this.buildRightIndex();
+		}
+		
+		while(true) {
+			if(this.bucket == null || this.bucketPosition >= this.bucket.size()) {
+				this.leftCurrent = this.nextLeft();
+				if(this.leftCurrent == null) {
+					return null;
+				}
+				this.bucket = this.candidates(this.rightIndex, this.leftCurrent);
+				this.bucketPosition = 0;
+				continue;
+			}
+			
+			Record right = this.bucket.get(this.bucketPosition++);
+			double bound = this.bound();
+			if(bound > 0.0d && this.product.apply(this.leftCurrent.rank, right.rank) < bound) {
+				if(this.bandClause == null) {
+					// Bucket is sorted by rank, remaining right records have lower rank
+					this.bucket = null;
+				}
+				continue;
+			}
+			double clauseRank = this.residualClauseSatisfyDegree(this.leftCurrent, right);
+			if(clauseRank > 0.0d) {
+				double rank = this.recordRank(this.leftCurrent.rank, right.rank, clauseRank);
+				if(rank > 0.0d && rank >= bound) {
+					return this.joinRecords(this.leftCurrent, right, rank);
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Fills the batch with joined records probing the index of the right argument
+	 * @param batch filled batch
+	 */
+	private void fillIndexed(RecordBatch batch) {
+		if(this.rightIndex == null) {
+			this.buildRightIndex();
+		}
+		
+		while(!batch.isFull()) {
+			if(this.bucket == null || this.bucketPosition >= this.bucket.size()) {
+				this.leftCurrent = this.nextLeft();
+				if(this.leftCurrent == null) {
+					return;
+				}
+				this.bucket = this.candidates(this.rightIndex, this.leftCurrent);
+				this.bucketPosition = 0;
+			}
+			
+			Record left = this.leftCurrent;
+			List<Record> candidates = this.bucket;
+			int size = candidates.size();
+			int position = this.bucketPosition;
+			double bound = this.bound();
+			while(position < size && !batch.isFull()) {
+				Record right = candidates.get(position++);
+				if(bound > 0.0d && this.product.apply(left.rank, right.rank) < bound) {
+					if(this.bandClause == null) {
+						// Bucket is sorted by rank, remaining right records have lower rank
+						position = size;
+					}
+					continue;
+				}
+				double clauseRank = this.residualClauseSatisfyDegree(left, right);
+				if(clauseRank > 0.0d) {
+					double rank = this.product.apply(left.rank, this.product.apply(right.rank, clauseRank));
+					if(rank > 0.0d && rank >= bound) {
+						batch.add(this.joinRecords(left, right, rank));
+					}
+				}
+			}
+			this.bucketPosition = position;
+		}
+	}
 
 	@Override
 	public Statistics getStatistics() {
@@ -6,6 +6,7 @@ import rq.common.interfaces.LazyExpression;
 import rq.common.interfaces.SchemaProvider;
 import rq.common.statistic.Statistics;
 import rq.common.table.Record;
+import rq.common.table.RecordBatch;
 import rq.common.table.Schema;
 
 public class LazyMapping implements LazyExpression, SchemaProvider {
@@ -45,6 +46,19 @@ public class LazyMapping implements LazyExpression, SchemaProvider {
 		return this.fun.apply(record);
 	}
 
+	@Override
+	public RecordBatch nextBatch(int max) {
+		RecordBatch batch = this.argExp.nextBatch(max);
+		if(batch == null) {
+			return null;
+		}
+		RecordBatch mapped = new RecordBatch(batch.size());
+		for(int i = 0; i < batch.size(); i++) {
+			mapped.add(this.fun.apply(batch.get(i)));
+		}
+		return mapped;
+	}
+
 	@Override
 	public Statistics getStatistics() {
 		return null;
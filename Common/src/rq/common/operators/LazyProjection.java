@@ -3,13 +3,19 @@
  */
 package rq.common.operators;
 
+import java.io.Closeable;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collection;
-import java.util.PriorityQueue;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.function.BinaryOperator;
+import java.util.function.DoubleSupplier;
 import java.util.stream.Collectors;
 
 import rq.common.exceptions.AttributeNotInSchemaException;
+import rq.common.exceptions.DomainNotByteSerializeableException;
 import rq.common.exceptions.DuplicateAttributeNameException;
 import rq.common.exceptions.NotSubschemaException;
 import rq.common.exceptions.RecordValueNotApplicableOnSchemaException;
@@ -21,29 +27,63 @@ import rq.common.onOperators.RecordValue;
 import rq.common.operators.Projection.To;
 import rq.common.statistic.Statistics;
 import rq.common.table.Attribute;
+import rq.common.table.FileMappedTable;
 import rq.common.table.Record;
+import rq.common.table.RecordBuilder;
 import rq.common.table.Schema;
 
 /**
- * Represents lazy projection operation
+ * Represents lazy projection operation.
+ * Projected records are merged in a hash map on their values, rank of the merged record is supremum of their ranks.
+ * Records are returned once the argument is exhausted, in order of their first occurrence.
+ * If the map grows over the memory budget, it is spilled into hash partitions in temporary file mapped tables,
+ * which are merged one by one afterwards. Records of domains that cannot be stored in the file are kept in memory.
+ * Partitions are deleted once they are merged, a consumer that stops reading early should close the projection to delete the rest.
  * 
  * @author Mgr. Radomir Skrabal
  *
  */
-public class LazyProjection implements LazyExpression, SchemaProvider {
+public class LazyProjection implements LazyExpression, SchemaProvider, Closeable {
 	
 	private final Schema schema;
 	private final java.util.Map<Attribute, RecordValue> projection;
 	private final LazyExpression argExp;
 	private final BinaryOperator<Double> supremum;
+	private final RecordBuilder builder;
+	/** Projected values in the order of attribute indices of the schema */
+	private final RecordValue[] values;
+	/** True if domains of all projected values match domains of the attributes */
+	private final boolean isTypeSafe;
 	
-	private PriorityQueue<Record> queue = null;
+	/** Default maximal number of merged records kept in memory */
+	public static final int DEFAULT_MEMORY_BUDGET = 1 << 20;
+	/** Number of hash partitions of the spilled records */
+	private static final int PARTITIONS = 16;
 	
-	private LazyProjection(Schema schema, java.util.Map<Attribute, RecordValue> projection, LazyExpression argExp, SchemaProvider argSch, BinaryOperator<Double> supremum) {
+	private final int memoryBudget;
+	/** Merged records of the argument read so far */
+	private LinkedHashMap<Record.NoRankKey, Record> merged = new LinkedHashMap<Record.NoRankKey, Record>();
+	/** Spilled records, null if nothing was spilled */
+	private FileMappedTable[] partitions = null;
+	private boolean isSpillable = true;
+	private int partition = -1;
+	/** Returned merged records, null until the argument is exhausted */
+	private Iterator<Record> output = null;
+	
+	private LazyProjection(Schema schema, java.util.Map<Attribute, RecordValue> projection, LazyExpression argExp, SchemaProvider argSch, BinaryOperator<Double> supremum, int memoryBudget) {
 		this.schema = schema;
+		this.memoryBudget = memoryBudget;
 		this.projection = projection;
 		this.argExp = argExp;
 		this.supremum = supremum;
+		this.builder = RecordBuilder.factory(schema);
+		this.values = new RecordValue[schema.size()];
+		boolean typeSafe = true;
+		for(java.util.Map.Entry<Attribute, RecordValue> e : projection.entrySet()) {
+			this.values[schema.attributeIndex(e.getKey()).get()] = e.getValue();
+			typeSafe = typeSafe && e.getKey().domain.equals(e.getValue().domain());
+		}
+		this.isTypeSafe = typeSafe;
 	}
 	
 	/**
@@ -62,9 +102,9 @@ public class LazyProjection implements LazyExpression, SchemaProvider {
 		}
 
 		java.util.Map<Attribute, RecordValue> projection = new java.util.HashMap<Attribute, RecordValue>();
-		schema.stream().forEach(a -> projection.put(a, a));
+		schema.stream().forEach(a -> projection.put(a, a.bind(argument.schema())));
 
-		return new LazyProjection(schema, projection, argument, argument, LaticeFactory.instance().getSupremum());
+		return new LazyProjection(schema, projection, argument, argument, LaticeFactory.instance().getSupremum(), DEFAULT_MEMORY_BUDGET);
 	}
 	
 	/**
@@ -79,6 +119,21 @@ public class LazyProjection implements LazyExpression, SchemaProvider {
 	 */
 	public static <T extends LazyExpression & SchemaProvider> LazyProjection factory(T argument, Collection<To> mapping) 
 			throws DuplicateAttributeNameException, RecordValueNotApplicableOnSchemaException {
+		return LazyProjection.factory(argument, mapping, DEFAULT_MEMORY_BUDGET);
+	}
+	
+	/**
+	 * Factory method
+	 * @param <T>
+	 * @param argument
+	 * @param mapping
+	 * @param memoryBudget maximal number of merged records kept in memory before they are spilled to disk
+	 * @return
+	 * @throws DuplicateAttributeNameException
+	 * @throws RecordValueNotApplicableOnSchemaException 
+	 */
+	public static <T extends LazyExpression & SchemaProvider> LazyProjection factory(T argument, Collection<To> mapping, int memoryBudget) 
+			throws DuplicateAttributeNameException, RecordValueNotApplicableOnSchemaException {
 		Schema fromSchema = ((SchemaProvider)argument).schema();
 		for(To to : mapping) {
 			if(!to.from.isApplicableToSchema(fromSchema)) {
@@ -92,9 +147,9 @@ public class LazyProjection implements LazyExpression, SchemaProvider {
 				.collect(Collectors.toList()));
 		
 		java.util.Map<Attribute, RecordValue> projection = new java.util.HashMap<Attribute, RecordValue>();
-		mapping.stream().forEach(t -> projection.put(t.to, t.from));
+		mapping.stream().forEach(t -> projection.put(t.to, t.from.bind(fromSchema)));
 		
-		return new LazyProjection(schema, projection, argument, argument, LaticeFactory.instance().getSupremum());
+		return new LazyProjection(schema, projection, argument, argument, LaticeFactory.instance().getSupremum(), memoryBudget);
 	}
 	
 	public static <T extends LazyExpression & SchemaProvider> LazyProjection factory(T argument, To... tos) {
@@ -114,63 +169,145 @@ public class LazyProjection implements LazyExpression, SchemaProvider {
 		if(record == null) {
 			return null;
 		}
+		Object[] vls = new Object[this.values.length];
+		for(int i = 0; i < vls.length; i++) {
+			vls[i] = this.values[i].value(record);
+		}
+		if(this.isTypeSafe) {
+			return this.builder.buildUnchecked(vls, record.rank);
+		}
 		try {
-			return 
-					Record.factory(
-							this.schema,
-							this.projection.entrySet().stream()
-								.map(e -> {
-									return new Record.AttributeValuePair(
-											e.getKey(), 
-											e.getValue().value(record));
-								}).collect(Collectors.toList()),
-							record.rank);
-		} catch (TypeSchemaMismatchException | AttributeNotInSchemaException e) {
+			return this.builder.build(vls, record.rank);
+		} catch (TypeSchemaMismatchException e) {
 			throw new RuntimeException(e);
 		}
 	}
+	
+	/**
+	 * Projected record gets supremum of ranks of the merged records, which is their maximum in all the lattices,
+	 * so the bound is passed to the argument.
+	 */
+	@Override
+	public void setThreshold(DoubleSupplier threshold) {
+		this.argExp.setThreshold(threshold);
+	}
+
+	/**
+	 * Merges projected record into the map
+	 */
+	private void merge(Record record) {
+		this.merged.merge(record.noRankKey(), record, (o, n) -> {
+			double rank = this.supremum.apply(o.rank, n.rank);
+			return rank == o.rank ? o : new Record(o, rank);
+		});
+	}
+	
+	/**
+	 * Gets partition of the record
+	 */
+	private static int partition(Record record) {
+		int h = record.hashCodeNoRank();
+		return Math.floorMod(h ^ (h >>> 16), PARTITIONS);
+	}
+	
+	/**
+	 * Moves merged records into the partitions on disk
+	 */
+	private void spill() {
+		if(this.partitions == null) {
+			FileMappedTable[] partitions = new FileMappedTable[PARTITIONS];
+			try {
+				for(int i = 0; i < PARTITIONS; i++) {
+					partitions[i] = FileMappedTable.factory(this.schema, Math.max(this.memoryBudget / PARTITIONS, 1));
+				}
+			} catch (DomainNotByteSerializeableException e) {
+				// Records stay in memory
+				this.isSpillable = false;
+				return;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			this.partitions = partitions;
+		}
+		for(Record record : this.merged.values()) {
+			this.partitions[partition(record)].insert(record);
+		}
+		this.merged.clear();
+	}
+	
+	/**
+	 * Merges records of the next spilled partition, deleting the previous one
+	 * @return false if there are no more partitions
+	 */
+	private boolean nextPartition() {
+		if(this.partition >= 0) {
+			try {
+				this.partitions[this.partition].close();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+			this.partitions[this.partition] = null;
+		}
+		this.partition++;
+		if(this.partition >= PARTITIONS) {
+			this.partitions = null;
+			return false;
+		}
+		this.merged = new LinkedHashMap<Record.NoRankKey, Record>();
+		for(Record record : this.partitions[this.partition]) {
+			this.merge(record);
+		}
+		this.output = this.merged.values().iterator();
+		return true;
+	}
 
 	@Override
 	public Record next() {
-		if(this.queue == null) {
-			var arg = LazyExpression.realizeInMemory(this.argExp);
-			if(arg != null) {
-				this.queue = new PriorityQueue<Record>(Math.max(arg.size(), 1));
-				arg.stream().forEach(r -> this.queue.add(r));
+		if(this.output == null) {
+			Record record = this.argExp.next();
+			while(record != null) {
+				this.merge(this.project(record));
+				if(this.isSpillable && this.merged.size() > this.memoryBudget) {
+					this.spill();
+				}
+				record = this.argExp.next();
+			}
+			
+			if(this.partitions == null) {
+				this.output = this.merged.values().iterator();
+			}
+			else {
+				this.spill();
+				this.merged = null;
+				this.output = Collections.emptyIterator();
 			}
 		}
 		
-		if(this.queue != null) {
-			Record record = this.queue.poll();
-			if(record == null) {
+		while(!this.output.hasNext()) {
+			if(this.partitions == null || !this.nextPartition()) {
+				this.merged = null;
+				this.output = Collections.emptyIterator();
 				return null;
 			}
-			var p = this.project(record);
-			if(this.queue.isEmpty()) {
-				return p;
-			}
-			
-			var q1 = this.queue.peek();
-			if(q1 == null) {
-				return p;
-			}
-			var p1 = this.project(q1);
-			while(p.equalsNoRank(p1)) {
-				p = new Record(p, this.supremum.apply(p.rank, p1.rank));
-				this.queue.poll();
-				
-				var q2 = this.queue.peek();
-				if(q2 != null) {
-					p1 = this.project(q2);
-				}
-				else {
-					p1 = null;
+		}
+		return this.output.next();
+	}
+
+	/**
+	 * Deletes spilled partitions that were not merged yet. Projection returns no more records afterwards.
+	 */
+	@Override
+	public void close() throws IOException {
+		if(this.partitions != null) {
+			for(FileMappedTable partition : this.partitions) {
+				if(partition != null) {
+					partition.close();
 				}
 			}
-			
-			return p;
+			this.partitions = null;
 		}
-		return null;
+		this.merged = null;
+		this.output = Collections.emptyIterator();
 	}
 
 	@Override
@@ -189,7 +326,7 @@ public class LazyProjection implements LazyExpression, SchemaProvider {
 				.append("[")
 				.append(this.projection.entrySet().stream()
 						.map(e -> {
-							if(e.getKey().equals(e.getValue())) {
+							if(e.getKey().toString().equals(e.getValue().toString())) {
 								return e.getKey();
 							}
 							return new StringBuilder()
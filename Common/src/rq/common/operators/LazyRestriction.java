@@ -3,12 +3,14 @@
  */
 package rq.common.operators;
 
+import java.util.function.DoubleSupplier;
 import java.util.function.Function;
 
 import rq.common.interfaces.LazyExpression;
 import rq.common.interfaces.SchemaProvider;
 import rq.common.statistic.Statistics;
 import rq.common.table.Record;
+import rq.common.table.RecordBatch;
 import rq.common.table.Schema;
 
 /**
@@ -21,15 +23,31 @@ public class LazyRestriction implements LazyExpression, SchemaProvider {
 	private final LazyExpression argExp;
 	private final SchemaProvider argSch;
 	private final Function<Record, Double> predicate;
+	/** True if the predicate never raises rank of the record */
+	private final boolean isRankBounded;
+	/** Lower bound of the accepted ranks, null if not set */
+	private DoubleSupplier threshold = null;
 	
-	private LazyRestriction(LazyExpression argExp, SchemaProvider argSch, Function<Record, Double> predicate) {
+	private LazyRestriction(LazyExpression argExp, SchemaProvider argSch, Function<Record, Double> predicate, boolean isRankBounded) {
 		this.argSch = argSch;
 		this.argExp = argExp;
 		this.predicate = predicate;
+		this.isRankBounded = isRankBounded;
 	}
 	
 	public static <T extends LazyExpression & SchemaProvider> LazyRestriction factory(T arg, Function<Record, Double> predicate) {
-		return new LazyRestriction(arg, arg, predicate);
+		return new LazyRestriction(arg, arg, predicate, false);
+	}
+	
+	/**
+	 * Creates restriction whose predicate never returns rank higher than rank of the record,
+	 * for example r -> condition ? r.rank : 0.0d. Rank threshold of such restriction is passed to its argument.
+	 * @param arg restricted expression
+	 * @param predicate predicate bounded by the rank of the record
+	 * @return restriction
+	 */
+	public static <T extends LazyExpression & SchemaProvider> LazyRestriction rankBounded(T arg, Function<Record, Double> predicate) {
+		return new LazyRestriction(arg, arg, predicate, true);
 	}
 
 	@Override
@@ -37,13 +55,28 @@ public class LazyRestriction implements LazyExpression, SchemaProvider {
 		return this.argSch.schema();
 	}
 
+	@Override
+	public void setThreshold(DoubleSupplier threshold) {
+		this.threshold = threshold;
+		if(this.isRankBounded) {
+			this.argExp.setThreshold(threshold);
+		}
+	}
+	
+	/**
+	 * @return current lower bound of the accepted ranks
+	 */
+	private double bound() {
+		return this.threshold == null ? 0.0d : this.threshold.getAsDouble();
+	}
+
 	@Override
 	public Record next() {
 		Record record = this.argExp.next();
 		
 		while(record != null) {
 			Double rank = this.predicate.apply(record);
-			if(rank > 0.0d) {
+			if(rank > 0.0d && rank >= this.bound()) {
 				return new Record(record, rank);
 			}
 			record = this.argExp.next();
@@ -51,6 +84,27 @@ public class LazyRestriction implements LazyExpression, SchemaProvider {
 		return null;
 	}
 
+	@Override
+	public RecordBatch nextBatch(int max) {
+		RecordBatch batch = this.argExp.nextBatch(max);
+		while(batch != null) {
+			RecordBatch restricted = new RecordBatch(batch.size());
+			double bound = this.bound();
+			for(int i = 0; i < batch.size(); i++) {
+				Record record = batch.get(i);
+				Double rank = this.predicate.apply(record);
+				if(rank > 0.0d && rank >= bound) {
+					restricted.add(new Record(record, rank));
+				}
+			}
+			if(!restricted.isEmpty()) {
+				return restricted;
+			}
+			batch = this.argExp.nextBatch(max);
+		}
+		return null;
+	}
+
 	@Override
 	public Statistics getStatistics() {
 		return null;
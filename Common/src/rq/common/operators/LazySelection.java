@@ -12,6 +12,7 @@ import rq.common.latices.LaticeFactory;
 import rq.common.restrictions.SelectionCondition;
 import rq.common.statistic.Statistics;
 import rq.common.table.Record;
+import rq.common.table.RecordBatch;
 import rq.common.table.Schema;
 
 /**
@@ -26,7 +27,7 @@ public class LazySelection extends AbstractSelection implements LazyExpression,
 			LazyExpression arg,
 			SelectionCondition condition,
 			BinaryOperator<Double> product) {
-		super(condition, product);
+		super(condition, product, arg.schema());
 		if(!condition.isApplicableToSchema(arg.schema())) {
 			throw new RuntimeException(new SelectionConditionNotApplicableToSchema(condition, arg.schema()));
 		}
@@ -37,7 +38,7 @@ public class LazySelection extends AbstractSelection implements LazyExpression,
 	public LazySelection(
 			LazyExpression arg,
 			SelectionCondition condition){
-		super(condition, LaticeFactory.instance().getProduct());
+		super(condition, LaticeFactory.instance().getProduct(), arg.schema());
 		if(!condition.isApplicableToSchema(arg.schema())) {
 			throw new RuntimeException(new SelectionConditionNotApplicableToSchema(condition, arg.schema()));
 		}
@@ -64,6 +65,26 @@ public class LazySelection extends AbstractSelection implements LazyExpression,
 		return null;
 	}
 
+	@Override
+	public RecordBatch nextBatch(int max) {
+		RecordBatch batch = this.argExp.nextBatch(max);
+		while(batch != null) {
+			RecordBatch selected = new RecordBatch(batch.size());
+			for(int i = 0; i < batch.size(); i++) {
+				Record record = batch.get(i);
+				double rank = this.recordSatisfaction(record);
+				if(rank > 0.0d) {
+					selected.add(new Record(record, rank));
+				}
+			}
+			if(!selected.isEmpty()) {
+				return selected;
+			}
+			batch = this.argExp.nextBatch(max);
+		}
+		return null;
+	}
+
 	@Override
 	public Statistics getStatistics() {
 		return null;
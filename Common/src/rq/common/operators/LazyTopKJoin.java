@@ -0,0 +1,296 @@
+package rq.common.operators;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.DoubleSupplier;
+
+import rq.common.exceptions.DuplicateAttributeNameException;
+import rq.common.exceptions.OnOperatornNotApplicableToSchemaException;
+import rq.common.interfaces.LazyExpression;
+import rq.common.interfaces.SchemaProvider;
+import rq.common.latices.LaticeFactory;
+import rq.common.onOperators.OnOperator;
+import rq.common.statistic.Statistics;
+import rq.common.table.Attribute;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+
+/**
+ * Represents lazy join returning k records of the highest rank.
+ * Both arguments must return records in descending order of rank, for example LazyFacade.byRank.
+ *
+ * Arguments are pulled alternately and each pulled record is joined with the records seen so far on the other side.
+ * Pair containing an unseen record cannot rank higher than product of the rank of the last record pulled from its side
+ * and the first record of the other side. Joined record is returned once its rank reaches this bound,
+ * so only prefixes of the arguments are read. This assumes the product is monotone and bounded by its arguments, as all t-norms are.
+ * Records are returned in descending order of rank.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class LazyTopKJoin extends AbstractJoin implements LazyExpression, SchemaProvider {
+
+	/**
+	 * Argument of the join with the records read so far
+	 */
+	private class Side {
+		private final LazyExpression arg;
+		private final boolean isLeft;
+		/** Records read so far, used if the join cannot be indexed */
+		private final List<Record> seen = new ArrayList<Record>();
+		/** Records read so far hashed by their key, null if the join cannot be indexed */
+		private final JoinIndex index;
+		private double top = 1.0d;
+		private double last = 1.0d;
+		private boolean isStarted = false;
+		private boolean isExhausted = false;
+
+		private Side(LazyExpression arg, boolean isLeft) {
+			this.arg = arg;
+			this.isLeft = isLeft;
+			this.index = equalityClauses.isEmpty() ? null
+					: new JoinIndex(isLeft ? LazyTopKJoin.this::leftKey : LazyTopKJoin.this::rightKey);
+		}
+
+		/**
+		 * Gets records read so far that can join with the record of the other side
+		 */
+		private List<Record> candidates(Record other) {
+			if(this.index == null) {
+				return this.seen;
+			}
+			return this.index.candidates(this.isLeft ? rightKey(other) : leftKey(other), 0.0d);
+		}
+
+		/**
+		 * Reads next record of the argument and joins it with the records seen on the other side
+		 * @param other the other side
+		 */
+		private void pull(Side other) {
+			Record record = this.arg.next();
+			if(record == null) {
+				this.isExhausted = true;
+				return;
+			}
+			if(record.rank > this.last) {
+				throw new IllegalStateException("Argument of top k join is not sorted by descending rank");
+			}
+			if(!this.isStarted) {
+				this.top = record.rank;
+				this.isStarted = true;
+			}
+			this.last = record.rank;
+
+			for(Record o : other.candidates(record)) {
+				Record l = this.isLeft ? record : o;
+				Record r = this.isLeft ? o : record;
+				double clauseRank = this.index == null ? joinClauseSatisfyDegree(l, r) : residualClauseSatisfyDegree(l, r);
+				if(clauseRank > 0.0d) {
+					double rank = recordRank(l.rank, r.rank, clauseRank);
+					if(rank > 0.0d) {
+						queue.add(joinRecords(l, r, rank));
+					}
+				}
+			}
+
+			if(this.index == null) {
+				this.seen.add(record);
+			}
+			else {
+				this.index.add(record);
+			}
+		}
+
+		/**
+		 * Gets upper bound of rank of a pair containing unseen record of this side
+		 * @param other the other side
+		 */
+		private double bound(Side other) {
+			if(this.isExhausted) {
+				return 0.0d;
+			}
+			return product.apply(this.last, other.top);
+		}
+	}
+
+	private final LazyExpression leftArg;
+	private final LazyExpression rightArg;
+	private final int k;
+
+	private final Side left;
+	private final Side right;
+	/** Joined records not returned yet */
+	private final PriorityQueue<Record> queue = new PriorityQueue<Record>(Record.RANK_COMPARATOR_DSC);
+	private int returned = 0;
+
+	/** Lower bound of the accepted ranks, null if not set */
+	private DoubleSupplier threshold = null;
+
+	private LazyTopKJoin(
+			LazyExpression leftArg,
+			LazyExpression rightArg,
+			int k,
+			Collection<OnOperator> onClause,
+			BinaryOperator<Double> product,
+			BinaryOperator<Double> infimum,
+			java.util.Map<Attribute, Attribute> leftProjection,
+			java.util.Map<Attribute, Attribute> rightProjection,
+			Schema schema) {
+		super(new ArrayList<OnOperator>(onClause), product, infimum, leftProjection, rightProjection, schema);
+		this.leftArg = leftArg;
+		this.rightArg = rightArg;
+		this.k = k;
+		this.left = new Side(leftArg, true);
+		this.right = new Side(rightArg, false);
+	}
+
+	public static <T extends LazyExpression & SchemaProvider, U extends LazyExpression & SchemaProvider>
+		LazyTopKJoin factory(
+				T leftArg,
+				U rightArg,
+				int k,
+				Collection<OnOperator> onClause,
+				BinaryOperator<Double> product,
+				BinaryOperator<Double> infimum)
+		throws OnOperatornNotApplicableToSchemaException {
+		Schema leftSchema = ((SchemaProvider)leftArg).schema();
+		Schema rightSchema = ((SchemaProvider)rightArg).schema();
+		for(OnOperator p : onClause) {
+			if(!p.isApplicableToSchema(leftSchema, rightSchema)) {
+				throw new OnOperatornNotApplicableToSchemaException(p, leftSchema, rightSchema);
+			}
+		}
+
+		Set<Attribute> intersection = new HashSet<Attribute>(leftSchema.attributeSet());
+		intersection.retainAll(rightSchema.attributeSet());
+
+		java.util.Map<Attribute, Attribute> leftProjection = makeProjection(leftSchema, intersection, LEFT);
+		java.util.Map<Attribute, Attribute> rightProjection = makeProjection(rightSchema, intersection, RIGHT);
+
+		List<Attribute> attrs = new ArrayList<Attribute>(leftProjection.size() + rightProjection.size());
+		attrs.addAll(leftProjection.values());
+		attrs.addAll(rightProjection.values());
+		Schema schema = null;
+
+		try {
+			schema = Schema.factory(attrs);
+		} catch (DuplicateAttributeNameException e) {
+			//Unlikely
+			throw new RuntimeException(e);
+		}
+
+		return new LazyTopKJoin(
+				leftArg,
+				rightArg,
+				k,
+				AbstractJoin.bind(onClause, leftSchema, rightSchema),
+				product,
+				infimum,
+				leftProjection,
+				rightProjection,
+				schema);
+	}
+
+	public static <T extends LazyExpression & SchemaProvider, U extends LazyExpression & SchemaProvider>
+	LazyTopKJoin factory(
+			T leftArg,
+			U rightArg,
+			int k,
+			OnOperator... ons) {
+		try {
+		return LazyTopKJoin.factory(
+				leftArg,
+				rightArg,
+				k,
+				Arrays.asList(ons),
+				LaticeFactory.instance().getProduct(),
+				LaticeFactory.instance().getInfimum());
+		}catch(Exception e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Schema schema() {
+		return this.schema;
+	}
+
+	/**
+	 * Sets lower bound of the accepted ranks. Joined rank never exceeds ranks of the joined records,
+	 * so the bound is passed to both arguments.
+	 */
+	@Override
+	public void setThreshold(DoubleSupplier threshold) {
+		this.threshold = threshold;
+		this.leftArg.setThreshold(threshold);
+		this.rightArg.setThreshold(threshold);
+	}
+
+	@Override
+	public Record next() {
+		if(this.returned >= this.k) {
+			return null;
+		}
+
+		while(true) {
+			double accepted = this.threshold == null ? 0.0d : this.threshold.getAsDouble();
+			double leftBound = this.left.bound(this.right);
+			double rightBound = this.right.bound(this.left);
+			double bound = Math.max(leftBound, rightBound);
+			if(!this.left.isStarted || !this.right.isStarted) {
+				// Nothing is known about the argument yet
+				bound = this.left.isExhausted || this.right.isExhausted ? 0.0d : 1.0d;
+			}
+
+			Record top = this.queue.peek();
+			if(top != null && top.rank >= bound) {
+				if(top.rank < accepted) {
+					return null;
+				}
+				this.queue.poll();
+				this.returned++;
+				return top;
+			}
+			if(bound <= 0.0d || bound < accepted) {
+				// No unseen pair can make it
+				return null;
+			}
+
+			if(!this.left.isStarted || (!this.left.isExhausted && leftBound >= rightBound && this.right.isStarted)) {
+				this.left.pull(this.right);
+			}
+			else {
+				this.right.pull(this.left);
+			}
+		}
+	}
+
+	@Override
+	public Statistics getStatistics() {
+		return null;
+	}
+
+	@Override
+	public boolean hasStatistics() {
+		return false;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("(")
+				.append(this.leftArg.toString())
+				.append(") TOP ")
+				.append(this.k)
+				.append(" JOIN (")
+				.append(this.rightArg.toString())
+				.append(") WHERE ")
+				.append(this.onClause.stream().map(p -> p.toString()).reduce((s1, s2) -> s1 + " /\\ " + s2))
+				.toString();
+	}
+}
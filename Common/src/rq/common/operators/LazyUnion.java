@@ -1,7 +1,10 @@
 package rq.common.operators;
 
-import java.util.PriorityQueue;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.function.BinaryOperator;
+import java.util.function.DoubleSupplier;
 
 import rq.common.exceptions.SchemaNotEqualException;
 import rq.common.interfaces.LazyExpression;
@@ -9,39 +12,105 @@ import rq.common.interfaces.SchemaProvider;
 import rq.common.interfaces.Table;
 import rq.common.latices.LaticeFactory;
 import rq.common.statistic.Statistics;
+import rq.common.table.LazyFacade;
 import rq.common.table.Record;
 import rq.common.table.Schema;
 
+/**
+ * Represents lazy union. Records of equal values get supremum of their ranks.
+ *
+ * By default records of one argument are hashed on their values and the other argument is streamed,
+ * records without a match are returned at once and the merged hashed records at the end.
+ * Sort merge union reads arguments sorted by a value comparator and keeps no records.
+ * Each argument is expected to contain a value at most once.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
 public class LazyUnion implements LazyExpression, SchemaProvider {
-	
+
 	private final Schema schema;
-	
-	private final Table leftTable;
-	private final Table rightTable;
-	
-	private final PriorityQueue<Record> left;
-	private final PriorityQueue<Record> right;
-	
+
+	private final LazyExpression leftArg;
+	private final LazyExpression rightArg;
+
 	private final BinaryOperator<Double> supremum;
-	
-	public static LazyUnion factory(Table left, Table right) throws SchemaNotEqualException {
-		Schema schema1 = left.schema();
-		Schema schema2 = right.schema();
+	/** Comparator the arguments are sorted by, null for the hash union */
+	private final Comparator<Record> comparator;
+
+	/** Hashed records of the right argument */
+	private LinkedHashMap<Record.NoRankKey, Record> hashed = null;
+	private Iterator<Record> rest = null;
+
+	private Record leftCurrent = null;
+	private Record rightCurrent = null;
+	private boolean isStarted = false;
+
+	private LazyUnion(LazyExpression left, LazyExpression right, Schema schema, BinaryOperator<Double> supremum, Comparator<Record> comparator) {
+		this.schema = schema;
+		this.leftArg = left;
+		this.rightArg = right;
+		this.supremum = supremum;
+		this.comparator = comparator;
+	}
+
+	private static Schema checkSchema(Schema schema1, Schema schema2) throws SchemaNotEqualException {
 		if (!schema1.equals(schema2)) {
 			throw new SchemaNotEqualException(schema1, schema2);
 		}
-		return new LazyUnion(left, right, LaticeFactory.instance().getSupremum());
+		return schema1;
 	}
-	
-	private LazyUnion(Table left, Table right, BinaryOperator<Double> supremum)  {
-		this.schema = left.schema();		
-		this.leftTable = left;
-		this.left = new PriorityQueue<Record>();
-		this.leftTable.stream().forEach(r -> this.left.add(r));
-		this.rightTable = right;
-		this.right = new PriorityQueue<Record>();
-		this.rightTable.stream().forEach(r -> this.right.add(r));
-		this.supremum = supremum;
+
+	/**
+	 * Creates hash union of tables, the smaller one is hashed
+	 * @param left
+	 * @param right
+	 * @return LazyUnion instance
+	 * @throws SchemaNotEqualException
+	 */
+	public static LazyUnion factory(Table left, Table right) throws SchemaNotEqualException {
+		Schema schema = LazyUnion.checkSchema(left.schema(), right.schema());
+		Table hashed = left.size() < right.size() ? left : right;
+		Table streamed = hashed == left ? right : left;
+		return new LazyUnion(new LazyFacade(streamed), new LazyFacade(hashed), schema, LaticeFactory.instance().getSupremum(), null);
+	}
+
+	/**
+	 * Creates hash union, the right argument is hashed and should be the smaller one
+	 * @param left streamed argument
+	 * @param right hashed argument
+	 * @return LazyUnion instance
+	 * @throws SchemaNotEqualException
+	 */
+	public static <T extends LazyExpression & SchemaProvider, U extends LazyExpression & SchemaProvider>
+		LazyUnion factory(T left, U right) throws SchemaNotEqualException {
+		Schema schema = LazyUnion.checkSchema(left.schema(), right.schema());
+		return new LazyUnion(left, right, schema, LaticeFactory.instance().getSupremum(), null);
+	}
+
+	/**
+	 * Creates sort merge union of arguments sorted by values
+	 * @param left
+	 * @param right
+	 * @param comparator comparator of values both arguments are sorted by
+	 * @return LazyUnion instance
+	 * @throws SchemaNotEqualException
+	 */
+	public static <T extends LazyExpression & SchemaProvider, U extends LazyExpression & SchemaProvider>
+		LazyUnion sortMerge(T left, U right, Comparator<Record> comparator) throws SchemaNotEqualException {
+		Schema schema = LazyUnion.checkSchema(left.schema(), right.schema());
+		return new LazyUnion(left, right, schema, LaticeFactory.instance().getSupremum(), comparator);
+	}
+
+	/**
+	 * Creates sort merge union of arguments sorted by Record.VALUE_COMPARATOR
+	 * @param left
+	 * @param right
+	 * @return LazyUnion instance
+	 * @throws SchemaNotEqualException
+	 */
+	public static <T extends LazyExpression & SchemaProvider, U extends LazyExpression & SchemaProvider>
+		LazyUnion sortMerge(T left, U right) throws SchemaNotEqualException {
+		return LazyUnion.sortMerge(left, right, Record.VALUE_COMPARATOR);
 	}
 
 	@Override
@@ -59,40 +128,107 @@ public class LazyUnion implements LazyExpression, SchemaProvider {
 		return this.schema;
 	}
 
+	/**
+	 * Supremum is maximum in all the lattices, so a record under the bound is either
+	 * dropped or outranked by its match. The bound is passed to both arguments.
+	 */
+	@Override
+	public void setThreshold(DoubleSupplier threshold) {
+		this.leftArg.setThreshold(threshold);
+		this.rightArg.setThreshold(threshold);
+	}
+
 	@Override
 	public Record next() {
-		if(this.left.isEmpty()) {
-			return this.right.poll();
+		if(this.comparator == null) {
+			return this.nextHashed();
+		}
+		return this.nextMerged();
+	}
+
+	/**
+	 * Gets next record of the hash union
+	 * @return record or null
+	 */
+	private Record nextHashed() {
+		if(this.hashed == null) {
+			this.hashed = new LinkedHashMap<Record.NoRankKey, Record>();
+			Record record = this.rightArg.next();
+			while(record != null) {
+				this.hashed.merge(record.noRankKey(), record, (o, n) -> new Record(o, this.supremum.apply(o.rank, n.rank)));
+				record = this.rightArg.next();
+			}
 		}
-		if(this.right.isEmpty()) {
-			return this.left.poll();
+
+		if(this.rest == null) {
+			Record record = this.leftArg.next();
+			while(record != null) {
+				Record.NoRankKey key = record.noRankKey();
+				Record match = this.hashed.get(key);
+				if(match == null) {
+					return record;
+				}
+				this.hashed.put(key, new Record(match, this.supremum.apply(match.rank, record.rank)));
+				record = this.leftArg.next();
+			}
+			this.rest = this.hashed.values().iterator();
 		}
-		
-		var lCurrent = this.left.peek();
-		var rCurrent = this.right.peek();
-			
-		 
-		if(lCurrent.equalsNoRank(rCurrent)) {
-			var r = new Record(lCurrent, this.supremum.apply(lCurrent.rank, rCurrent.rank));	
-			this.left.poll();
-			this.right.poll();
-			return r;
+
+		return this.rest.hasNext() ? this.rest.next() : null;
+	}
+
+	/**
+	 * Reads next record of a sorted argument
+	 * @param arg argument
+	 * @param previous previous record of the argument
+	 * @return record or null
+	 */
+	private Record pull(LazyExpression arg, Record previous) {
+		Record record = arg.next();
+		if(record != null && previous != null && this.comparator.compare(previous, record) > 0) {
+			throw new IllegalStateException("Argument of sort merge union is not sorted");
 		}
-		
-		var cmp = lCurrent.compareTo(rCurrent);
-		if(cmp < 0) {
-			return this.left.poll();
+		return record;
+	}
+
+	/**
+	 * Gets next record of the sort merge union
+	 * @return record or null
+	 */
+	private Record nextMerged() {
+		if(!this.isStarted) {
+			this.leftCurrent = this.pull(this.leftArg, null);
+			this.rightCurrent = this.pull(this.rightArg, null);
+			this.isStarted = true;
+		}
+
+		Record l = this.leftCurrent;
+		Record r = this.rightCurrent;
+		if(l == null && r == null) {
+			return null;
+		}
+
+		int cmp = l == null ? 1 : r == null ? -1 : this.comparator.compare(l, r);
+		if(cmp <= 0) {
+			this.leftCurrent = this.pull(this.leftArg, l);
+		}
+		if(cmp >= 0) {
+			this.rightCurrent = this.pull(this.rightArg, r);
+		}
+
+		if(cmp == 0) {
+			return new Record(l, this.supremum.apply(l.rank, r.rank));
 		}
-		return this.right.poll();
+		return cmp < 0 ? l : r;
 	}
 
 	@Override
 	public String toString() {
 		return new StringBuilder()
 				.append("(")
-				.append(this.leftTable.toString())
+				.append(this.leftArg.toString())
 				.append(") \\/ (")
-				.append(this.rightTable.toString())
+				.append(this.rightArg.toString())
 				.append(")")
 				.toString();
 	}
@@ -24,6 +24,7 @@ import rq.common.table.Schema;
 import rq.common.table.MemoryTable;
 import rq.common.table.Attribute;
 import rq.common.table.Record;
+import rq.common.table.RecordBuilder;
 import rq.common.interfaces.Table;
 
 /**
@@ -38,12 +39,25 @@ public class Projection implements TabularExpression {
 	private final java.util.Map<Attribute, RecordValue> projection;
 	private final BiFunction<Schema, Integer, Table> tableSupplier;
 	private final BinaryOperator<Double> supremum = LaticeFactory.instance().getSupremum();
+	private final RecordBuilder builder;
+	/** Projected values in the order of attribute indices of the schema */
+	private final RecordValue[] values;
+	/** True if domains of all projected values match domains of the attributes */
+	private final boolean isTypeSafe;
 	
 	private Projection(TabularExpression argument, Schema schema, java.util.Map<Attribute, RecordValue> projection, BiFunction<Schema, Integer, Table> tableSupplier) {
 		this.schema = schema;
 		this.argument = argument;
 		this.projection = projection;
 		this.tableSupplier = tableSupplier;
+		this.builder = RecordBuilder.factory(schema);
+		this.values = new RecordValue[schema.size()];
+		boolean typeSafe = true;
+		for(java.util.Map.Entry<Attribute, RecordValue> e : projection.entrySet()) {
+			this.values[schema.attributeIndex(e.getKey()).get()] = e.getValue();
+			typeSafe = typeSafe && e.getKey().domain.equals(e.getValue().domain());
+		}
+		this.isTypeSafe = typeSafe;
 	}
 	
 	public static Projection factory(TabularExpression argument, Schema schema)
@@ -64,7 +78,7 @@ public class Projection implements TabularExpression {
 			throw new NotSubschemaException(argument.schema(), schema);
 		}
 		java.util.Map<Attribute, RecordValue> projection = new java.util.HashMap<Attribute, RecordValue>();
-		schema.stream().forEach(a -> projection.put(a, a));
+		schema.stream().forEach(a -> projection.put(a, a.bind(argument.schema())));
 		
 		return new Projection(argument, schema, projection, tableSupplier);
 	}
@@ -106,7 +120,7 @@ public class Projection implements TabularExpression {
 						.collect(Collectors.toList()));
 		
 		java.util.Map<Attribute, RecordValue> projection = new java.util.HashMap<Attribute, RecordValue>();
-		mapping.stream().forEach(t -> projection.put(t.to, t.from));
+		mapping.stream().forEach(t -> projection.put(t.to, t.from.bind(fromSchema)));
 		
 		return new Projection(table, schema, projection, tableSupplier);
 	}
@@ -137,21 +151,14 @@ public class Projection implements TabularExpression {
 	 * @throws TypeSchemaMismatchException
 	 */
 	private Record project(Record record) throws TypeSchemaMismatchException {
-		try {
-			return 
-				Record.factory(
-						this.schema,
-						this.projection.entrySet().stream()
-							.map(e -> {
-								return new Record.AttributeValuePair(
-										e.getKey(), 
-										e.getValue().value(record));
-							}).collect(Collectors.toList()),
-						record.rank);
-		} catch (TypeSchemaMismatchException | AttributeNotInSchemaException e) {
-			// Unlikely
-			throw new RuntimeException(e);
+		Object[] vls = new Object[this.values.length];
+		for(int i = 0; i < vls.length; i++) {
+			vls[i] = this.values[i].value(record);
+		}
+		if(this.isTypeSafe) {
+			return this.builder.buildUnchecked(vls, record.rank);
 		}
+		return this.builder.build(vls, record.rank);
 	}
 
 	@Override
@@ -204,7 +211,7 @@ public class Projection implements TabularExpression {
 				.append("[")
 				.append(this.projection.entrySet().stream()
 						.map(e -> {
-							if(e.getKey().equals(e.getValue())) {
+							if(e.getKey().toString().equals(e.getValue().toString())) {
 								return e.getKey();
 							}
 							return new StringBuilder()
@@ -27,7 +27,7 @@ public class Selection extends AbstractSelection implements TabularExpression {
 			SelectionCondition condition,
 			BiFunction<Schema, Integer, Table> tableSupplier,
 			BinaryOperator<Double> product) {
-		super(condition, product);
+		super(condition, product, arg.schema());
 		if(!condition.isApplicableToSchema(arg.schema())) {
 			throw new RuntimeException(new SelectionConditionNotApplicableToSchema(condition, arg.schema()));
 		}
@@ -37,7 +37,7 @@ public class Selection extends AbstractSelection implements TabularExpression {
 	}
 	
 	public Selection(TabularExpression arg, SelectionCondition condition) {
-		super(condition, LaticeFactory.instance().getProduct());
+		super(condition, LaticeFactory.instance().getProduct(), arg.schema());
 		if(!condition.isApplicableToSchema(arg.schema())) {
 			throw new RuntimeException(new SelectionConditionNotApplicableToSchema(condition, arg.schema()));
 		}
@@ -16,6 +16,19 @@ public abstract class BiCondition implements SelectionCondition {
 		this.right = right;
 	}
 
+	/**
+	 * Creates condition of the same kind with other operands
+	 * @param left left operand
+	 * @param right right operand
+	 * @return BiCondition instance
+	 */
+	protected abstract BiCondition withOperands(RecordValue left, RecordValue right);
+	
+	@Override
+	public SelectionCondition bind(Schema schema) {
+		return this.withOperands(this.left.bind(schema), this.right.bind(schema));
+	}
+
 	@Override
 	public boolean isApplicableToSchema(Schema schema) {
 		return this.left.isApplicableToSchema(schema)
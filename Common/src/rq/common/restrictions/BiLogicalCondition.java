@@ -17,6 +17,19 @@ abstract class BiLogicalCondition implements SelectionCondition {
 		this.combiner = product;
 	}
 
+	/**
+	 * Creates condition of the same kind with other operands
+	 * @param left left operand
+	 * @param right right operand
+	 * @return BiLogicalCondition instance
+	 */
+	protected abstract BiLogicalCondition withOperands(SelectionCondition left, SelectionCondition right);
+	
+	@Override
+	public SelectionCondition bind(Schema schema) {
+		return this.withOperands(this.left.bind(schema), this.right.bind(schema));
+	}
+
 	@Override
 	public boolean isApplicableToSchema(Schema schema) {
 		return this.left.isApplicableToSchema(schema)
@@ -12,6 +12,11 @@ public class Equals extends BiCondition {
 		super(left, right);
 	}
 
+	@Override
+	protected BiCondition withOperands(RecordValue left, RecordValue right) {
+		return new Equals(left, right);
+	}
+	
 	@Override
 	public double eval(Record record) {
 		Object lo = this.left.value(record);
@@ -15,6 +15,11 @@ public class GreaterThan extends CompareCondition {
 		super(left, right);
 	}
 
+	@Override
+	protected BiCondition withOperands(RecordValue left, RecordValue right) {
+		return new GreaterThan(left, right);
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Override
 	public double eval(Record record) {
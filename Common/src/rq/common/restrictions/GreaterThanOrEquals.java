@@ -15,6 +15,11 @@ public class GreaterThanOrEquals extends CompareCondition {
 		super(left, right);
 	}
 
+	@Override
+	protected BiCondition withOperands(RecordValue left, RecordValue right) {
+		return new GreaterThanOrEquals(left, right);
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Override
 	public double eval(Record record) {
@@ -25,6 +25,11 @@ public class InfimumAnd extends BiLogicalCondition {
 		super(left, right, LaticeFactory.instance().getInfimum());
 	}
 	
+	@Override
+	protected BiLogicalCondition withOperands(SelectionCondition left, SelectionCondition right) {
+		return new InfimumAnd(left, right, this.combiner);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
@@ -12,6 +12,11 @@ public class LesserThanOrEquals extends CompareCondition {
 		super(left, right);
 	}
 
+	@Override
+	protected BiCondition withOperands(RecordValue left, RecordValue right) {
+		return new LesserThanOrEquals(left, right);
+	}
+	
 	@SuppressWarnings("unchecked")
 	@Override
 	public double eval(Record record) {
@@ -21,5 +21,10 @@ public class Not implements SelectionCondition {
 	public boolean isApplicableToSchema(Schema schema) {
 		return this.arg.isApplicableToSchema(schema);
 	}
+	
+	@Override
+	public SelectionCondition bind(Schema schema) {
+		return new Not(this.arg.bind(schema));
+	}
 
 }
@@ -25,6 +25,11 @@ public class Or extends BiLogicalCondition {
 		super(left, right, LaticeFactory.instance().getSupremum());
 	}
 	
+	@Override
+	protected BiLogicalCondition withOperands(SelectionCondition left, SelectionCondition right) {
+		return new Or(left, right, this.combiner);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
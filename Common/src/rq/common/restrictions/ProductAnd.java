@@ -15,6 +15,11 @@ public class ProductAnd extends BiLogicalCondition {
 		super(left, right, product);
 	}
 	
+	@Override
+	protected BiLogicalCondition withOperands(SelectionCondition left, SelectionCondition right) {
+		return new ProductAnd(left, right, this.combiner);
+	}
+	
 	@Override
 	public String toString() {
 		return new StringBuilder()
@@ -18,4 +18,13 @@ public interface SelectionCondition {
 	 * @return true or false
 	 */
 	public boolean isApplicableToSchema(rq.common.table.Schema schema);
+	
+	/**
+	 * Resolves this condition against the schema of the records it will be evaluated on
+	 * @param schema schema of the evaluated records
+	 * @return SelectionCondition equivalent to this
+	 */
+	public default SelectionCondition bind(rq.common.table.Schema schema) {
+		return this;
+	}
 }
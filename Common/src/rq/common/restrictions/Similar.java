@@ -14,6 +14,11 @@ public class Similar extends BiCondition {
 		this.similarity = similarity;
 	}
 	
+	@Override
+	protected BiCondition withOperands(RecordValue left, RecordValue right) {
+		return new Similar(left, right, this.similarity);
+	}
+	
 	@Override
 	public double eval(Record record) {
 		Object lValue = this.left.value(record);
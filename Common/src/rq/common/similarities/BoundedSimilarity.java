@@ -0,0 +1,44 @@
+package rq.common.similarities;
+
+import java.util.function.BiFunction;
+import java.util.function.ToDoubleFunction;
+
+/**
+ * Similarity that is zero for values further apart than a known radius.
+ * Values are placed on a numeric axis, so the similar values of v lie in the window [v - radius, v + radius].
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class BoundedSimilarity implements BiFunction<Object, Object, Double> {
+
+	private final BiFunction<Object, Object, Double> similarity;
+	private final ToDoubleFunction<Object> position;
+
+	/**
+	 * Distance on the axis beyond which the similarity is zero
+	 */
+	public final double supportRadius;
+
+	public BoundedSimilarity(
+			BiFunction<Object, Object, Double> similarity,
+			ToDoubleFunction<Object> position,
+			double supportRadius) {
+		this.similarity = similarity;
+		this.position = position;
+		this.supportRadius = supportRadius;
+	}
+
+	@Override
+	public Double apply(Object t, Object u) {
+		return this.similarity.apply(t, u);
+	}
+
+	/**
+	 * Gets position of the value on the numeric axis
+	 * @param value
+	 * @return position
+	 */
+	public double position(Object value) {
+		return this.position.applyAsDouble(value);
+	}
+}
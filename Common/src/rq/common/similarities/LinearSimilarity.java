@@ -4,6 +4,7 @@ import java.time.Duration;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 import java.time.LocalDateTime;
+import java.time.ZoneOffset;
 
 import rq.common.types.DateTime;
 
@@ -14,25 +15,38 @@ public class LinearSimilarity {
 	}
 
 	public static final BiFunction<Object, Object, Double> integerSimilarityUntil(int similarUntil) {
-		return (Object i1, Object i2) -> Math.max(0.0d, Math.min(1.0d,
-				similarityFunction(similarUntil).apply(Math.abs((double) ((Integer) i1 - (Integer) i2)))));
+		return new BoundedSimilarity(
+				(Object i1, Object i2) -> Math.max(0.0d, Math.min(1.0d,
+					similarityFunction(similarUntil).apply(Math.abs((double) ((Integer) i1 - (Integer) i2))))),
+				(Object i) -> (double)(Integer) i,
+				similarUntil);
 	}
 
 	public static final BiFunction<Object, Object, Double> doubleSimilarityUntil(double similarUntil) {
-		return (Object d1, Object d2) -> Math.max(0.0d,
-				Math.min(1.0d, similarityFunction(similarUntil).apply(Math.abs((Double) d1 - (Double) d2))));
+		return new BoundedSimilarity(
+				(Object d1, Object d2) -> Math.max(0.0d,
+					Math.min(1.0d, similarityFunction(similarUntil).apply(Math.abs((Double) d1 - (Double) d2)))),
+				(Object d) -> (Double) d,
+				similarUntil);
 	}
 
 	public static final BiFunction<Object, Object, Double> dateTimeSimilarityUntil(long l) {
 		final Function<Double, Double> sFun = similarityFunction(l);
-		return (Object t1, Object t2) -> 
-			{
-				LocalDateTime ldt1 = ((DateTime)t1).getInner();
-				LocalDateTime ldt2 = ((DateTime)t2).getInner();
-				Duration d = Duration.between(ldt1, ldt2);
-				double unrestricted = sFun.apply((double) Math.abs(d.toSeconds()));
-				return unrestricted;
-			};				
+		return new BoundedSimilarity(
+				(Object t1, Object t2) -> 
+				{
+					LocalDateTime ldt1 = ((DateTime)t1).getInner();
+					LocalDateTime ldt2 = ((DateTime)t2).getInner();
+					Duration d = Duration.between(ldt1, ldt2);
+					double unrestricted = sFun.apply((double) Math.abs(d.toSeconds()));
+					return unrestricted;
+				},
+				(Object t) -> {
+					LocalDateTime ldt = ((DateTime)t).getInner();
+					return ldt.toEpochSecond(ZoneOffset.UTC) + ldt.getNano() / 1_000_000_000.0d;
+				},
+				// Duration.toSeconds truncates, so the distance can exceed l by less than a second
+				l + 1);
 	}
 
 }
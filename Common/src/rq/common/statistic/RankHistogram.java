@@ -15,6 +15,8 @@ import java.nio.file.Path;
 import java.util.Collection;
 
 import rq.common.interfaces.Table;
+import rq.common.table.ColumnCursor;
+import rq.common.table.FileMappedTable;
 import rq.common.util.Pair;
 
 /**
@@ -69,6 +71,13 @@ public class RankHistogram extends SlicedStatistic {
 	@Override
 	public void gather(Table table) {
 		this.initData();
+		if(table instanceof FileMappedTable) {
+			ColumnCursor cursor = ((FileMappedTable)table).cursor();
+			while(cursor.next()) {
+				this.addRank(cursor.rank());
+			}
+			return;
+		}
 		table.stream().forEach(r -> this.addRank(r.rank));
 	}
 	
@@ -13,8 +13,11 @@ import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import rq.common.exceptions.AttributeNotInSchemaException;
 import rq.common.interfaces.Table;
 import rq.common.table.Attribute;
+import rq.common.table.DoubleCursor;
+import rq.common.table.FileMappedTable;
 
 public class SampledHistogram implements IStatistic, IGeneratorProvider {
 
@@ -42,17 +45,33 @@ public class SampledHistogram implements IStatistic, IGeneratorProvider {
 	@Override
 	public void gather(Table table) {
 		this.data.clear();
-
-		for(rq.common.table.Record record : table) {
-			double value = (Double)record.getNoThrow(this.observed);
-			double sample = this.sample(value);
-			Integer count = this.data.get(sample);
-			if(count == null) {
-				this.data.put(sample, 1);
+		
+		if(table instanceof FileMappedTable) {
+			DoubleCursor cursor;
+			try {
+				cursor = ((FileMappedTable)table).doubleCursor(this.observed);
+			} catch (AttributeNotInSchemaException e) {
+				throw new RuntimeException(e);
 			}
-			else {
-				this.data.put(sample, count + 1);
+			while(cursor.next()) {
+				this.add(cursor.get());
 			}
+			return;
+		}
+
+		for(rq.common.table.Record record : table) {
+			this.add((Double)record.getNoThrow(this.observed));
+		}
+	}
+	
+	private void add(double value) {
+		double sample = this.sample(value);
+		Integer count = this.data.get(sample);
+		if(count == null) {
+			this.data.put(sample, 1);
+		}
+		else {
+			this.data.put(sample, count + 1);
 		}
 	}
 
@@ -39,6 +39,14 @@ public class Statistics {
 		return new LinkedList<IStatistic>(this.statistics);
 	}
 	
+	/**
+	 * Adds statistic that was gathered already, e.g. restored from a file
+	 * @param statistic added statistic
+	 */
+	public void add(IStatistic statistic) {
+		this.statistics.add(statistic);
+	}
+	
 	/**
 	 * Adds attribute histogram statistic for specific attribute
 	 * @param attribute observed attribute
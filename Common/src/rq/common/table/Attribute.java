@@ -1,5 +1,7 @@
 package rq.common.table;
 
+import java.util.Optional;
+
 import rq.common.onOperators.RecordValue;
 
 /**
@@ -86,6 +88,15 @@ public class Attribute implements Comparable<Attribute>, RecordValue{
 		return this.domain;
 	}
 	
+	@Override
+	public RecordValue bind(Schema schema) {
+		Optional<Integer> index = schema.attributeIndex(this);
+		if(index.isEmpty()) {
+			return this;
+		}
+		return new BoundAttribute(this, schema, index.get());
+	}
+	
 	public static Attribute parse(String serialized) throws ClassNotFoundException {
 		String[] pair = serialized.split(":");
 		Class<?> clazz = Class.forName(pair[1]);
@@ -0,0 +1,77 @@
+/**
+ *
+ */
+package rq.common.table;
+
+import java.util.Arrays;
+
+/**
+ * Growable bitmap addressed by long index
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+final class Bitmap {
+
+	private long[] words = new long[1];
+
+	/**
+	 * Gets value of the bit
+	 * @param index index of the bit
+	 * @return true if the bit is set, false otherwise
+	 */
+	boolean get(long index) {
+		int word = (int)(index >>> 6);
+		return word < this.words.length && (this.words[word] & (1L << index)) != 0;
+	}
+
+	/**
+	 * Sets the bit
+	 * @param index index of the bit
+	 */
+	void set(long index) {
+		int word = (int)(index >>> 6);
+		if(word >= this.words.length) {
+			this.words = Arrays.copyOf(this.words, Math.max(word + 1, this.words.length * 2));
+		}
+		this.words[word] |= 1L << index;
+	}
+
+	/**
+	 * Clears the bit
+	 * @param index index of the bit
+	 */
+	void clear(long index) {
+		int word = (int)(index >>> 6);
+		if(word < this.words.length) {
+			this.words[word] &= ~(1L << index);
+		}
+	}
+
+	/**
+	 * Clears all bits
+	 */
+	void clear() {
+		Arrays.fill(this.words, 0L);
+	}
+
+	/**
+	 * Gets index of the first clear bit not lesser than from
+	 * @param from index where the search starts
+	 * @return index of the clear bit
+	 */
+	long nextClear(long from) {
+		int word = (int)(from >>> 6);
+		if(word >= this.words.length) {
+			return from;
+		}
+		long bits = ~this.words[word] & (-1L << from);
+		while(bits == 0) {
+			word++;
+			if(word == this.words.length) {
+				return (long)word << 6;
+			}
+			bits = ~this.words[word];
+		}
+		return ((long)word << 6) + Long.numberOfTrailingZeros(bits);
+	}
+}
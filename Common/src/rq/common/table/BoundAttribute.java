@@ -0,0 +1,53 @@
+/**
+ *
+ */
+package rq.common.table;
+
+import rq.common.onOperators.RecordValue;
+
+/**
+ * Attribute resolved to its index in a schema.
+ * Records of the bound schema are read by index, other records fall back to the attribute lookup.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+final class BoundAttribute implements RecordValue {
+
+	private final Attribute attribute;
+	private final Schema schema;
+	private final int index;
+
+	BoundAttribute(Attribute attribute, Schema schema, int index) {
+		this.attribute = attribute;
+		this.schema = schema;
+		this.index = index;
+	}
+
+	@Override
+	public Object value(Record record) {
+		if(record.schema.equals(this.schema)) {
+			return record.value(this.index);
+		}
+		return this.attribute.value(record);
+	}
+
+	@Override
+	public boolean isApplicableToSchema(Schema schema) {
+		return this.attribute.isApplicableToSchema(schema);
+	}
+
+	@Override
+	public Class<?> domain() {
+		return this.attribute.domain;
+	}
+
+	@Override
+	public RecordValue bind(Schema schema) {
+		return this.attribute.bind(schema);
+	}
+
+	@Override
+	public String toString() {
+		return this.attribute.toString();
+	}
+}
@@ -0,0 +1,106 @@
+/**
+ *
+ */
+package rq.common.table;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Cursor over records of a file mapped table reading single field at a fixed offset directly from the mapped buffer.
+ * Records are materialized only on demand, so scans testing one column do not create Record objects.
+ * The cursor is invalidated by modification of the table.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class ColumnCursor {
+
+	private final FileMappedTable table;
+	private final int offset;
+	private final int rankOffset;
+	private long recordId = -1;
+	private ByteBuffer buffer = null;
+	private int position = 0;
+	/** Ids of the first record of the current segment and of the record following it */
+	private long segmentStart = 0;
+	private long segmentEnd = 0;
+
+	ColumnCursor(FileMappedTable table, int offset) {
+		this.table = table;
+		this.offset = offset;
+		this.rankOffset = table.recordByteSize() - Double.BYTES;
+	}
+
+	/**
+	 * Moves the cursor to the next record
+	 * @return true if the cursor points to a record, false if there are no more records
+	 */
+	public boolean next() {
+		if(this.recordId == -2) {
+			return false;
+		}
+		long id = this.table.nextRecordId(this.recordId);
+		if(id < 0) {
+			this.recordId = -2;
+			this.buffer = null;
+			this.segmentEnd = 0;
+			return false;
+		}
+		this.recordId = id;
+		if(id < this.segmentStart || id >= this.segmentEnd) {
+			// Segment is looked up only when the cursor crosses its boundary
+			int segment = this.table.segment(id);
+			this.segmentStart = this.table.segmentStart(segment);
+			this.segmentEnd = this.segmentStart + this.table.segmentCapacity(segment);
+			this.buffer = this.table.segmentBuffer(segment);
+		}
+		this.position = (int)(id - this.segmentStart) * this.table.recordByteSize();
+		return true;
+	}
+
+	/**
+	 * Moves the cursor before the first record
+	 */
+	public void restart() {
+		this.recordId = -1;
+		this.buffer = null;
+		this.segmentEnd = 0;
+	}
+
+	/**
+	 * Gets id of the current record
+	 * @return record id
+	 */
+	public long recordId() {
+		return this.recordId;
+	}
+
+	/**
+	 * Gets rank of the current record
+	 * @return rank
+	 */
+	public double rank() {
+		return this.buffer.getDouble(this.position + this.rankOffset);
+	}
+
+	/**
+	 * Materializes the current record
+	 * @return Record instance
+	 */
+	public Record record() {
+		return this.table.readRecord(this.recordId);
+	}
+
+	/**
+	 * Gets buffer containing the current record
+	 */
+	protected ByteBuffer buffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * Gets position of the read field in the buffer
+	 */
+	protected int fieldPosition() {
+		return this.position + this.offset;
+	}
+}
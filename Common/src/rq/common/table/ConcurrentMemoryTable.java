@@ -0,0 +1,292 @@
+package rq.common.table;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import rq.common.exceptions.AttributeNotInSchemaException;
+import rq.common.exceptions.TableRecordSchemaMismatch;
+import rq.common.exceptions.TypeSchemaMismatchException;
+import rq.common.interfaces.LazyIterable;
+import rq.common.interfaces.LazyIterator;
+import rq.common.interfaces.Table;
+import rq.common.statistic.Statistics;
+
+/**
+ * Table of records in memory that can be modified from several threads.
+ * Records are hashed by their values disregarding rank. Each modification replaces the bucket of the record values atomically,
+ * so upsertIfHigherRank keeps the record with the highest rank regardless of the order of concurrent upserts.
+ * Iteration is weakly consistent, i.e. it does not fail on concurrent modification.
+ *
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class ConcurrentMemoryTable implements Table, LazyIterable {
+	public final Schema schema;
+	private final ConcurrentHashMap<Record.NoRankKey, Record[]> records = new ConcurrentHashMap<Record.NoRankKey, Record[]>();
+	private final AtomicInteger size = new AtomicInteger();
+
+	public final Statistics statistics = new Statistics(this);
+
+	public ConcurrentMemoryTable(Schema schema) {
+		this.schema = schema;
+	}
+
+	/**
+	 * Inserts record into the table
+	 *
+	 * @param record inserted record
+	 * @return true if successfully inserted, false otherwise
+	 */
+	@Override
+	public boolean insert(Record record) throws TableRecordSchemaMismatch {
+		if (!this.schema.equals(record.schema)) {
+			throw new TableRecordSchemaMismatch(this.schema, record.schema);
+		}
+		boolean[] changed = {false};
+		this.records.compute(record.noRankKey(), (k, bucket) -> {
+			if(bucket == null) {
+				changed[0] = true;
+				return new Record[] {record};
+			}
+			for(Record r : bucket) {
+				if(r.equals(record)) {
+					return bucket;
+				}
+			}
+			changed[0] = true;
+			Record[] b = Arrays.copyOf(bucket, bucket.length + 1);
+			b[bucket.length] = record;
+			return b;
+		});
+		if(changed[0]) {
+			this.size.incrementAndGet();
+		}
+		return changed[0];
+	}
+
+	/**
+	 * Inserts record into the database
+	 * @param values named values
+	 * @param rank rank of the record
+	 * @return true if inserted, false otherwise
+	 * @throws AttributeNotInSchemaException
+	 * @throws TypeSchemaMismatchException
+	 * @throws TableRecordSchemaMismatch
+	 */
+	@Override
+	public boolean insert(Collection<Record.AttributeValuePair> values, double rank)
+			throws TypeSchemaMismatchException, AttributeNotInSchemaException, TableRecordSchemaMismatch {
+		Record r = Record.factory(this.schema, values, rank);
+		return this.insert(r);
+	}
+
+	/**
+	 * Deletes record from the table
+	 *
+	 * @param record
+	 * @return true if successfully deleted, false otherwise
+	 */
+	@Override
+	public boolean delete(Record record) throws TableRecordSchemaMismatch {
+		if (!this.schema.equals(record.schema)) {
+			throw new TableRecordSchemaMismatch(this.schema, record.schema);
+		}
+		boolean[] changed = {false};
+		this.records.computeIfPresent(record.noRankKey(), (k, bucket) -> {
+			for(int i = 0; i < bucket.length; i++) {
+				if(bucket[i].equals(record)) {
+					changed[0] = true;
+					if(bucket.length == 1) {
+						return null;
+					}
+					Record[] b = new Record[bucket.length - 1];
+					System.arraycopy(bucket, 0, b, 0, i);
+					System.arraycopy(bucket, i + 1, b, i, bucket.length - i - 1);
+					return b;
+				}
+			}
+			return bucket;
+		});
+		if(changed[0]) {
+			this.size.decrementAndGet();
+		}
+		return changed[0];
+	}
+
+	/**
+	 * Atomically inserts record unless the table already contains a record with the same values and higher or equal rank.
+	 * Records with the same values and lower rank are replaced.
+	 * @param record inserted record
+	 * @return true if the table changed, false otherwise
+	 */
+	@Override
+	public boolean upsertIfHigherRank(Record record) throws TableRecordSchemaMismatch {
+		if (!this.schema.equals(record.schema)) {
+			throw new TableRecordSchemaMismatch(this.schema, record.schema);
+		}
+		int[] delta = {0};
+		boolean[] changed = {false};
+		this.records.compute(record.noRankKey(), (k, bucket) -> {
+			if(bucket == null) {
+				changed[0] = true;
+				delta[0] = 1;
+				return new Record[] {record};
+			}
+			for(Record r : bucket) {
+				if(r.rank >= record.rank) {
+					return bucket;
+				}
+			}
+			changed[0] = true;
+			delta[0] = 1 - bucket.length;
+			return new Record[] {record};
+		});
+		if(delta[0] != 0) {
+			this.size.addAndGet(delta[0]);
+		}
+		return changed[0];
+	}
+
+	@Override
+	public Iterator<Record> iterator() {
+		return this.stream().iterator();
+	}
+
+	/**
+	 * Gets stream of this table records
+	 *
+	 * @return Stream object
+	 */
+	@Override
+	public Stream<Record> stream() {
+		return this.records.values().stream().flatMap(b -> Arrays.stream(b));
+	}
+
+	@Override
+	public ConcurrentMemoryTable eval() {
+		return this;
+	}
+
+	@Override
+	public Schema schema() {
+		return this.schema;
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("{")
+				.append(this.stream().map(r -> r.toString())
+						.reduce((s1, s2) -> new StringBuilder().append(s1).append(" ").append(s2).toString()))
+				.append("}")
+				.toString();
+	}
+
+	/**
+	 * Returns true if this table contains record r. Returns false otherwise.
+	 * @param r
+	 * @return true or false
+	 */
+	@Override
+	public boolean contains(Record r) {
+		Record[] bucket = this.records.get(r.noRankKey());
+		if(bucket == null) {
+			return false;
+		}
+		for(Record record : bucket) {
+			if(record.equals(r)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Returns true if this table contains given record, not taking rank into account. Returns false otherwise.
+	 * @param r
+	 * @return true or false
+	 */
+	@Override
+	public boolean containsNoRank(Record r) {
+		return this.records.containsKey(r.noRankKey());
+	}
+
+	/**
+	 * Tries to find specific record without taking rank into account.
+	 * @param r
+	 * @return Optional of record if it is present, Empty optional otherwise.
+	 */
+	@Override
+	public Optional<Record> findNoRank(Record r) {
+		Record[] bucket = this.records.get(r.noRankKey());
+		if(bucket == null) {
+			return Optional.empty();
+		}
+		return Optional.of(bucket[0]);
+	}
+
+	/**
+	 * Returns true if this table is empty. Returns false otherwise.
+	 * @return true or false
+	 */
+	@Override
+	public boolean isEmpty() {
+		return this.size.get() == 0;
+	}
+
+	@Override
+	public LazyIterator lazyIterator() {
+		final ConcurrentMemoryTable me = this;
+		final Iterator<Record> it = this.iterator();
+		return new LazyIterator() {
+
+			private ConcurrentMemoryTable iterated = me;
+			private Iterator<Record> iterator = it;
+			private Record current = null;
+
+			@Override
+			public Record next() {
+				if(this.iterator.hasNext()) {
+					this.current = this.iterator.next();
+					return current;
+				}
+				this.current = null;
+				return null;
+			}
+
+			@Override
+			public Record current() {
+				return current;
+			}
+
+			@Override
+			public void restart() {
+				this.iterator = this.iterated.iterator();
+			}
+
+		};
+	}
+
+	/**
+	 * Gets number of records in the table. The number is exact when no modification is in progress.
+	 */
+	@Override
+	public int size() {
+		return this.size.get();
+	}
+
+	@Override
+	public Statistics getStatistics() {
+		return this.statistics;
+	}
+
+	@Override
+	public boolean hasStatistics() {
+		return true;
+	}
+}
@@ -0,0 +1,45 @@
+/**
+ *
+ */
+package rq.common.table;
+
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+
+/**
+ * Cursor reading values of a DateTime attribute of a file mapped table.
+ * Fields are decoded in the layout of DateTime.toBytes.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class DateTimeCursor extends ColumnCursor {
+
+	DateTimeCursor(FileMappedTable table, int offset) {
+		super(table, offset);
+	}
+
+	/**
+	 * Gets value of the current record
+	 * @return value
+	 */
+	public LocalDateTime get() {
+		ByteBuffer buffer = this.buffer();
+		int p = this.fieldPosition();
+		return LocalDateTime.of(
+				buffer.getInt(p),
+				buffer.getInt(p + Integer.BYTES),
+				buffer.getInt(p + 2 * Integer.BYTES),
+				buffer.getInt(p + 3 * Integer.BYTES),
+				buffer.getInt(p + 4 * Integer.BYTES),
+				buffer.getInt(p + 5 * Integer.BYTES),
+				buffer.getInt(p + 6 * Integer.BYTES));
+	}
+
+	/**
+	 * Gets year of the current record without creating the date time
+	 * @return year
+	 */
+	public int year() {
+		return this.buffer().getInt(this.fieldPosition());
+	}
+}
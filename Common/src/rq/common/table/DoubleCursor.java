@@ -0,0 +1,24 @@
+/**
+ *
+ */
+package rq.common.table;
+
+/**
+ * Cursor reading values of a Double attribute of a file mapped table
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class DoubleCursor extends ColumnCursor {
+
+	DoubleCursor(FileMappedTable table, int offset) {
+		super(table, offset);
+	}
+
+	/**
+	 * Gets value of the current record
+	 * @return value
+	 */
+	public double get() {
+		return this.buffer().getDouble(this.fieldPosition());
+	}
+}
@@ -3,35 +3,58 @@
  */
 package rq.common.table;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
 import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
-import java.util.Queue;
+import java.util.stream.StreamSupport;
+import java.util.Spliterator;
+import java.util.Spliterators;
 import java.util.function.BiFunction;
-import java.util.LinkedList;
 
 import java.io.RandomAccessFile;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.ByteBuffer;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 
 import rq.common.exceptions.AttributeNotInSchemaException;
 import rq.common.exceptions.DomainNotByteSerializeableException;
+import rq.common.exceptions.DuplicateAttributeNameException;
 import rq.common.exceptions.TableRecordSchemaMismatch;
 import rq.common.exceptions.TypeSchemaMismatchException;
 import rq.common.interfaces.ByteArraySerializable;
 import rq.common.interfaces.Table;
+import rq.common.statistic.IStatistic;
 import rq.common.statistic.Statistics;
+import rq.common.types.DateTime;
 
 /**
- * Table mapped to a file
+ * Table mapped to a file.
+ * The file is mapped in segments, new segments are mapped on demand as the table grows.
+ * First segment holds the expected number of records and each next one is twice as large up to 64 MB,
+ * so the file is not limited by the capacity estimate nor by the 2 GB addressable by a single buffer,
+ * and a large table needs few mappings even if the estimate was small.
+ * Records are addressed by long record id, which is their order in the file.
+ * Deleted records are marked in a tombstone bitmap and their slots are reused by later inserts.
+ * Table created with a path is persistent. Its header stores schema, record count, deleted records and serializable statistics,
+ * so the file can be reopened and mapped without reading the data again.
+ * Records can be read by several threads at once, for example by concurrent iterators or cursors, as long as nobody modifies the table.
  * @author Mgr. Radomir Skrabal
  *
  */
@@ -49,35 +72,85 @@ public class FileMappedTable implements Closeable, Table {
 	
 	private static final String FILE_ACCESS_MODE = "rw";
 	private static final int DEFAULT_RECORD_CAPACITY = 100;
+	/** Maximal size of a mapped segment in bytes */
+	private static final long MAX_SEGMENT_BYTES = 1L << 26;
+	/** Identifies the table files */
+	private static final int MAGIC = 0x52514654;
+	private static final int VERSION = 1;
+	/** Size of the fixed header preceding the records */
+	private static final int HEADER_BYTES = 64;
 	
 	private final Schema schema;
 	
+	/** Temporary file deleted on close, null if the table is persistent */
 	private final File tmpFile;
 	private final RandomAccessFile file;
 	private final FileChannel channel;
-	private final MappedByteBuffer mappedBuffer;
+	private final List<MappedByteBuffer> segments = new ArrayList<MappedByteBuffer>();
+	/** Number of records in the first segment */
+	private final int segmentCapacity;
+	/** Number of records in a segment of MAX_SEGMENT_BYTES */
+	private final int maxSegmentCapacity;
+	/** Number of segments smaller than maxSegmentCapacity */
+	private final int growingSegments;
+	/** Number of records in the segments smaller than maxSegmentCapacity */
+	private final long growingCapacity;
 	
-	private Queue<Integer> vacantPositions = new LinkedList<Integer>();
+	/** Deleted records */
+	private final Bitmap tombstones = new Bitmap();
+	/** Stack of ids of the deleted records */
+	private long[] vacantPositions = new long[16];
+	private int vacantCount = 0;
+	/** Id of the record following the last written one */
+	private long recordCount = 0;
+	/** Ids of records by hash of their values without rank, built on first lookup */
+	private java.util.Map<Integer, long[]> index = null;
+	/** Ids of records by descending rank, built on first rank ordered access and dropped on change */
+	private long[] rankOrder = null;
 	private int schemaByteSize;
+	/** Attributes in the order their values are stored in the file */
+	private final Attribute[] storedAttributes;
+	/** Schema indices of the stored attributes */
+	private final int[] storedIndices;
+	/** Offsets of the stored attributes within the record */
+	private final int[] storedOffsets;
+	private final RecordBuilder builder;
 	
 	private FileMappedTable(Schema schema,
 			File tmpFile,
 			RandomAccessFile file,
 			FileChannel channel,
-			MappedByteBuffer mappedBuffer,
+			int segmentCapacity,
 			int schemaByteSize) {
 		this.schema = schema;
 		this.tmpFile = tmpFile;
 		this.file = file;
 		this.channel = channel;
-		this.mappedBuffer = mappedBuffer;
+		this.segmentCapacity = segmentCapacity;
 		this.schemaByteSize = schemaByteSize;
+		this.maxSegmentCapacity = (int)Math.max(1, MAX_SEGMENT_BYTES / schemaByteSize);
+		int growing = 0;
+		while((long)segmentCapacity << growing < this.maxSegmentCapacity) {
+			growing++;
+		}
+		this.growingSegments = growing;
+		this.growingCapacity = segmentCapacity * ((1L << growing) - 1);
+		this.storedAttributes = schema.stream().toArray(Attribute[]::new);
+		this.storedIndices = new int[this.storedAttributes.length];
+		this.storedOffsets = new int[this.storedAttributes.length];
+		int offset = 0;
+		for(int i = 0; i < this.storedAttributes.length; i++) {
+			this.storedIndices[i] = schema.attributeIndex(this.storedAttributes[i]).get();
+			this.storedOffsets[i] = offset;
+			offset += FileMappedTable.byteSize(this.storedAttributes[i]);
+		}
+		this.builder = RecordBuilder.factory(schema);
 	}
 	
 	/**
 	 * Factory method
 	 * @param schema schema of the table
-	 * @return a table with default capacity
+	 * @return a table with default initial capacity
 	 * @throws IOException
 	 */
 	public static FileMappedTable factory(Schema schema) throws IOException {
@@ -87,7 +160,7 @@ public class FileMappedTable implements Closeable, Table {
 	/**
 	 * Fatory method
 	 * @param schema of the table
-	 * @param recordCapacity number of the records this table can obtain
+	 * @param recordCapacity expected number of the records, used as size of the first segment
 	 * @return a table instance 
 	 * @throws IOException
 	 */
@@ -98,21 +171,282 @@ public class FileMappedTable implements Closeable, Table {
 		}		
 		
 		File tmpFile = File.createTempFile("rq.table.", ".bin");
-		RandomAccessFile file = new RandomAccessFile(tmpFile, FILE_ACCESS_MODE);
+		// Removes the file of a table that was never closed
+		tmpFile.deleteOnExit();
+		return FileMappedTable.create(schema, tmpFile, tmpFile, recordCapacity);
+	}
+	
+	/**
+	 * Creates persistent table. Existing file is overwritten.
+	 * @param schema schema of the table
+	 * @param path path of the table file
+	 * @return a table instance
+	 * @throws IOException
+	 */
+	public static FileMappedTable create(Schema schema, Path path) throws IOException {
+		List<Attribute> failAttrs = FileMappedTable.validateSchema(schema);
+		if(!failAttrs.isEmpty()) {
+			throw new DomainNotByteSerializeableException(failAttrs.stream().findAny().get().domain);
+		}
+		File f = path.toFile();
+		if(f.exists() && !f.delete()) {
+			throw new IOException("Cannot overwrite " + path);
+		}
+		FileMappedTable table = FileMappedTable.create(schema, f, null, Integer.MAX_VALUE);
+		table.writeHeader(0, 0);
+		return table;
+	}
+	
+	private static FileMappedTable create(Schema schema, File f, File tmpFile, int recordCapacity) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(f, FILE_ACCESS_MODE);
 		int schemaByteSize = FileMappedTable.schemaByteSize(schema);
-		int fileLen = schemaByteSize * recordCapacity;
-		file.setLength(fileLen);
+		int segmentCapacity = (int)Math.max(1, Math.min(recordCapacity, MAX_SEGMENT_BYTES / schemaByteSize));
 		FileChannel channel = file.getChannel();
-		long fileSize = channel.size();
-		MappedByteBuffer mappedBuffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, fileSize);
 		
-		return new FileMappedTable(
+		FileMappedTable table = new FileMappedTable(
 				schema,
 				tmpFile,
 				file,
 				channel,
-				mappedBuffer,
+				segmentCapacity,
 				schemaByteSize);
+		table.mapSegment();
+		return table;
+	}
+	
+	/**
+	 * Opens persistent table created by create method
+	 * @param path path of the table file
+	 * @return a table instance
+	 * @throws IOException if the file is not a table file or the table was not closed
+	 * @throws ClassNotFoundException if domain of an attribute cannot be found
+	 */
+	public static FileMappedTable open(Path path) throws IOException, ClassNotFoundException {
+		RandomAccessFile file = new RandomAccessFile(path.toFile(), FILE_ACCESS_MODE);
+		FileChannel channel = file.getChannel();
+		try {
+			ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+			channel.read(header, 0);
+			header.flip();
+			if(header.remaining() < HEADER_BYTES || header.getInt() != MAGIC || header.getInt() != VERSION) {
+				throw new IOException(path + " is not a table file");
+			}
+			int segmentCapacity = header.getInt();
+			int schemaByteSize = header.getInt();
+			long recordCount = header.getLong();
+			long metadataOffset = header.getLong();
+			int metadataLength = header.getInt();
+			if(metadataLength == 0) {
+				throw new IOException(path + " was not closed properly");
+			}
+			
+			ByteBuffer metadata = ByteBuffer.allocate(metadataLength);
+			channel.read(metadata, metadataOffset);
+			DataInputStream in = new DataInputStream(new ByteArrayInputStream(metadata.array()));
+			
+			List<Attribute> attributes = new ArrayList<Attribute>();
+			int attributeCount = in.readInt();
+			for(int i = 0; i < attributeCount; i++) {
+				attributes.add(Attribute.parse(in.readUTF()));
+			}
+			Schema schema;
+			try {
+				schema = Schema.factory(attributes);
+			} catch (DuplicateAttributeNameException e) {
+				throw new IOException(path + " has corrupted schema", e);
+			}
+			if(FileMappedTable.schemaByteSize(schema) != schemaByteSize) {
+				throw new IOException(path + " does not match its schema");
+			}
+			
+			FileMappedTable table = new FileMappedTable(schema, null, file, channel, segmentCapacity, schemaByteSize);
+			table.recordCount = recordCount;
+			do {
+				table.mapSegment();
+			} while(table.segmentStart(table.segments.size()) < recordCount);
+			
+			int vacantCount = in.readInt();
+			table.vacantPositions = new long[Math.max(16, vacantCount)];
+			for(int i = 0; i < vacantCount; i++) {
+				long id = in.readLong();
+				table.vacantPositions[i] = id;
+				table.tombstones.set(id);
+			}
+			table.vacantCount = vacantCount;
+			
+			int statisticCount = in.readInt();
+			for(int i = 0; i < statisticCount; i++) {
+				Class<?> clazz = Class.forName(in.readUTF());
+				byte[] serialized = new byte[in.readInt()];
+				in.readFully(serialized);
+				try {
+					table.statistics.add((IStatistic)clazz.getMethod("deserialize", String.class)
+							.invoke(null, new String(serialized, StandardCharsets.UTF_8)));
+				} catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+					throw new IOException("Cannot read statistic " + clazz.getName(), e);
+				}
+			}
+			
+			// Metadata is rewritten on close, until then the file is marked as open
+			table.writeHeader(0, 0);
+			return table;
+		}
+		catch(IOException | ClassNotFoundException | RuntimeException e) {
+			channel.close();
+			file.close();
+			throw e;
+		}
+	}
+	
+	/**
+	 * Writes the fixed header
+	 * @param metadataOffset offset of the metadata in the file
+	 * @param metadataLength length of the metadata, 0 marks table that is open
+	 * @throws IOException
+	 */
+	private void writeHeader(long metadataOffset, int metadataLength) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		header.putInt(MAGIC)
+			.putInt(VERSION)
+			.putInt(this.segmentCapacity)
+			.putInt(this.schemaByteSize)
+			.putLong(this.recordCount)
+			.putLong(metadataOffset)
+			.putInt(metadataLength);
+		header.position(0);
+		this.channel.write(header, 0);
+	}
+	
+	/**
+	 * Writes the records and the metadata of persistent table to the file
+	 * @throws IOException
+	 */
+	public void flush() throws IOException {
+		for(MappedByteBuffer segment : this.segments) {
+			segment.force();
+		}
+		if(this.tmpFile != null) {
+			return;
+		}
+		
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		out.writeInt(this.storedAttributes.length);
+		for(Attribute a : this.storedAttributes) {
+			out.writeUTF(a.serialize());
+		}
+		out.writeInt(this.vacantCount);
+		for(int i = 0; i < this.vacantCount; i++) {
+			out.writeLong(this.vacantPositions[i]);
+		}
+		List<IStatistic> serializable = new ArrayList<IStatistic>();
+		for(IStatistic s : this.statistics.getAll()) {
+			try {
+				s.getClass().getMethod("deserialize", String.class);
+				s.getClass().getMethod("serialize");
+				serializable.add(s);
+			} catch (NoSuchMethodException e) {
+				// Statistic is not persisted, it can be gathered again
+			}
+		}
+		out.writeInt(serializable.size());
+		for(IStatistic s : serializable) {
+			byte[] serialized;
+			try {
+				serialized = ((String)s.getClass().getMethod("serialize").invoke(s)).getBytes(StandardCharsets.UTF_8);
+			} catch (IllegalAccessException | InvocationTargetException | NoSuchMethodException e) {
+				throw new IOException("Cannot write statistic " + s.getClass().getName(), e);
+			}
+			out.writeUTF(s.getClass().getName());
+			out.writeInt(serialized.length);
+			out.write(serialized);
+		}
+		out.flush();
+		
+		long metadataOffset = HEADER_BYTES + this.segmentStart(this.segments.size()) * this.schemaByteSize;
+		this.channel.write(ByteBuffer.wrap(bytes.toByteArray()), metadataOffset);
+		this.writeHeader(metadataOffset, bytes.size());
+		this.channel.force(true);
+	}
+	
+	/**
+	 * Gets number of records in the segment
+	 * @param segment index of the segment
+	 */
+	int segmentCapacity(int segment) {
+		return segment < this.growingSegments ? this.segmentCapacity << segment : this.maxSegmentCapacity;
+	}
+	
+	/**
+	 * Gets id of the first record of the segment
+	 * @param segment index of the segment
+	 */
+	long segmentStart(int segment) {
+		if(segment < this.growingSegments) {
+			return this.segmentCapacity * ((1L << segment) - 1);
+		}
+		return this.growingCapacity + (long)(segment - this.growingSegments) * this.maxSegmentCapacity;
+	}
+	
+	/**
+	 * Gets index of the segment containing the record
+	 * @param recordId id of the record
+	 */
+	int segment(long recordId) {
+		if(recordId < this.growingCapacity) {
+			// Segment i starts at segmentCapacity * (2^i - 1)
+			return 63 - Long.numberOfLeadingZeros(recordId / this.segmentCapacity + 1);
+		}
+		return this.growingSegments + (int)((recordId - this.growingCapacity) / this.maxSegmentCapacity);
+	}
+	
+	/**
+	 * Gets number of mapped segments of the file
+	 * @return number of segments
+	 */
+	public int segmentCount() {
+		return this.segments.size();
+	}
+	
+	/**
+	 * Extends the file by one segment and maps it
+	 * @throws IOException
+	 */
+	private void mapSegment() throws IOException {
+		int segment = this.segments.size();
+		long segmentBytes = (long)this.segmentCapacity(segment) * this.schemaByteSize;
+		long offset = HEADER_BYTES + this.segmentStart(segment) * this.schemaByteSize;
+		if(this.file.length() < offset + segmentBytes) {
+			this.file.setLength(offset + segmentBytes);
+		}
+		this.segments.add(this.channel.map(FileChannel.MapMode.READ_WRITE, offset, segmentBytes));
+	}
+	
+	/**
+	 * Gets buffer of the segment, mapping new segments if the segment lies beyond the file.
+	 * The buffer is shared and it is accessed only at absolute positions, so concurrent readers do not interfere.
+	 * @param segment index of the segment
+	 * @return buffer of the segment
+	 */
+	ByteBuffer segmentBuffer(int segment) {
+		while(segment >= this.segments.size()) {
+			try {
+				this.mapSegment();
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			}
+		}
+		return this.segments.get(segment);
+	}
+	
+	/**
+	 * Gets position of the record in the buffer of its segment
+	 * @param recordId id of the record
+	 * @param segment index of the segment containing the record
+	 * @return position in bytes
+	 */
+	int position(long recordId, int segment) {
+		return (int)(recordId - this.segmentStart(segment)) * this.schemaByteSize;
 	}
 
 	@Override
@@ -143,53 +477,62 @@ public class FileMappedTable implements Closeable, Table {
 	
 	protected static int schemaByteSize(Schema schema) {
 		int recordSize = schema.stream()
-				.map(a -> {
-						if(a.domain.equals(Double.class)) return Double.BYTES;
-						else if(a.domain.equals(Float.class)) return Float.BYTES;
-						else if(a.domain.equals(Integer.class)) return Integer.BYTES;
-						else if(a.domain.equals(Long.class)) return Long.BYTES;
-						else if(a.domain.equals(Short.class)) return Short.BYTES;
-						else if(ByteArraySerializable.class.isAssignableFrom(a.domain))
-							try {
-								return ((ByteArraySerializable)a.domain.getConstructor().newInstance()).byteArraySize();
-							} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
-									| InvocationTargetException | NoSuchMethodException | SecurityException e) {
-								throw new RuntimeException(e);
-							}
-						throw new RuntimeException("Cannot determine length.");
-					})
+				.map(a -> FileMappedTable.byteSize(a))
 				.reduce(0, (a, b) -> a + b) + Double.BYTES;
 		return recordSize;
 	}
 	
+	/**
+	 * Gets number of bytes the attribute value takes in the file
+	 * @param a attribute
+	 * @return number of bytes
+	 */
+	private static int byteSize(Attribute a) {
+		if(a.domain.equals(Double.class)) return Double.BYTES;
+		else if(a.domain.equals(Float.class)) return Float.BYTES;
+		else if(a.domain.equals(Integer.class)) return Integer.BYTES;
+		else if(a.domain.equals(Long.class)) return Long.BYTES;
+		else if(a.domain.equals(Short.class)) return Short.BYTES;
+		else if(ByteArraySerializable.class.isAssignableFrom(a.domain))
+			try {
+				return ((ByteArraySerializable)a.domain.getConstructor().newInstance()).byteArraySize();
+			} catch (InstantiationException | IllegalAccessException | IllegalArgumentException
+					| InvocationTargetException | NoSuchMethodException | SecurityException e) {
+				throw new RuntimeException(e);
+			}
+		throw new RuntimeException("Cannot determine length.");
+	}
+	
 	/**
 	 * Writes value into the file
+	 * @param buffer buffer of the segment
+	 * @param position position of the value in the buffer
 	 * @param object value
 	 */
-	private void writeValue(Object object) {
+	private void writeValue(ByteBuffer buffer, int position, Object object) {
 		if(object instanceof Double) {
-			this.mappedBuffer.putDouble((double)object);
+			buffer.putDouble(position, (double)object);
 			return;
 		}
 		if(object instanceof Float) {
-			this.mappedBuffer.putFloat((float)object);
+			buffer.putFloat(position, (float)object);
 			return;
 		}
 		if(object instanceof Integer) {
-			this.mappedBuffer.putInt((int)object);
+			buffer.putInt(position, (int)object);
 			return;
 		}
 		if(object instanceof Long) {
-			this.mappedBuffer.putLong((long)object);
+			buffer.putLong(position, (long)object);
 			return;
 		}
 		if(object instanceof Short) {
-			this.mappedBuffer.putShort((short)object);
+			buffer.putShort(position, (short)object);
 			return;
 		}
 		if(ByteArraySerializable.class.isAssignableFrom(object.getClass())) {
 			ByteArraySerializable bas = (ByteArraySerializable)object;
-			this.mappedBuffer.put(bas.toBytes());
+			buffer.put(position, bas.toBytes());
 			return;
 		}
 		throw new DomainNotByteSerializeableException(object.getClass());
@@ -197,12 +540,17 @@ public class FileMappedTable implements Closeable, Table {
 	
 	/**
 	 * Writes recoed into the file
+	 * @param recordId id of the written record
 	 * @param record
 	 */
-	private void writeRecord(Record record) {
-		this.schema.stream()
-			.forEach(a -> this.writeValue(record.getNoThrow(a)));
-		this.mappedBuffer.putDouble(record.rank);
+	private void writeRecord(long recordId, Record record) {
+		int segment = this.segment(recordId);
+		ByteBuffer buffer = this.segmentBuffer(segment);
+		int position = this.position(recordId, segment);
+		for(int i = 0; i < this.storedAttributes.length; i++) {
+			this.writeValue(buffer, position + this.storedOffsets[i], record.getNoThrow(this.storedAttributes[i]));
+		}
+		buffer.putDouble(position + this.schemaByteSize - Double.BYTES, record.rank);
 	}
 	
 	/**
@@ -212,17 +560,81 @@ public class FileMappedTable implements Closeable, Table {
 	 */
 	@Override
 	public boolean insert(Record record) {
-		int savedPos = this.mappedBuffer.position();
-		if(!this.vacantPositions.isEmpty()) {
-			this.mappedBuffer.position(this.vacantPositions.poll());
+		long id;
+		if(this.vacantCount > 0) {
+			id = this.vacantPositions[--this.vacantCount];
+			this.tombstones.clear(id);
 		}
-		this.writeRecord(record);
-		if(savedPos > this.mappedBuffer.position()) {
-			this.mappedBuffer.position(savedPos);
+		else {
+			id = this.recordCount++;
+		}
+		this.writeRecord(id, record);
+		if(this.index != null) {
+			this.indexAdd(record.hashCodeNoRank(), id);
 		}
+		this.rankOrder = null;
 		return true;
 	}
 	
+	/**
+	 * Gets index of the records, building it if it does not exist yet.
+	 * Synchronized, so concurrent lookups in an unmodified table do not build it twice.
+	 */
+	private synchronized java.util.Map<Integer, long[]> index() {
+		if(this.index == null) {
+			this.index = new HashMap<Integer, long[]>();
+			for(long id = this.tombstones.nextClear(0); id < this.recordCount; id = this.tombstones.nextClear(id + 1)) {
+				this.indexAdd(this.readRecord(id).hashCodeNoRank(), id);
+			}
+		}
+		return this.index;
+	}
+	
+	private void indexAdd(int hash, long id) {
+		this.index.merge(hash, new long[] {id}, (ids, add) -> {
+			long[] n = Arrays.copyOf(ids, ids.length + 1);
+			n[ids.length] = id;
+			return n;
+		});
+	}
+	
+	private void indexRemove(int hash, long id) {
+		this.index.computeIfPresent(hash, (h, ids) -> {
+			for(int i = 0; i < ids.length; i++) {
+				if(ids[i] == id) {
+					if(ids.length == 1) {
+						return null;
+					}
+					long[] n = new long[ids.length - 1];
+					System.arraycopy(ids, 0, n, 0, i);
+					System.arraycopy(ids, i + 1, n, i, ids.length - i - 1);
+					return n;
+				}
+			}
+			return ids;
+		});
+	}
+	
+	/**
+	 * Finds id of the record using the index
+	 * @param record searched record
+	 * @param withRank if true, rank has to be equal as well
+	 * @return id of the record or -1 if the table does not contain it
+	 */
+	private long find(Record record, boolean withRank) {
+		long[] ids = this.index().get(record.hashCodeNoRank());
+		if(ids == null) {
+			return -1;
+		}
+		for(long id : ids) {
+			Record r = this.readRecord(id);
+			if(withRank ? record.equals(r) : record.equalsNoRank(r)) {
+				return id;
+			}
+		}
+		return -1;
+	}
+	
 	/**
 	 * Inserts record into the database 
 	 * @param values named values
@@ -241,24 +653,26 @@ public class FileMappedTable implements Closeable, Table {
 	
 	/**
 	 * Reads value from a file
+	 * @param buffer buffer of the segment
+	 * @param position position of the value in the buffer
 	 * @param attribute
 	 * @return value
 	 */
-	private Object readValue(Attribute attribute) {
+	private Object readValue(ByteBuffer buffer, int position, Attribute attribute) {
 		if(attribute.domain.isAssignableFrom(Double.class)) {
-			return this.mappedBuffer.getDouble();
+			return buffer.getDouble(position);
 		}
 		if(attribute.domain.isAssignableFrom(Float.class)) {
-			return this.mappedBuffer.getFloat();
+			return buffer.getFloat(position);
 		}
 		if(attribute.domain.isAssignableFrom(Integer.class)) {
-			return this.mappedBuffer.getInt();
+			return buffer.getInt(position);
 		}
 		if(attribute.domain.isAssignableFrom(Long.class)) {
-			return this.mappedBuffer.getLong();
+			return buffer.getLong(position);
 		}
 		if(attribute.domain.isAssignableFrom(Short.class)) {
-			return this.mappedBuffer.getShort();
+			return buffer.getShort(position);
 		}
 		if(ByteArraySerializable.class.isAssignableFrom(attribute.domain)) {
 			ByteArraySerializable value = null;
@@ -269,7 +683,7 @@ public class FileMappedTable implements Closeable, Table {
 				throw new RuntimeException(e);
 			}
 			byte[] bytes = new byte[value.byteArraySize()];
-			this.mappedBuffer.get(bytes);
+			buffer.get(position, bytes);
 			value.fromBytes(bytes);
 			return value;
 		}
@@ -278,47 +692,259 @@ public class FileMappedTable implements Closeable, Table {
 	
 	/**
 	 * Reads recod from a file
+	 * @param recordId id of the read record
 	 * @return record
 	 */
-	private Record readRecord() {
-		List<Record.AttributeValuePair> vls = 
-			this.schema.stream()
-				.map(a -> new Record.AttributeValuePair(a, this.readValue(a)))
-				.collect(Collectors.toList());
-		
-		double rank = this.mappedBuffer.getDouble();
+	Record readRecord(long recordId) {
+		int segment = this.segment(recordId);
+		ByteBuffer buffer = this.segmentBuffer(segment);
+		int position = this.position(recordId, segment);
+		Object[] vls = new Object[this.storedAttributes.length];
+		for(int i = 0; i < this.storedAttributes.length; i++) {
+			vls[this.storedIndices[i]] = this.readValue(buffer, position + this.storedOffsets[i], this.storedAttributes[i]);
+		}
 		
-		Record record = null;
+		double rank = buffer.getDouble(position + this.schemaByteSize - Double.BYTES);
 		
-		try {
-			record = Record.factory(schema, vls, rank);
-		} catch (TypeSchemaMismatchException | AttributeNotInSchemaException e) {
-			throw new RuntimeException(e);
+		//Values are read according to the attribute domains
+		return this.builder.buildUnchecked(vls, rank);
+	}
+	
+	/**
+	 * Gets id of the first record following the given id
+	 * @param recordId id after which the search starts, -1 to start at the beginning
+	 * @return id of the record or -1 if there is no further record
+	 */
+	long nextRecordId(long recordId) {
+		long id = this.tombstones.nextClear(recordId + 1);
+		return id < this.recordCount ? id : -1;
+	}
+	
+	/**
+	 * Gets number of bytes a record takes in the file
+	 */
+	int recordByteSize() {
+		return this.schemaByteSize;
+	}
+	
+	/**
+	 * Gets offset of the attribute value within the record
+	 * @param attribute attribute
+	 * @param domain expected domain of the attribute
+	 * @return offset in bytes
+	 * @throws AttributeNotInSchemaException if the attribute is not in schema of the table
+	 */
+	private int offset(Attribute attribute, Class<?> domain) throws AttributeNotInSchemaException {
+		for(int i = 0; i < this.storedAttributes.length; i++) {
+			if(this.storedAttributes[i].equals(attribute)) {
+				if(!attribute.domain.equals(domain)) {
+					throw new IllegalArgumentException("Attribute " + attribute + " is not of domain " + domain.getSimpleName());
+				}
+				return this.storedOffsets[i];
+			}
 		}
-		
-		return record;
+		throw new AttributeNotInSchemaException(attribute, this.schema);
+	}
+	
+	/**
+	 * Gets cursor over the records of this table reading only their ranks
+	 * @return ColumnCursor instance
+	 */
+	public ColumnCursor cursor() {
+		return new ColumnCursor(this, this.schemaByteSize - Double.BYTES);
+	}
+	
+	/**
+	 * Gets cursor reading values of a Double attribute directly from the file
+	 * @param attribute read attribute
+	 * @return DoubleCursor instance
+	 * @throws AttributeNotInSchemaException
+	 */
+	public DoubleCursor doubleCursor(Attribute attribute) throws AttributeNotInSchemaException {
+		return new DoubleCursor(this, this.offset(attribute, Double.class));
+	}
+	
+	/**
+	 * Gets cursor reading values of an Integer attribute directly from the file
+	 * @param attribute read attribute
+	 * @return IntCursor instance
+	 * @throws AttributeNotInSchemaException
+	 */
+	public IntCursor intCursor(Attribute attribute) throws AttributeNotInSchemaException {
+		return new IntCursor(this, this.offset(attribute, Integer.class));
+	}
+	
+	/**
+	 * Gets cursor reading values of a DateTime attribute directly from the file
+	 * @param attribute read attribute
+	 * @return DateTimeCursor instance
+	 * @throws AttributeNotInSchemaException
+	 */
+	public DateTimeCursor dateTimeCursor(Attribute attribute) throws AttributeNotInSchemaException {
+		return new DateTimeCursor(this, this.offset(attribute, DateTime.class));
+	}
+	
+	/**
+	 * Gets record by its id
+	 * @param recordId id of the record
+	 * @return Optional of the record, empty optional if there is no record with the id
+	 */
+	public Optional<Record> get(long recordId) {
+		if(recordId < 0 || recordId >= this.recordCount || this.tombstones.get(recordId)) {
+			return Optional.empty();
+		}
+		return Optional.of(this.readRecord(recordId));
 	}
 	
 	@Override
 	public boolean delete(Record record) {
-		int savedPos = this.mappedBuffer.position();
-		this.mappedBuffer.position(0);
-		boolean ret = false;
-		while(this.mappedBuffer.position() < savedPos) {
-			int currentPos = this.mappedBuffer.position();
-			Record r = this.readRecord();
-			if(record.equals(r)) {
-				this.vacantPositions.add(currentPos);
-				this.mappedBuffer.position(currentPos);
-				byte[] empty = new byte[this.schemaByteSize];
-				this.mappedBuffer.put(empty);
-				ret = true;
-				break;
+		long id = this.find(record, true);
+		if(id < 0) {
+			return false;
+		}
+		this.tombstones.set(id);
+		if(this.vacantCount == this.vacantPositions.length) {
+			this.vacantPositions = Arrays.copyOf(this.vacantPositions, this.vacantCount * 2);
+		}
+		this.vacantPositions[this.vacantCount++] = id;
+		this.indexRemove(record.hashCodeNoRank(), id);
+		this.rankOrder = null;
+		return true;
+	}
+	
+	/**
+	 * Moves records to the slots of the deleted ones, so the records occupy ids 0 to size - 1.
+	 * Ids of the moved records change.
+	 */
+	public void compact() {
+		byte[] bytes = new byte[this.schemaByteSize];
+		long to = 0;
+		for(long id = this.tombstones.nextClear(0); id < this.recordCount; id = this.tombstones.nextClear(id + 1)) {
+			if(id != to) {
+				int from = this.segment(id);
+				this.segmentBuffer(from).get(this.position(id, from), bytes);
+				int into = this.segment(to);
+				this.segmentBuffer(into).put(this.position(to, into), bytes);
 			}
+			to++;
+		}
+		this.recordCount = to;
+		this.tombstones.clear();
+		this.vacantCount = 0;
+		this.index = null;
+		this.rankOrder = null;
+	}
+	
+	/**
+	 * Inserts record unless the table already contains a record with the same values and higher or equal rank.
+	 * Record with the same values and lower rank has its rank rewritten in place.
+	 * @param record inserted record
+	 * @return true if the table changed, false otherwise
+	 */
+	@Override
+	public boolean upsertIfHigherRank(Record record) {
+		long id = this.find(record, false);
+		if(id < 0) {
+			return this.insert(record);
+		}
+		int segment = this.segment(id);
+		ByteBuffer buffer = this.segmentBuffer(segment);
+		int rankPosition = this.position(id, segment) + this.schemaByteSize - Double.BYTES;
+		if(buffer.getDouble(rankPosition) >= record.rank) {
+			return false;
+		}
+		// Values are equal, only the trailing rank needs to be rewritten
+		buffer.putDouble(rankPosition, record.rank);
+		this.rankOrder = null;
+		return true;
+	}
+	
+	/**
+	 * Reads rank of the record without reading its values
+	 */
+	private double rank(long recordId) {
+		int segment = this.segment(recordId);
+		return this.segmentBuffer(segment).getDouble(this.position(recordId, segment) + this.schemaByteSize - Double.BYTES);
+	}
+	
+	/**
+	 * Gets ids of the records sorted by descending rank, sorting only ranks read from the file
+	 */
+	private long[] rankOrder() {
+		if(this.rankOrder == null) {
+			int size = this.size();
+			long[] ids = new long[size];
+			double[] ranks = new double[size];
+			int i = 0;
+			for(long id = this.tombstones.nextClear(0); id < this.recordCount; id = this.tombstones.nextClear(id + 1)) {
+				ids[i] = id;
+				ranks[i] = this.rank(id);
+				i++;
+			}
+			FileMappedTable.sortByRank(ids, ranks);
+			this.rankOrder = ids;
+		}
+		return this.rankOrder;
+	}
+	
+	/**
+	 * Sorts ids together with their ranks by descending rank.
+	 * Bottom-up merge sort over the primitive arrays, stable so ties keep ascending order of ids.
+	 */
+	private static void sortByRank(long[] ids, double[] ranks) {
+		int size = ids.length;
+		long[] srcIds = ids, dstIds = new long[size];
+		double[] srcRanks = ranks, dstRanks = new double[size];
+		for(int width = 1; width < size; width <<= 1) {
+			for(int from = 0; from < size; from += width << 1) {
+				int mid = Math.min(from + width, size);
+				int to = Math.min(from + (width << 1), size);
+				int l = from, r = mid;
+				for(int k = from; k < to; k++) {
+					if(l < mid && (r >= to || Double.compare(srcRanks[l], srcRanks[r]) >= 0)) {
+						dstIds[k] = srcIds[l];
+						dstRanks[k] = srcRanks[l++];
+					} else {
+						dstIds[k] = srcIds[r];
+						dstRanks[k] = srcRanks[r++];
+					}
+				}
+			}
+			long[] swapIds = srcIds;
+			srcIds = dstIds;
+			dstIds = swapIds;
+			double[] swapRanks = srcRanks;
+			srcRanks = dstRanks;
+			dstRanks = swapRanks;
+		}
+		if(srcIds != ids) {
+			System.arraycopy(srcIds, 0, ids, 0, size);
 		}
-		
-		this.mappedBuffer.position(savedPos);
-		return ret;
+	}
+	
+	/**
+	 * Gets iterator over the records in descending order of their rank.
+	 * Order of the record ids is kept until the table changes.
+	 */
+	@Override
+	public Iterator<Record> rankIterator() {
+		long[] ids = this.rankOrder();
+		return new Iterator<Record>() {
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.position < ids.length;
+			}
+
+			@Override
+			public Record next() {
+				if(!this.hasNext()) {
+					throw new NoSuchElementException("last element");
+				}
+				return readRecord(ids[this.position++]);
+			}
+		};
 	}
 	
 	/**
@@ -328,7 +954,7 @@ public class FileMappedTable implements Closeable, Table {
 	 */
 	public static class FileMappedTableIterator implements Iterator<Record>{
 		
-		private int localPosition = 0;
+		private long localPosition = 0;
 		private final FileMappedTable table;
 		
 		private FileMappedTableIterator(FileMappedTable table) {
@@ -337,10 +963,8 @@ public class FileMappedTable implements Closeable, Table {
 		
 		@Override
 		public boolean hasNext() {
-			while(table.vacantPositions.contains(localPosition)) {
-				localPosition += table.schemaByteSize;
-			}
-			return localPosition < this.table.mappedBuffer.position(); 
+			localPosition = table.tombstones.nextClear(localPosition);
+			return localPosition < this.table.recordCount; 
 		}
 
 		@Override
@@ -349,11 +973,8 @@ public class FileMappedTable implements Closeable, Table {
 				throw new NoSuchElementException("last element");
 			}
 			
-			int savedPos = this.table.mappedBuffer.position();
-			this.table.mappedBuffer.position(this.localPosition);
-			Record record = this.table.readRecord();
-			this.localPosition = this.table.mappedBuffer.position();
-			this.table.mappedBuffer.position(savedPos);
+			Record record = this.table.readRecord(this.localPosition);
+			this.localPosition++;
 			return record;
 		}
 		
@@ -370,15 +991,9 @@ public class FileMappedTable implements Closeable, Table {
 	 */
 	@Override
 	public Stream<Record> stream(){
-		Iterator<Record> it = this.iterator();
-		Stream<Record> s = null;
-		if(it.hasNext()) {
-			s = Stream.iterate(it.next(), r -> it.hasNext(), r -> it.next());
-		}
-		else {
-			s = Stream.empty();
-		}
-		return s;
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED),
+				false);
 	}
 	
 	@Override
@@ -392,21 +1007,24 @@ public class FileMappedTable implements Closeable, Table {
 	
 	@Override
 	public boolean contains(Record record) {
-		return this.stream().anyMatch(r -> r.equals(record));
+		return this.find(record, true) >= 0;
 	}
 	
 	@Override
 	public boolean containsNoRank(Record record) {
-		return this.stream().anyMatch(r -> r.equalsNoRank(record));
+		return this.find(record, false) >= 0;
 	}
 	
 	@Override
 	public boolean isEmpty() {
-		return this.stream().findAny().isEmpty();
+		return this.longSize() == 0;
 	}
 
 	@Override
 	public void close() throws IOException {
+		if(this.tmpFile == null && this.channel.isOpen()) {
+			this.flush();
+		}
 		if(this.channel != null) {
 			this.channel.close();
 		}
@@ -420,12 +1038,24 @@ public class FileMappedTable implements Closeable, Table {
 
 	@Override
 	public Optional<Record> findNoRank(Record record) {
-		return this.stream().filter(r -> record.equalsNoRank(r)).findAny();
+		long id = this.find(record, false);
+		if(id < 0) {
+			return Optional.empty();
+		}
+		return Optional.of(this.readRecord(id));
 	}
 
 	@Override
 	public int size() {
-		return (this.mappedBuffer.position() / this.schemaByteSize) - this.vacantPositions.size();
+		return (int)Math.min(Integer.MAX_VALUE, this.longSize());
+	}
+	
+	/**
+	 * Gets number of records in the table, not limited to the int range
+	 * @return number of records
+	 */
+	public long longSize() {
+		return this.recordCount - this.vacantCount;
 	}
 
 	@Override
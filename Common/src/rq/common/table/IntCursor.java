@@ -0,0 +1,24 @@
+/**
+ *
+ */
+package rq.common.table;
+
+/**
+ * Cursor reading values of an Integer attribute of a file mapped table
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class IntCursor extends ColumnCursor {
+
+	IntCursor(FileMappedTable table, int offset) {
+		super(table, offset);
+	}
+
+	/**
+	 * Gets value of the current record
+	 * @return value
+	 */
+	public int get() {
+		return this.buffer().getInt(this.fieldPosition());
+	}
+}
@@ -1,5 +1,6 @@
 package rq.common.table;
 
+import java.util.Comparator;
 import java.util.Iterator;
 
 import rq.common.interfaces.LazyExpression;
@@ -19,8 +20,31 @@ public class LazyFacade implements LazyExpression, SchemaProvider {
 	private final Iterator<Record> it;
 	
 	public LazyFacade(Table table) {
+		this(table, table.iterator());
+	}
+	
+	private LazyFacade(Table table, Iterator<Record> it) {
 		this.table = table;
-		this.it = table.iterator();
+		this.it = it;
+	}
+	
+	/**
+	 * Creates facade returning records of the table in descending order of their rank
+	 * @param table
+	 * @return LazyFacade instance
+	 */
+	public static LazyFacade byRank(Table table) {
+		return new LazyFacade(table, table.rankIterator());
+	}
+	
+	/**
+	 * Creates facade returning records of the table sorted by the comparator
+	 * @param table
+	 * @param comparator
+	 * @return LazyFacade instance
+	 */
+	public static LazyFacade sorted(Table table, Comparator<Record> comparator) {
+		return new LazyFacade(table, table.stream().sorted(comparator).iterator());
 	}
 
 	@Override
@@ -36,6 +60,18 @@ public class LazyFacade implements LazyExpression, SchemaProvider {
 		return null;
 	}
 
+	@Override
+	public RecordBatch nextBatch(int max) {
+		if(!it.hasNext()) {
+			return null;
+		}
+		RecordBatch batch = new RecordBatch(max);
+		while(!batch.isFull() && it.hasNext()) {
+			batch.add(it.next());
+		}
+		return batch;
+	}
+
 	@Override
 	public Statistics getStatistics() {
 		return table.getStatistics();
@@ -11,7 +11,9 @@ import rq.common.interfaces.LazyIterator;
 import rq.common.interfaces.Table;
 import rq.common.statistic.Statistics;
 
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.Optional;
@@ -25,6 +27,9 @@ import java.util.Optional;
 public class MemoryTable implements Table, LazyIterable{
 	public final Schema schema;
 	private Set<Record> records = new HashSet<Record>();
+	private final NoRankIndex noRankIndex = new NoRankIndex();
+	/** Records sorted by descending rank, null until requested or after the table changes */
+	private Record[] byRank = null;
 	
 	public final Statistics statistics = new Statistics(this);
 	
@@ -58,7 +63,12 @@ public class MemoryTable implements Table, LazyIterable{
 		if (!this.schema.equals(record.schema)) {
 			throw new TableRecordSchemaMismatch(this.schema, record.schema);
 		}
-		return this.records.add(record);
+		if(this.records.add(record)) {
+			this.noRankIndex.add(record);
+			this.byRank = null;
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -88,7 +98,31 @@ public class MemoryTable implements Table, LazyIterable{
 		if (!this.schema.equals(record.schema)) {
 			throw new TableRecordSchemaMismatch(this.schema, record.schema);
 		}
-		return this.records.remove(record);
+		if(this.records.remove(record)) {
+			this.noRankIndex.remove(record);
+			this.byRank = null;
+			return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Inserts record unless the table already contains a record with the same values and higher or equal rank.
+	 * Record with the same values and lower rank is replaced.
+	 * @param record inserted record
+	 * @return true if the table changed, false otherwise
+	 */
+	@Override
+	public boolean upsertIfHigherRank(Record record) throws TableRecordSchemaMismatch {
+		if (!this.schema.equals(record.schema)) {
+			throw new TableRecordSchemaMismatch(this.schema, record.schema);
+		}
+		if(this.noRankIndex.upsertIfHigherRank(record, r -> this.records.remove(r))) {
+			this.records.add(record);
+			this.byRank = null;
+			return true;
+		}
+		return false;
 	}
 
 	/**
@@ -113,7 +147,21 @@ public class MemoryTable implements Table, LazyIterable{
 
 	@Override
 	public Iterator<Record> iterator() {
-		return this.records.iterator();
+		// Removal through the iterator would bypass the value index
+		return Collections.unmodifiableSet(this.records).iterator();
+	}
+
+	/**
+	 * Gets iterator over the records in descending order of their rank.
+	 * Sorted records are kept until the table changes.
+	 */
+	@Override
+	public Iterator<Record> rankIterator() {
+		if(this.byRank == null) {
+			this.byRank = this.records.toArray(new Record[this.records.size()]);
+			Arrays.sort(this.byRank, Record.RANK_COMPARATOR_DSC);
+		}
+		return Arrays.asList(this.byRank).iterator();
 	}
 
 	/**
@@ -162,7 +210,7 @@ public class MemoryTable implements Table, LazyIterable{
 	 */
 	@Override
 	public boolean containsNoRank(Record r) {
-		return this.stream().anyMatch(x -> r.equalsNoRank(x));
+		return this.noRankIndex.contains(r);
 	}
 	
 	/**
@@ -171,7 +219,7 @@ public class MemoryTable implements Table, LazyIterable{
 	 * @return Oprional of recod if it is present, Empty optional otherwise.
 	 */
 	public Optional<Record> findNoRank(Record r) {
-		return this.stream().filter(x -> r.equalsNoRank(x)).findAny();
+		return this.noRankIndex.find(r);
 	}
 	
 	/**
@@ -0,0 +1,109 @@
+/**
+ *
+ */
+package rq.common.table;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+/**
+ * Hash index of records by their values, disregarding the rank
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+class NoRankIndex {
+
+	private final Map<Record.NoRankKey, List<Record>> index = new HashMap<Record.NoRankKey, List<Record>>();
+
+	/**
+	 * Adds record to the index
+	 * @param record added record
+	 */
+	public void add(Record record) {
+		List<Record> bucket = this.index.get(record.noRankKey());
+		if(bucket == null) {
+			bucket = new ArrayList<Record>(1);
+			this.index.put(record.noRankKey(), bucket);
+		}
+		bucket.add(record);
+	}
+
+	/**
+	 * Removes record from the index
+	 * @param record removed record
+	 * @return true if the record was indexed, false otherwise
+	 */
+	public boolean remove(Record record) {
+		Record.NoRankKey key = record.noRankKey();
+		List<Record> bucket = this.index.get(key);
+		if(bucket == null) {
+			return false;
+		}
+		boolean ret = bucket.remove(record);
+		if(bucket.isEmpty()) {
+			this.index.remove(key);
+		}
+		return ret;
+	}
+
+	/**
+	 * Indexes record unless a record with the same values and higher or equal rank is already indexed.
+	 * Indexed records with the same values and lower rank are dropped from the index.
+	 * @param record indexed record
+	 * @param displaced consumer of the dropped records
+	 * @return true if the record was indexed, false otherwise
+	 */
+	public boolean upsertIfHigherRank(Record record, Consumer<Record> displaced) {
+		List<Record> bucket = this.index.get(record.noRankKey());
+		if(bucket == null) {
+			bucket = new ArrayList<Record>(1);
+			bucket.add(record);
+			this.index.put(record.noRankKey(), bucket);
+			return true;
+		}
+		for(Record r : bucket) {
+			if(r.rank >= record.rank) {
+				return false;
+			}
+		}
+		for(Record r : bucket) {
+			displaced.accept(r);
+		}
+		bucket.clear();
+		bucket.add(record);
+		return true;
+	}
+
+	/**
+	 * Finds indexed record with the same values as record, not taking rank into account
+	 * @param record searched record
+	 * @return Optional of record if it is present, Empty optional otherwise.
+	 */
+	public Optional<Record> find(Record record) {
+		List<Record> bucket = this.index.get(record.noRankKey());
+		if(bucket == null) {
+			return Optional.empty();
+		}
+		return Optional.of(bucket.get(0));
+	}
+
+	/**
+	 * Returns true if record with the same values as record is indexed. Returns false otherwise.
+	 * @param record searched record
+	 * @return true or false
+	 */
+	public boolean contains(Record record) {
+		return this.index.containsKey(record.noRankKey());
+	}
+
+	/**
+	 * Removes all records from the index
+	 */
+	public void clear() {
+		this.index.clear();
+	}
+}
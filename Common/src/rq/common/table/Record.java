@@ -4,7 +4,6 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Optional;
 import java.util.stream.Collectors;
-import java.util.stream.Stream;
 import java.util.HashSet;
 import java.util.Set;
 import java.util.Comparator;
@@ -37,6 +36,11 @@ public class Record implements Comparable<Record>{
 		
 	};
 	
+	/**
+	 * Compares records by values only, in the order of compareTo
+	 */
+	public static final Comparator<Record> VALUE_COMPARATOR = (Record o1, Record o2) -> o1.compareToNoRank(o2);
+	
 	public static final Comparator<Record> RANK_COMPARATOR_DSC = new Comparator<Record>() {
 
 		@Override
@@ -62,16 +66,31 @@ public class Record implements Comparable<Record>{
 		}
 	}
 
+	private static final long[] NO_PRIMITIVES = new long[0];
+	private static final Object[] NO_OBJECTS = new Object[0];
+
 	public final Schema schema;
-	private final Object[] values;
-	public final Double rank;
-	
-	private boolean isHashCached = false;
-	private int cachedHash = 0;
+	/** Unboxed values of Integer, Long and Double attributes, see RecordLayout */
+	final long[] primitives;
+	/** Values of other attributes */
+	final Object[] objects;
+	public final double rank;
 
-	private Record(Schema schema, Object[] values, Double rank) {
+	Record(Schema schema, long[] primitives, Object[] objects, double rank) {
+		this.schema = schema;
+		this.primitives = primitives;
+		this.objects = objects;
+		this.rank = rank;
+	}
+	
+	private Record(Schema schema, Object[] values, double rank) {
 		this.schema = schema;
-		this.values = values;
+		RecordLayout layout = schema.layout();
+		this.primitives = layout.primitiveCount == 0 ? NO_PRIMITIVES : new long[layout.primitiveCount];
+		this.objects = layout.objectCount == 0 ? NO_OBJECTS : new Object[layout.objectCount];
+		for(int i = 0; i < values.length; i++) {
+			this.store(layout, i, values[i]);
+		}
 		this.rank = rank;
 	}
 	
@@ -81,10 +100,48 @@ public class Record implements Comparable<Record>{
 	 * @param rank
 	 */
 	public Record(Record record, double rank) {
+		//Value arrays are never modified, so they can be shared
 		this.schema = record.schema;
-		this.values = Arrays.copyOf(record.values, record.values.length);
+		this.primitives = record.primitives;
+		this.objects = record.objects;
 		this.rank = rank;
 	}
+	
+	/**
+	 * Stores value of the attribute with given index to its slot
+	 */
+	private void store(RecordLayout layout, int index, Object value) {
+		byte kind = layout.kinds[index];
+		if(kind == RecordLayout.OBJECT) {
+			this.objects[layout.slots[index]] = value;
+		}
+		else {
+			this.primitives[layout.slots[index]] = RecordLayout.encode(kind, value);
+		}
+	}
+	
+	/**
+	 * Gets value of the attribute with given index
+	 */
+	Object value(int index) {
+		RecordLayout layout = this.schema.layout();
+		byte kind = layout.kinds[index];
+		if(kind == RecordLayout.OBJECT) {
+			return this.objects[layout.slots[index]];
+		}
+		return RecordLayout.decode(kind, this.primitives[layout.slots[index]]);
+	}
+	
+	/**
+	 * Gets all values in the order of attribute indices
+	 */
+	private Object[] values() {
+		Object[] vls = new Object[this.schema.size()];
+		for(int i = 0; i < vls.length; i++) {
+			vls[i] = this.value(i);
+		}
+		return vls;
+	}
 
 	/**
 	 * Validates values against the schema domains
@@ -152,7 +209,7 @@ public class Record implements Comparable<Record>{
 		if (index.isEmpty()) {
 			throw new AttributeNotInSchemaException(attribute, this.schema);
 		}
-		return this.values[index.get()];
+		return this.value(index.get());
 	}
 
 	/**
@@ -168,7 +225,7 @@ public class Record implements Comparable<Record>{
 		if (index.isEmpty()) {
 			throw new AttributeNotInSchemaException(name, this.schema);
 		}
-		return this.values[index.get()];
+		return this.value(index.get());
 	}
 	
 	/**
@@ -181,7 +238,7 @@ public class Record implements Comparable<Record>{
 		if (index.isEmpty()) {
 			return null;
 		}
-		return this.values[index.get()];
+		return this.value(index.get());
 	}
 	
 	/**
@@ -194,7 +251,55 @@ public class Record implements Comparable<Record>{
 		if (index.isEmpty()) {
 			return null;
 		}
-		return this.values[index.get()];
+		return this.value(index.get());
+	}
+
+	/**
+	 * Gets the value of a numeric attribute without boxing
+	 * @param attribute the attribute
+	 * @return double value
+	 * @throws AttributeNotInSchemaException if attribute is not part of the schema
+	 */
+	public double getDouble(Attribute attribute) throws AttributeNotInSchemaException {
+		Optional<Integer> index = this.schema.attributeIndex(attribute);
+		if (index.isEmpty()) {
+			throw new AttributeNotInSchemaException(attribute, this.schema);
+		}
+		RecordLayout layout = this.schema.layout();
+		int i = index.get();
+		switch(layout.kinds[i]) {
+		case RecordLayout.INT:
+		case RecordLayout.LONG:
+			return this.primitives[layout.slots[i]];
+		case RecordLayout.DOUBLE:
+			return Double.longBitsToDouble(this.primitives[layout.slots[i]]);
+		default:
+			return ((Number)this.objects[layout.slots[i]]).doubleValue();
+		}
+	}
+	
+	/**
+	 * Gets the value of an integral attribute without boxing
+	 * @param attribute the attribute
+	 * @return long value
+	 * @throws AttributeNotInSchemaException if attribute is not part of the schema
+	 */
+	public long getLong(Attribute attribute) throws AttributeNotInSchemaException {
+		Optional<Integer> index = this.schema.attributeIndex(attribute);
+		if (index.isEmpty()) {
+			throw new AttributeNotInSchemaException(attribute, this.schema);
+		}
+		RecordLayout layout = this.schema.layout();
+		int i = index.get();
+		switch(layout.kinds[i]) {
+		case RecordLayout.INT:
+		case RecordLayout.LONG:
+			return this.primitives[layout.slots[i]];
+		case RecordLayout.DOUBLE:
+			return (long)Double.longBitsToDouble(this.primitives[layout.slots[i]]);
+		default:
+			return ((Number)this.objects[layout.slots[i]]).longValue();
+		}
 	}
 
 	@Override
@@ -202,7 +307,7 @@ public class Record implements Comparable<Record>{
 		return new StringBuilder()
 				.append("[")
 				.append(this.schema.attrIndexStream()
-						.map(e -> e.getKey().toString() + ": " + this.values[e.getValue()].toString())
+						.map(e -> e.getKey().toString() + ": " + this.value(e.getValue()).toString())
 						.reduce((s1, s2) -> s1 + ", " + s2).get())
 				.append("; ")
 				.append(this.rank)
@@ -216,33 +321,60 @@ public class Record implements Comparable<Record>{
 			return false;
 		}
 		Record r = (Record) other;
-		if (!this.schema.equals(r.schema) || !this.rank.equals(r.rank)) {
-			return false;
-		}
-
-		for (int i = 0; i < this.values.length; i++) {
-			if (!this.values[i].equals(r.values[i])) {
-				return false;
-			}
-		}
-
-		return true;
+		return Double.doubleToLongBits(this.rank) == Double.doubleToLongBits(r.rank)
+				&& this.equalsNoRank(r);
 	}
 
 	@Override
 	public int hashCode() {
-		if(!this.isHashCached) {
-			this.cachedHash =
-					new StringBuilder()
-					.append(this.schema)
-					.append(Stream.of(values).map(o -> Integer.toString(o.hashCode()))
-							.reduce(new StringBuilder(), (x, y) -> x.append(y), (x, y) -> x.append(y.toString())).toString())
-					.append(this.rank)
-					.toString().hashCode();
-			this.isHashCached = true;
+		return 31 * this.hashCodeNoRank() + Double.hashCode(this.rank);
+	}
+	
+	/**
+	 * Returns hash code of this record, excluding rank. Records equal by equalsNoRank have the same hash.
+	 * @return integer
+	 */
+	public int hashCodeNoRank() {
+		int hash = this.schema.hashCode();
+		for(int i = 0; i < this.primitives.length; i++) {
+			hash = 31 * hash + Long.hashCode(this.primitives[i]);
+		}
+		for(int i = 0; i < this.objects.length; i++) {
+			hash = 31 * hash + this.objects[i].hashCode();
+		}
+		return hash;
+	}
+	
+	/**
+	 * Key identifying a record by its schema and values, disregarding the rank
+	 */
+	public static final class NoRankKey {
+		public final Record record;
+		
+		private NoRankKey(Record record) {
+			this.record = record;
+		}
+		
+		@Override
+		public boolean equals(Object other) {
+			if(!(other instanceof NoRankKey)) {
+				return false;
+			}
+			return this.record.equalsNoRank(((NoRankKey)other).record);
 		}
 		
-		return this.cachedHash;
+		@Override
+		public int hashCode() {
+			return this.record.hashCodeNoRank();
+		}
+	}
+	
+	/**
+	 * Gets key of this record usable in hash structures, disregarding the rank
+	 * @return NoRankKey instance
+	 */
+	public NoRankKey noRankKey() {
+		return new NoRankKey(this);
 	}
 	
 	/**
@@ -257,9 +389,12 @@ public class Record implements Comparable<Record>{
 		if (!this.schema.equals(other.schema)) {
 			return false;
 		}
-		//If schemas are equal, the value arrays must also be equal
-		for (int i = 0; i < this.values.length; i++) {
-			if (!this.values[i].equals(other.values[i])) {
+		//If schemas are equal, the layouts are also equal
+		if (!Arrays.equals(this.primitives, other.primitives)) {
+			return false;
+		}
+		for (int i = 0; i < this.objects.length; i++) {
+			if (!this.objects[i].equals(other.objects[i])) {
 				return false;
 			}
 		}
@@ -281,20 +416,69 @@ public class Record implements Comparable<Record>{
 		}
 		if(!value.getClass().equals(attribute.domain)) {
 			throw new TypeSchemaMismatchException(schema,
-					Arrays.asList(values).stream().map(x -> x.getClass()).collect(Collectors.toList()));
+					Arrays.asList(this.values()).stream().map(x -> x.getClass()).collect(Collectors.toList()));
 		}
 		
-		Object[] vls = Arrays.copyOf(this.values, this.values.length);
-		vls[schema.attributeIndex(attribute).get()] = value;
-		return new Record(this.schema, vls, this.rank);		
+		Record record = new Record(
+				this.schema,
+				Arrays.copyOf(this.primitives, this.primitives.length),
+				Arrays.copyOf(this.objects, this.objects.length),
+				this.rank);
+		record.store(this.schema.layout(), schema.attributeIndex(attribute).get(), value);
+		return record;
 	}
 	
+	/**
+	 * Creates record with empty values, that is zero for numeric attributes and empty string otherwise
+	 * @param schema schema of the record
+	 * @return Record instance
+	 */
 	public static Record empty(Schema schema) {
-		return new Record(schema, schema.stream().map(a -> "").toArray(), 1.0d);
+		RecordLayout layout = schema.layout();
+		Object[] objects = new Object[layout.objectCount];
+		Arrays.fill(objects, "");
+		return new Record(schema, new long[layout.primitiveCount], objects, 1.0d);
 	}
 
+	/**
+	 * Compares records by schema, values in the order of attribute indices and rank.
+	 * Records equal by equalsNoRank are adjacent in this order.
+	 */
 	@Override
 	public int compareTo(Record o) {
-		return this.toString().compareTo(o.toString());
+		int cmp = this.compareToNoRank(o);
+		return cmp != 0 ? cmp : Double.compare(this.rank, o.rank);
+	}
+	
+	/**
+	 * Compares records by schema and values in the order of attribute indices, disregarding the rank.
+	 * Records equal by equalsNoRank compare as 0.
+	 * @param o compared record
+	 * @return comparison result
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	public int compareToNoRank(Record o) {
+		if(!this.schema.equals(o.schema)) {
+			int cmp = Integer.compare(this.schema.hashCode(), o.schema.hashCode());
+			return cmp != 0 ? cmp : this.schema.toString().compareTo(o.schema.toString());
+		}
+		RecordLayout layout = this.schema.layout();
+		for(int i = 0; i < layout.kinds.length; i++) {
+			int slot = layout.slots[i];
+			int cmp;
+			if(layout.kinds[i] == RecordLayout.OBJECT) {
+				Object v1 = this.objects[slot], v2 = o.objects[slot];
+				cmp = v1 instanceof Comparable && v1.getClass().equals(v2.getClass())
+						? ((Comparable)v1).compareTo(v2)
+						: v1.toString().compareTo(v2.toString());
+			}
+			else {
+				cmp = RecordLayout.compare(layout.kinds[i], this.primitives[slot], o.primitives[slot]);
+			}
+			if(cmp != 0) {
+				return cmp;
+			}
+		}
+		return 0;
 	}
 }
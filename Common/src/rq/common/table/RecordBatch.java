@@ -0,0 +1,107 @@
+/**
+ *
+ */
+package rq.common.table;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Batch of records passed between lazy operators at once
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public final class RecordBatch implements Iterable<Record> {
+
+	/** Default maximal number of records of a batch */
+	public static final int DEFAULT_SIZE = 1024;
+
+	private final Record[] records;
+	private int size = 0;
+
+	/**
+	 * Creates empty batch
+	 * @param capacity maximal number of records in the batch
+	 */
+	public RecordBatch(int capacity) {
+		if(capacity < 1) {
+			throw new IllegalArgumentException("Batch capacity must be positive");
+		}
+		this.records = new Record[capacity];
+	}
+
+	/**
+	 * Adds record to the batch
+	 * @param record added record
+	 * @return false if the batch is full
+	 */
+	public boolean add(Record record) {
+		if(this.size == this.records.length) {
+			return false;
+		}
+		this.records[this.size++] = record;
+		return true;
+	}
+
+	/**
+	 * Gets record of the batch
+	 * @param index position of the record
+	 * @return record
+	 */
+	public Record get(int index) {
+		if(index >= this.size) {
+			throw new IndexOutOfBoundsException(index);
+		}
+		return this.records[index];
+	}
+
+	public int size() {
+		return this.size;
+	}
+
+	public int capacity() {
+		return this.records.length;
+	}
+
+	public boolean isEmpty() {
+		return this.size == 0;
+	}
+
+	public boolean isFull() {
+		return this.size == this.records.length;
+	}
+
+	/**
+	 * Removes all records from the batch
+	 */
+	public void clear() {
+		Arrays.fill(this.records, 0, this.size, null);
+		this.size = 0;
+	}
+
+	@Override
+	public Iterator<Record> iterator() {
+		return new Iterator<Record>() {
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.position < RecordBatch.this.size;
+			}
+
+			@Override
+			public Record next() {
+				if(!this.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return RecordBatch.this.records[this.position++];
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(Arrays.copyOf(this.records, this.size));
+	}
+}
@@ -0,0 +1,182 @@
+/**
+ *
+ */
+package rq.common.table;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import rq.common.exceptions.AttributeNotInSchemaException;
+import rq.common.exceptions.TypeSchemaMismatchException;
+
+/**
+ * Builds records of a fixed schema from values ordered by attribute index.
+ * Avoids the sorting and the lookups of Record.factory, so it is meant for operators producing many records.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class RecordBuilder {
+
+	/**
+	 * Precompiled copy of attribute values from records of a source schema to records of the built schema
+	 */
+	public static class Copy {
+		private final Schema source;
+		private final java.util.Map<Attribute, Attribute> mapping;
+		private final int[] primitiveFrom;
+		private final int[] primitiveTo;
+		private final int[] objectFrom;
+		private final int[] objectTo;
+
+		private Copy(Schema source, java.util.Map<Attribute, Attribute> mapping, Schema target) {
+			this.source = source;
+			this.mapping = mapping;
+			RecordLayout sl = source.layout(), tl = target.layout();
+			this.primitiveFrom = new int[sl.primitiveCount];
+			this.primitiveTo = new int[sl.primitiveCount];
+			this.objectFrom = new int[sl.objectCount];
+			this.objectTo = new int[sl.objectCount];
+
+			int p = 0, o = 0;
+			for(Attribute a : source) {
+				Attribute to = mapping.get(a);
+				int from = source.attributeIndex(a).get();
+				int toIndex = target.attributeIndex(to).get();
+				if(sl.kinds[from] != tl.kinds[toIndex]) {
+					throw new IllegalArgumentException("Domains of " + a + " and " + to + " differ");
+				}
+				if(sl.kinds[from] == RecordLayout.OBJECT) {
+					this.objectFrom[o] = sl.slots[from];
+					this.objectTo[o++] = tl.slots[toIndex];
+				}
+				else {
+					this.primitiveFrom[p] = sl.slots[from];
+					this.primitiveTo[p++] = tl.slots[toIndex];
+				}
+			}
+		}
+
+		private void apply(Record record, long[] primitives, Object[] objects) {
+			for(int i = 0; i < this.primitiveFrom.length; i++) {
+				primitives[this.primitiveTo[i]] = record.primitives[this.primitiveFrom[i]];
+			}
+			for(int i = 0; i < this.objectFrom.length; i++) {
+				objects[this.objectTo[i]] = record.objects[this.objectFrom[i]];
+			}
+		}
+	}
+
+	public final Schema schema;
+	private final RecordLayout layout;
+	private final Class<?>[] domains;
+
+	private RecordBuilder(Schema schema) {
+		this.schema = schema;
+		this.layout = schema.layout();
+		this.domains = new Class<?>[schema.size()];
+		schema.attrIndexStream().forEach(e -> this.domains[e.getValue()] = e.getKey().domain);
+	}
+
+	/**
+	 * Factory method
+	 * @param schema schema of the built records
+	 * @return RecordBuilder instance
+	 */
+	public static RecordBuilder factory(Schema schema) {
+		return new RecordBuilder(schema);
+	}
+
+	/**
+	 * Gets index of the attribute in the built schema, that is position of its value in the built value array
+	 * @param attribute the attribute
+	 * @return index
+	 * @throws AttributeNotInSchemaException if attribute is not part of the schema
+	 */
+	public int index(Attribute attribute) throws AttributeNotInSchemaException {
+		Optional<Integer> index = this.schema.attributeIndex(attribute);
+		if(index.isEmpty()) {
+			throw new AttributeNotInSchemaException(attribute, this.schema);
+		}
+		return index.get();
+	}
+
+	/**
+	 * Creates copy of attribute values from records of the source schema
+	 * @param source schema of the copied records
+	 * @param mapping maps attributes of the source schema to attributes of the built schema with the same domain
+	 * @return Copy instance
+	 */
+	public Copy copy(Schema source, java.util.Map<Attribute, Attribute> mapping) {
+		return new Copy(source, mapping, this.schema);
+	}
+
+	/**
+	 * Builds record from values ordered by attribute index
+	 * @param values values of the record, the array is not retained
+	 * @param rank rank of the record
+	 * @return Record instance
+	 * @throws TypeSchemaMismatchException if types of values mismatch the schema
+	 */
+	public Record build(Object[] values, double rank) throws TypeSchemaMismatchException {
+		if(values.length != this.domains.length) {
+			throw new TypeSchemaMismatchException(this.schema,
+					Arrays.stream(values).map(x -> x == null ? null : x.getClass()).collect(java.util.stream.Collectors.toList()));
+		}
+		for(int i = 0; i < values.length; i++) {
+			if(values[i] == null || values[i].getClass() != this.domains[i]) {
+				throw new TypeSchemaMismatchException(this.schema,
+						Arrays.stream(values).map(x -> x == null ? null : x.getClass()).collect(java.util.stream.Collectors.toList()));
+			}
+		}
+		return this.buildUnchecked(values, rank);
+	}
+
+	/**
+	 * Builds record from values ordered by attribute index without validating their types.
+	 * Caller guarantees the values are of the attribute domains.
+	 * @param values values of the record, the array is not retained
+	 * @param rank rank of the record
+	 * @return Record instance
+	 */
+	public Record buildUnchecked(Object[] values, double rank) {
+		long[] primitives = new long[this.layout.primitiveCount];
+		Object[] objects = new Object[this.layout.objectCount];
+		for(int i = 0; i < values.length; i++) {
+			byte kind = this.layout.kinds[i];
+			if(kind == RecordLayout.OBJECT) {
+				objects[this.layout.slots[i]] = values[i];
+			}
+			else {
+				primitives[this.layout.slots[i]] = RecordLayout.encode(kind, values[i]);
+			}
+		}
+		return new Record(this.schema, primitives, objects, rank);
+	}
+
+	/**
+	 * Builds record combining values of two records
+	 * @param record1 first record
+	 * @param copy1 copy of the first record values
+	 * @param record2 second record
+	 * @param copy2 copy of the second record values
+	 * @param rank rank of the record
+	 * @return Record instance
+	 */
+	public Record combine(Record record1, Copy copy1, Record record2, Copy copy2, double rank) {
+		long[] primitives = new long[this.layout.primitiveCount];
+		Object[] objects = new Object[this.layout.objectCount];
+		this.copyFor(record1, copy1).apply(record1, primitives, objects);
+		this.copyFor(record2, copy2).apply(record2, primitives, objects);
+		return new Record(this.schema, primitives, objects, rank);
+	}
+
+	/**
+	 * Gets copy applicable to the record, recompiling it if the record has other schema
+	 */
+	private Copy copyFor(Record record, Copy copy) {
+		if(record.schema.equals(copy.source)) {
+			return copy;
+		}
+		return this.copy(record.schema, copy.mapping);
+	}
+}
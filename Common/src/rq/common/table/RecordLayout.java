@@ -0,0 +1,103 @@
+/**
+ *
+ */
+package rq.common.table;
+
+/**
+ * Physical layout of records of a schema.
+ * Integer, Long and Double attributes are stored unboxed in a long array of primitive slots,
+ * other attributes are stored in an object array.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+final class RecordLayout {
+
+	static final byte OBJECT = 0;
+	static final byte INT = 1;
+	static final byte LONG = 2;
+	static final byte DOUBLE = 3;
+
+	/** Kind of the slot for each attribute index */
+	final byte[] kinds;
+	/** Position in the primitive or the object array for each attribute index */
+	final int[] slots;
+	final int primitiveCount;
+	final int objectCount;
+
+	RecordLayout(Schema schema) {
+		this.kinds = new byte[schema.size()];
+		this.slots = new int[schema.size()];
+		Class<?>[] domains = new Class<?>[schema.size()];
+		schema.attrIndexStream().forEach(e -> domains[e.getValue()] = e.getKey().domain);
+
+		int primitives = 0, objects = 0;
+		for(int i = 0; i < domains.length; i++) {
+			this.kinds[i] = RecordLayout.kind(domains[i]);
+			if(this.kinds[i] == OBJECT) {
+				this.slots[i] = objects++;
+			}
+			else {
+				this.slots[i] = primitives++;
+			}
+		}
+		this.primitiveCount = primitives;
+		this.objectCount = objects;
+	}
+
+	private static byte kind(Class<?> domain) {
+		if(domain.equals(Integer.class)) {
+			return INT;
+		}
+		if(domain.equals(Long.class)) {
+			return LONG;
+		}
+		if(domain.equals(Double.class)) {
+			return DOUBLE;
+		}
+		return OBJECT;
+	}
+
+	/**
+	 * Encodes primitive value to its slot. Doubles are stored as canonical bits, so equal slots mean equal values.
+	 * @param kind kind of the slot
+	 * @param value encoded value
+	 * @return slot content
+	 */
+	static long encode(byte kind, Object value) {
+		switch(kind) {
+		case INT:
+			return (Integer)value;
+		case LONG:
+			return (Long)value;
+		default:
+			return Double.doubleToLongBits((Double)value);
+		}
+	}
+
+	/**
+	 * Decodes boxed value from its slot
+	 * @param kind kind of the slot
+	 * @param slot slot content
+	 * @return boxed value
+	 */
+	static Object decode(byte kind, long slot) {
+		switch(kind) {
+		case INT:
+			return Integer.valueOf((int)slot);
+		case LONG:
+			return Long.valueOf(slot);
+		default:
+			return Double.valueOf(Double.longBitsToDouble(slot));
+		}
+	}
+
+	/**
+	 * Compares two primitive slots of the same kind by their values
+	 */
+	static int compare(byte kind, long slot1, long slot2) {
+		if(kind == DOUBLE) {
+			return Double.compare(Double.longBitsToDouble(slot1), Double.longBitsToDouble(slot2));
+		}
+		return Long.compare(slot1, slot2);
+	}
+}
@@ -25,14 +25,27 @@ import java.util.Iterator;
 public class Schema implements Iterable<Attribute> {
 	private final Map<Attribute, Integer> indexMap = new HashMap<Attribute, Integer>();
 	private final Map<String, Integer> nameMap = new HashMap<String, Integer>();
+	/** Attributes in the order of their indices */
+	private final Attribute[] attributes;
+	private final int hash;
+	private final RecordLayout layout;
 	
 	private Schema(Collection<Attribute> attributes) {
-		int i = 0;
-		for(Attribute at : attributes.stream().sorted().collect(Collectors.toList())) {
-			this.indexMap.put(at, i);
-			this.nameMap.put(at.name, i);
-			i++;
+		this.attributes = attributes.stream().sorted().toArray(Attribute[]::new);
+		for(int i = 0; i < this.attributes.length; i++) {
+			this.indexMap.put(this.attributes[i], i);
+			this.nameMap.put(this.attributes[i].name, i);
 		}
+		this.hash = this.indexMap.hashCode();
+		this.layout = new RecordLayout(this);
+	}
+	
+	/**
+	 * Gets physical layout of the records of this schema
+	 * @return RecordLayout instance
+	 */
+	RecordLayout layout() {
+		return this.layout;
 	}
 	
 	/**
@@ -144,16 +157,19 @@ public class Schema implements Iterable<Attribute> {
 	
 	@Override
 	public boolean equals(Object other) {
+		if(this == other) {
+			return true;
+		}
 		if(!(other instanceof Schema)) {
 			return false;
 		}
 		Schema s = (Schema)other;
-		return this.indexMap.equals(s.indexMap);
+		return this.hash == s.hash && Arrays.equals(this.attributes, s.attributes);
 	}
 	
 	@Override
 	public int hashCode() {
-		return this.indexMap.hashCode();
+		return this.hash;
 	}
 	
 	/**
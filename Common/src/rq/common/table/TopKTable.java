@@ -3,12 +3,15 @@
  */
 package rq.common.table;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Optional;
-import java.util.PriorityQueue;
 import java.util.stream.Stream;
 
 import rq.common.exceptions.AttributeNotInSchemaException;
@@ -21,21 +24,40 @@ import rq.common.statistic.Statistics;
 import rq.common.table.Record.AttributeValuePair;
 
 /**
+ * Table keeping the k records with the highest rank.
+ * Records tied with the lowest ranked of them are all kept, so the table can hold more than k records.
+ * 
+ * Records are kept in a min-heap by rank, whose entries are indexed by the record values,
+ * so insertion, deletion and rank upgrade take O(log k) and minimal rank O(1).
  * @author Mgr. Radomir Skrabal
  *
  */
 public class TopKTable implements Table {
 	
+	/**
+	 * Record in the heap
+	 */
+	private static final class Entry {
+		private Record record;
+		private int position;
+		
+		private Entry(Record record) {
+			this.record = record;
+		}
+	}
+	
 	public final Statistics statistics = new Statistics(this);
 	
 	private final int k;
 	private final Schema schema;
-	private final PriorityQueue<Record> records;
+	private Entry[] heap;
+	private int size = 0;
+	private final Map<Record.NoRankKey, List<Entry>> index = new HashMap<Record.NoRankKey, List<Entry>>();
 	
 	private TopKTable(Schema schema, int k) {
 		this.k = k;
 		this.schema = schema;
-		this.records = new PriorityQueue<Record>(k, Record.RANK_COMPARATOR_ASC);
+		this.heap = new Entry[Math.max(k, 1) + 1];
 	}
 	
 	public static TopKTable factory(Schema schema, int k) {
@@ -43,11 +65,90 @@ public class TopKTable implements Table {
 	}
 	
 	public double minRank() {
-		if(!this.isEmpty()) {
-			return this.records.peek().rank;
+		if(this.size > 0) {
+			return this.heap[0].record.rank;
 		}
 		return 0.0d;
 	}
+	
+	/**
+	 * @return true if the table holds at least k records
+	 */
+	public boolean isFull() {
+		return this.size >= this.k;
+	}
+	
+	private void place(Entry entry, int position) {
+		this.heap[position] = entry;
+		entry.position = position;
+	}
+	
+	private void siftUp(int position) {
+		Entry entry = this.heap[position];
+		while(position > 0) {
+			int parent = (position - 1) >>> 1;
+			if(this.heap[parent].record.rank <= entry.record.rank) {
+				break;
+			}
+			this.place(this.heap[parent], position);
+			position = parent;
+		}
+		this.place(entry, position);
+	}
+	
+	private void siftDown(int position) {
+		Entry entry = this.heap[position];
+		int half = this.size >>> 1;
+		while(position < half) {
+			int child = 2 * position + 1;
+			int right = child + 1;
+			if(right < this.size && this.heap[right].record.rank < this.heap[child].record.rank) {
+				child = right;
+			}
+			if(entry.record.rank <= this.heap[child].record.rank) {
+				break;
+			}
+			this.place(this.heap[child], position);
+			position = child;
+		}
+		this.place(entry, position);
+	}
+	
+	/**
+	 * Adds entry to the heap and the index
+	 */
+	private void push(Record record) {
+		if(this.size == this.heap.length) {
+			this.heap = Arrays.copyOf(this.heap, this.heap.length * 2);
+		}
+		Entry entry = new Entry(record);
+		this.place(entry, this.size++);
+		this.siftUp(entry.position);
+		this.index.computeIfAbsent(record.noRankKey(), key -> new ArrayList<Entry>(1)).add(entry);
+	}
+	
+	/**
+	 * Removes entry from the heap and the index
+	 */
+	private void remove(Entry entry) {
+		int position = entry.position;
+		Entry last = this.heap[--this.size];
+		this.heap[this.size] = null;
+		if(last != entry) {
+			this.place(last, position);
+			this.siftDown(position);
+			if(last.position == position) {
+				this.siftUp(position);
+			}
+		}
+		
+		Record.NoRankKey key = entry.record.noRankKey();
+		List<Entry> bucket = this.index.get(key);
+		bucket.remove(entry);
+		if(bucket.isEmpty()) {
+			this.index.remove(key);
+		}
+	}
 
 	@Override
 	public Table eval() {
@@ -61,7 +162,22 @@ public class TopKTable implements Table {
 
 	@Override
 	public Iterator<Record> iterator() {
-		return this.records.iterator();
+		return new Iterator<Record>() {
+			private int position = 0;
+
+			@Override
+			public boolean hasNext() {
+				return this.position < size;
+			}
+
+			@Override
+			public Record next() {
+				if(!this.hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return heap[this.position++].record;
+			}
+		};
 	}
 
 	@Override
@@ -70,23 +186,73 @@ public class TopKTable implements Table {
 			throw new TableRecordSchemaMismatch(this.schema, record.schema);
 		}
 		
-		this.records.add(record);
-		if(this.records.size() <= k) {
-			return true;
-		}
+		this.push(record);
+		this.evict();
 		
-		double minRank = this.minRank();
-		int numberOfPolls = 0;
-		List<Record> polled = new LinkedList<Record>();
-		while(this.minRank() == minRank) {
-			polled.add(this.records.poll());
+		return true;
+	}
+	
+	/**
+	 * Removes records with the lowest rank while the table holds more than k records
+	 * and at least k records remain after the removal
+	 */
+	private void evict() {
+		while(this.size > this.k) {
+			double minRank = this.minRank();
+			int ties = this.countRank(0, minRank);
+			if(this.size - ties < this.k) {
+				return;
+			}
+			for(int i = 0; i < ties; i++) {
+				this.remove(this.heap[0]);
+			}
 		}
-		
-		if(this.size() - numberOfPolls < this.k) {
-			for(Record r : polled) {
-				this.records.add(r);
+	}
+	
+	/**
+	 * Counts records of the minimal rank in the subheap, which form a subtree containing the root
+	 */
+	private int countRank(int position, double rank) {
+		if(position >= this.size || this.heap[position].record.rank != rank) {
+			return 0;
+		}
+		return 1 + this.countRank(2 * position + 1, rank) + this.countRank(2 * position + 2, rank);
+	}
+	
+	/**
+	 * Inserts record unless the table already contains a record with the same values and higher or equal rank,
+	 * or the table is full and the record rank is lower than the minimal rank.
+	 * Record with the same values and lower rank is replaced.
+	 * @param record inserted record
+	 * @return true if the table changed, false otherwise
+	 */
+	@Override
+	public boolean upsertIfHigherRank(Record record) throws TableRecordSchemaMismatch {
+		if(!record.schema.equals(this.schema)) {
+			throw new TableRecordSchemaMismatch(this.schema, record.schema);
+		}
+		if(this.size >= this.k && record.rank < this.minRank()) {
+			return false;
+		}
+		List<Entry> bucket = this.index.get(record.noRankKey());
+		if(bucket == null) {
+			this.push(record);
+		}
+		else {
+			for(Entry e : bucket) {
+				if(e.record.rank >= record.rank) {
+					return false;
+				}
 			}
+			while(bucket.size() > 1) {
+				this.remove(bucket.get(bucket.size() - 1));
+			}
+			// Higher rank moves the entry down the min-heap
+			Entry entry = bucket.get(0);
+			entry.record = record;
+			this.siftDown(entry.position);
 		}
+		this.evict();
 		
 		return true;
 	}
@@ -100,37 +266,62 @@ public class TopKTable implements Table {
 
 	@Override
 	public boolean delete(Record record) throws TableRecordSchemaMismatch {
-		return this.records.remove(record);
+		Entry entry = this.find(record);
+		if(entry == null) {
+			return false;
+		}
+		this.remove(entry);
+		return true;
+	}
+	
+	/**
+	 * Finds entry of the record, rank included
+	 */
+	private Entry find(Record record) {
+		List<Entry> bucket = this.index.get(record.noRankKey());
+		if(bucket == null) {
+			return null;
+		}
+		for(Entry e : bucket) {
+			if(e.record.equals(record)) {
+				return e;
+			}
+		}
+		return null;
 	}
 
 	@Override
 	public Stream<Record> stream() {
-		return this.records.stream();
+		return Arrays.stream(this.heap, 0, this.size).map(e -> e.record);
 	}
 
 	@Override
 	public boolean contains(Record record) {
-		return this.records.contains(record);
+		return this.find(record) != null;
 	}
 
 	@Override
 	public boolean containsNoRank(Record record) {
-		return this.stream().anyMatch(r -> record.equalsNoRank(r));
+		return this.index.containsKey(record.noRankKey());
 	}
 
 	@Override
 	public Optional<Record> findNoRank(Record record) {
-		return this.stream().filter(r -> record.equalsNoRank(r)).findFirst();
+		List<Entry> bucket = this.index.get(record.noRankKey());
+		if(bucket == null) {
+			return Optional.empty();
+		}
+		return Optional.of(bucket.get(0).record);
 	}
 
 	@Override
 	public boolean isEmpty() {
-		return this.records.isEmpty();
+		return this.size == 0;
 	}
 
 	@Override
 	public int size() {
-		return this.records.size();
+		return this.size;
 	}
 	
 	@Override
@@ -138,7 +329,7 @@ public class TopKTable implements Table {
 		StringBuilder sb = new StringBuilder();
 		
 		//sb.append(this.schema.toString());
-		for(Record r : this.records) {
+		for(Record r : this) {
 			sb.append(r.toString());
 			sb.append("\n");
 		}
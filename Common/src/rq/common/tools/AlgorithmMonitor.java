@@ -1,7 +1,18 @@
 package rq.common.tools;
 
+import java.util.ArrayList;
+import java.util.List;
+
 public class AlgorithmMonitor {
 	public final Counter generatedTuples = new Counter();
 	public final Counter resultCandidates = new Counter();
+	/**
+	 * Number of fixpoint iterations
+	 */
+	public final Counter iterations = new Counter();
+	/**
+	 * Number of new or rank-improved tuples produced by each iteration
+	 */
+	public final List<Long> deltaSizes = new ArrayList<Long>();
 
 }
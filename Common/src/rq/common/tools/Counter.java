@@ -10,4 +10,8 @@ public class Counter {
 	public void increment() {
 		this.value++;
 	}
+	
+	public void add(long n) {
+		this.value += n;
+	}
 }
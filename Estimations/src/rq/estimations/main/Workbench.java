@@ -88,7 +88,7 @@ public class Workbench {
 		var q = query.apply(data);
 		var rslt = q.eval();
 		
-		var tw = TableWriter.open(Files.newOutputStream(rsltFilePath));
+		var tw = TableWriter.open(rsltFilePath);
 		tw.write(rslt);
 		tw.close();
 		
@@ -0,0 +1,264 @@
+/**
+ *
+ */
+package rq.files.io;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Map;
+
+import rq.common.types.DateTime;
+
+/**
+ * Encodings of the columnar table file.
+ *
+ * The file consists of a header with the schema, the encoded columns and a footer.
+ * Each column, ranks being the last one, is stored contiguously in blocks of fixed number of values.
+ * The footer holds the dictionaries and for each block its offset, length and minimum and maximum
+ * of the values in the encoded domain. The last long of the file is offset of the footer.
+ *
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+final class ColumnarFormat {
+
+	static final int MAGIC = 0x52514354;
+	static final int VERSION = 1;
+
+	/** Raw doubles */
+	static final byte PLAIN = 0;
+	/** Integers as offsets from the block minimum in the least number of bytes */
+	static final byte FRAME_OF_REFERENCE = 1;
+	/** Date times as zig-zag varint differences of epoch seconds and varint nanoseconds */
+	static final byte DELTA = 2;
+	/** Codes into column dictionary of values serialized by the value context */
+	static final byte DICTIONARY = 3;
+
+	private ColumnarFormat() {
+	}
+
+	/**
+	 * Chooses encoding of the domain
+	 * @param domain domain of the column
+	 * @return encoding
+	 */
+	static byte encoding(Class<?> domain) {
+		if(domain.equals(Double.class)) {
+			return PLAIN;
+		}
+		if(domain.equals(Integer.class) || domain.equals(Long.class)) {
+			return FRAME_OF_REFERENCE;
+		}
+		if(domain.equals(DateTime.class) || domain.equals(LocalDateTime.class)) {
+			return DELTA;
+		}
+		return DICTIONARY;
+	}
+
+	/**
+	 * Gets the value in the domain its encoding orders by
+	 * @param encoding encoding of the column
+	 * @param value value of the column
+	 * @param dictionary dictionary of the column, null unless the encoding is DICTIONARY
+	 * @return key of the value
+	 */
+	static long key(byte encoding, Object value, Map<Object, Integer> dictionary) {
+		switch(encoding) {
+		case PLAIN:
+			return ColumnarFormat.sortableBits((Double)value);
+		case FRAME_OF_REFERENCE:
+			return ((Number)value).longValue();
+		case DELTA:
+			return ColumnarFormat.localDateTime(value).toEpochSecond(ZoneOffset.UTC);
+		default:
+			return dictionary.get(value);
+		}
+	}
+
+	/**
+	 * Maps double to long preserving the order
+	 */
+	static long sortableBits(double value) {
+		long bits = Double.doubleToLongBits(value);
+		return bits < 0 ? bits ^ Long.MAX_VALUE : bits;
+	}
+
+	private static LocalDateTime localDateTime(Object value) {
+		if(value instanceof DateTime) {
+			return ((DateTime)value).getInner();
+		}
+		return (LocalDateTime)value;
+	}
+
+	/**
+	 * Encodes block of values
+	 * @param encoding encoding of the column
+	 * @param values values of the block
+	 * @param count number of the values
+	 * @param dictionary dictionary of the column, null unless the encoding is DICTIONARY
+	 * @param min minimal key of the block
+	 * @param max maximal key of the block
+	 * @return encoded block
+	 */
+	static byte[] encode(byte encoding, Object[] values, int count, Map<Object, Integer> dictionary, long min, long max) {
+		switch(encoding) {
+		case PLAIN: {
+			ByteBuffer buffer = ByteBuffer.allocate(count * Double.BYTES);
+			for(int i = 0; i < count; i++) {
+				buffer.putDouble((Double)values[i]);
+			}
+			return buffer.array();
+		}
+		case FRAME_OF_REFERENCE:
+		case DICTIONARY: {
+			int width = ColumnarFormat.width(max - min);
+			ByteBuffer buffer = ByteBuffer.allocate(1 + count * width);
+			buffer.put((byte)width);
+			for(int i = 0; i < count; i++) {
+				ColumnarFormat.putUnsigned(buffer, ColumnarFormat.key(encoding, values[i], dictionary) - min, width);
+			}
+			return buffer.array();
+		}
+		default: {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			long previous = min;
+			for(int i = 0; i < count; i++) {
+				LocalDateTime dt = ColumnarFormat.localDateTime(values[i]);
+				long seconds = dt.toEpochSecond(ZoneOffset.UTC);
+				long delta = seconds - previous;
+				ColumnarFormat.putVarLong(out, (delta << 1) ^ (delta >> 63));
+				ColumnarFormat.putVarLong(out, dt.getNano());
+				previous = seconds;
+			}
+			return out.toByteArray();
+		}
+		}
+	}
+
+	/**
+	 * Decodes block of values
+	 * @param encoding encoding of the column
+	 * @param domain domain of the column
+	 * @param buffer encoded block
+	 * @param count number of the values
+	 * @param dictionary values of the dictionary codes, null unless the encoding is DICTIONARY
+	 * @param min minimal key of the block
+	 * @return decoded values
+	 */
+	static Object[] decode(byte encoding, Class<?> domain, ByteBuffer buffer, int count, Object[] dictionary, long min) {
+		Object[] values = new Object[count];
+		switch(encoding) {
+		case PLAIN:
+			for(int i = 0; i < count; i++) {
+				values[i] = buffer.getDouble();
+			}
+			break;
+		case FRAME_OF_REFERENCE: {
+			int width = buffer.get();
+			boolean isInt = domain.equals(Integer.class);
+			for(int i = 0; i < count; i++) {
+				long value = min + ColumnarFormat.getUnsigned(buffer, width);
+				if(isInt) {
+					values[i] = Integer.valueOf((int)value);
+				}
+				else {
+					values[i] = Long.valueOf(value);
+				}
+			}
+			break;
+		}
+		case DICTIONARY: {
+			int width = buffer.get();
+			for(int i = 0; i < count; i++) {
+				values[i] = dictionary[(int)(min + ColumnarFormat.getUnsigned(buffer, width))];
+			}
+			break;
+		}
+		default: {
+			boolean isDateTime = domain.equals(DateTime.class);
+			long previous = min;
+			for(int i = 0; i < count; i++) {
+				long zigzag = ColumnarFormat.getVarLong(buffer);
+				long seconds = previous + ((zigzag >>> 1) ^ -(zigzag & 1));
+				int nano = (int)ColumnarFormat.getVarLong(buffer);
+				LocalDateTime dt = LocalDateTime.ofEpochSecond(seconds, nano, ZoneOffset.UTC);
+				if(isDateTime) {
+					values[i] = new DateTime(dt);
+				}
+				else {
+					values[i] = dt;
+				}
+				previous = seconds;
+			}
+		}
+		}
+		return values;
+	}
+
+	/**
+	 * Gets number of bytes needed for unsigned value
+	 */
+	private static int width(long range) {
+		if(range < 0 || range >= (1L << 32)) {
+			return Long.BYTES;
+		}
+		if(range >= (1L << 16)) {
+			return Integer.BYTES;
+		}
+		if(range >= (1L << 8)) {
+			return Short.BYTES;
+		}
+		return Byte.BYTES;
+	}
+
+	private static void putUnsigned(ByteBuffer buffer, long value, int width) {
+		switch(width) {
+		case Byte.BYTES:
+			buffer.put((byte)value);
+			break;
+		case Short.BYTES:
+			buffer.putShort((short)value);
+			break;
+		case Integer.BYTES:
+			buffer.putInt((int)value);
+			break;
+		default:
+			buffer.putLong(value);
+		}
+	}
+
+	private static long getUnsigned(ByteBuffer buffer, int width) {
+		switch(width) {
+		case Byte.BYTES:
+			return Byte.toUnsignedLong(buffer.get());
+		case Short.BYTES:
+			return Short.toUnsignedLong(buffer.getShort());
+		case Integer.BYTES:
+			return Integer.toUnsignedLong(buffer.getInt());
+		default:
+			return buffer.getLong();
+		}
+	}
+
+	private static void putVarLong(ByteArrayOutputStream out, long value) {
+		while((value & ~0x7FL) != 0) {
+			out.write((int)((value & 0x7F) | 0x80));
+			value >>>= 7;
+		}
+		out.write((int)value);
+	}
+
+	private static long getVarLong(ByteBuffer buffer) {
+		long value = 0;
+		int shift = 0;
+		byte b;
+		do {
+			b = buffer.get();
+			value |= (long)(b & 0x7F) << shift;
+			shift += 7;
+		} while((b & 0x80) != 0);
+		return value;
+	}
+}
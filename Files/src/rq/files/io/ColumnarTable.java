@@ -0,0 +1,572 @@
+/**
+ *
+ */
+package rq.files.io;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import rq.common.exceptions.AttributeNotInSchemaException;
+import rq.common.exceptions.DuplicateAttributeNameException;
+import rq.common.interfaces.LazyExpression;
+import rq.common.interfaces.SchemaProvider;
+import rq.common.interfaces.Table;
+import rq.common.io.contexts.ClassNotInContextException;
+import rq.common.io.contexts.ValueParserContext;
+import rq.common.statistic.Statistics;
+import rq.common.table.Attribute;
+import rq.common.table.Record;
+import rq.common.table.RecordBuilder;
+import rq.common.table.Schema;
+
+/**
+ * Read only table stored in the columnar table file written by ColumnarTableWriter.
+ * Scans decode only the requested columns and skip blocks whose minimum and maximum rule out the scanned range.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class ColumnarTable implements Table, Closeable {
+
+	/**
+	 * Stored column
+	 */
+	private static class Column {
+		private final Attribute attribute;
+		private final byte encoding;
+		private Object[] dictionary = null;
+		private long[] offsets;
+		private int[] lengths;
+		private long[] mins;
+		private long[] maxs;
+
+		private Column(Attribute attribute, byte encoding) {
+			this.attribute = attribute;
+			this.encoding = encoding;
+		}
+	}
+
+	private final FileChannel channel;
+	private final Schema schema;
+	private final long rowCount;
+	private final int blockSize;
+	private final int blockCount;
+	private final java.util.Map<Attribute, Column> columns = new HashMap<Attribute, Column>();
+	private final Column ranks;
+
+	public final Statistics statistics = new Statistics(this);
+
+	private ColumnarTable(FileChannel channel, Schema schema, long rowCount, int blockSize, Column ranks) {
+		this.channel = channel;
+		this.schema = schema;
+		this.rowCount = rowCount;
+		this.blockSize = blockSize;
+		this.blockCount = (int)((rowCount + blockSize - 1) / blockSize);
+		this.ranks = ranks;
+	}
+
+	/**
+	 * Opens the table file using default value context
+	 * @param path path of the file
+	 * @return ColumnarTable instance
+	 * @throws IOException
+	 * @throws ClassNotFoundException if domain of an attribute cannot be found
+	 * @throws ClassNotInContextException if values of a dictionary encoded column cannot be parsed
+	 */
+	public static ColumnarTable open(Path path) throws IOException, ClassNotFoundException, ClassNotInContextException {
+		return ColumnarTable.open(path, ValueParserContext.DEFAULT);
+	}
+
+	/**
+	 * Opens the table file
+	 * @param path path of the file
+	 * @param context parses values of dictionary encoded columns
+	 * @return ColumnarTable instance
+	 * @throws IOException
+	 * @throws ClassNotFoundException if domain of an attribute cannot be found
+	 * @throws ClassNotInContextException if values of a dictionary encoded column cannot be parsed
+	 */
+	public static ColumnarTable open(Path path, ValueParserContext context)
+			throws IOException, ClassNotFoundException, ClassNotInContextException {
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			DataInputStream header = new DataInputStream(new ByteArrayInputStream(ColumnarTable.read(channel, 0,
+					(int)Math.min(channel.size(), 1 << 16)).array()));
+			if(header.readInt() != ColumnarFormat.MAGIC || header.readInt() != ColumnarFormat.VERSION) {
+				throw new IOException(path + " is not a columnar table file");
+			}
+			long rowCount = header.readLong();
+			int blockSize = header.readInt();
+			Column[] stored = new Column[header.readInt()];
+			for(int i = 0; i < stored.length; i++) {
+				stored[i] = new Column(Attribute.parse(header.readUTF()), header.readByte());
+			}
+
+			Schema schema;
+			try {
+				schema = Schema.factory(Arrays.stream(stored).map(c -> c.attribute).toArray(Attribute[]::new));
+			} catch (DuplicateAttributeNameException e) {
+				throw new IOException(path + " has corrupted schema", e);
+			}
+			ColumnarTable table = new ColumnarTable(channel, schema, rowCount, blockSize,
+					new Column(null, ColumnarFormat.PLAIN));
+
+			long footerOffset = ColumnarTable.read(channel, channel.size() - Long.BYTES, Long.BYTES).getLong();
+			ByteBuffer footerBuffer = ColumnarTable.read(channel, footerOffset, (int)(channel.size() - Long.BYTES - footerOffset));
+			DataInputStream footer = new DataInputStream(new ByteArrayInputStream(footerBuffer.array()));
+			for(int c = 0; c <= stored.length; c++) {
+				Column column = c < stored.length ? stored[c] : table.ranks;
+				if(column.encoding == ColumnarFormat.DICTIONARY) {
+					column.dictionary = new Object[footer.readInt()];
+					for(int i = 0; i < column.dictionary.length; i++) {
+						column.dictionary[i] = context.parseValue(column.attribute.domain, footer.readUTF());
+					}
+				}
+				column.offsets = new long[table.blockCount];
+				column.lengths = new int[table.blockCount];
+				column.mins = new long[table.blockCount];
+				column.maxs = new long[table.blockCount];
+				for(int b = 0; b < table.blockCount; b++) {
+					column.offsets[b] = footer.readLong();
+					column.lengths[b] = footer.readInt();
+					column.mins[b] = footer.readLong();
+					column.maxs[b] = footer.readLong();
+				}
+				if(column.attribute != null) {
+					table.columns.put(column.attribute, column);
+				}
+			}
+			return table;
+		}
+		catch(IOException | ClassNotFoundException | ClassNotInContextException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(length);
+		while(buffer.hasRemaining()) {
+			if(channel.read(buffer, position + buffer.position()) < 0) {
+				break;
+			}
+		}
+		buffer.flip();
+		return buffer;
+	}
+
+	/**
+	 * Decodes block of the column
+	 */
+	private Object[] decode(Column column, int block) {
+		int count = (int)Math.min(this.blockSize, this.rowCount - (long)block * this.blockSize);
+		ByteBuffer buffer;
+		try {
+			buffer = ColumnarTable.read(this.channel, column.offsets[block], column.lengths[block]);
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		Class<?> domain = column.attribute == null ? Double.class : column.attribute.domain;
+		return ColumnarFormat.decode(column.encoding, domain, buffer, count, column.dictionary, column.mins[block]);
+	}
+
+	/**
+	 * Lazy scan of the table
+	 */
+	private class Scan implements LazyExpression, SchemaProvider {
+		private final Schema scanned;
+		private final Column[] read;
+		private final int[] indices;
+		private final RecordBuilder builder;
+		private final Column range;
+		private final Comparable<Object> from;
+		private final Comparable<Object> to;
+		private final long fromKey;
+		private final long toKey;
+		private final Function<Record, Double> predicate;
+		private final Column[] referenced;
+		private final int[] referencedIndices;
+		private final RecordBuilder predicateBuilder;
+
+		private int block = -1;
+		private int row = 0;
+		private int count = 0;
+		private Object[][] values;
+		private Object[] rankValues;
+		private Object[] rangeValues;
+		/** Ranks computed by the predicate, null if there is none */
+		private double[] predicateRanks;
+
+		private Scan(Schema scanned, Column range, Comparable<Object> from, Comparable<Object> to) {
+			this(scanned, range, from, to, null, null);
+		}
+
+		private Scan(Schema scanned, Column range, Comparable<Object> from, Comparable<Object> to,
+				Schema referenced, Function<Record, Double> predicate) {
+			this.scanned = scanned;
+			this.read = new Column[scanned.size()];
+			this.indices = new int[scanned.size()];
+			int i = 0;
+			for(Attribute a : scanned) {
+				this.read[i] = columns.get(a);
+				this.indices[i] = scanned.attributeIndex(a).get();
+				i++;
+			}
+			this.builder = RecordBuilder.factory(scanned);
+			this.range = range;
+			this.from = from;
+			this.to = to;
+			this.fromKey = range == null ? Long.MIN_VALUE : ColumnarTable.this.lowerKey(range, from);
+			this.toKey = range == null ? Long.MAX_VALUE : ColumnarTable.this.upperKey(range, to);
+
+			this.predicate = predicate;
+			if(predicate == null) {
+				this.referenced = null;
+				this.referencedIndices = null;
+				this.predicateBuilder = null;
+			}
+			else {
+				this.referenced = new Column[referenced.size()];
+				this.referencedIndices = new int[referenced.size()];
+				i = 0;
+				for(Attribute a : referenced) {
+					this.referenced[i] = columns.get(a);
+					this.referencedIndices[i] = referenced.attributeIndex(a).get();
+					i++;
+				}
+				this.predicateBuilder = RecordBuilder.factory(referenced);
+			}
+		}
+
+		/**
+		 * Moves to the next block that can contain records in the range
+		 * @return false if there are no more blocks
+		 */
+		private boolean nextBlock() {
+			while(true) {
+				do {
+					this.block++;
+					if(this.block >= blockCount) {
+						return false;
+					}
+				} while(this.range != null
+						&& (this.range.maxs[this.block] < this.fromKey || this.range.mins[this.block] > this.toKey));
+
+				this.rankValues = decode(ranks, this.block);
+				this.rangeValues = this.range == null ? null : decode(this.range, this.block);
+				this.count = this.rankValues.length;
+				this.row = 0;
+
+				java.util.Map<Column, Object[]> decoded = new HashMap<Column, Object[]>();
+				if(this.predicate != null && !this.evaluate(decoded)) {
+					continue;
+				}
+
+				this.values = new Object[this.read.length][];
+				for(int i = 0; i < this.read.length; i++) {
+					Object[] vls = decoded.get(this.read[i]);
+					this.values[i] = vls != null ? vls : decode(this.read[i], this.block);
+				}
+				return true;
+			}
+		}
+
+		/**
+		 * Evaluates predicate on the rows of the current block, decoding only the referenced columns
+		 * @param decoded decoded referenced columns
+		 * @return false if no row of the block satisfies the predicate
+		 */
+		private boolean evaluate(java.util.Map<Column, Object[]> decoded) {
+			Object[][] vls = new Object[this.referenced.length][];
+			for(int i = 0; i < this.referenced.length; i++) {
+				vls[i] = decode(this.referenced[i], this.block);
+				decoded.put(this.referenced[i], vls[i]);
+			}
+			this.predicateRanks = new double[this.count];
+			boolean any = false;
+			for(int r = 0; r < this.count; r++) {
+				Object[] row = new Object[this.referenced.length];
+				for(int i = 0; i < this.referenced.length; i++) {
+					row[this.referencedIndices[i]] = vls[i][r];
+				}
+				double rank = this.predicate.apply(this.predicateBuilder.buildUnchecked(row, (Double)this.rankValues[r]));
+				this.predicateRanks[r] = rank;
+				any |= rank > 0.0d;
+			}
+			return any;
+		}
+
+		@Override
+		public Record next() {
+			while(true) {
+				if(this.row >= this.count && !this.nextBlock()) {
+					return null;
+				}
+				int r = this.row++;
+				if(this.rangeValues != null
+						&& ((this.from != null && this.from.compareTo(this.rangeValues[r]) > 0)
+							|| (this.to != null && this.to.compareTo(this.rangeValues[r]) < 0))) {
+					continue;
+				}
+				double rank = (Double)this.rankValues[r];
+				if(this.predicateRanks != null) {
+					rank = this.predicateRanks[r];
+					if(!(rank > 0.0d)) {
+						continue;
+					}
+				}
+				Object[] vls = new Object[this.read.length];
+				for(int i = 0; i < this.read.length; i++) {
+					vls[this.indices[i]] = this.values[i][r];
+				}
+				return this.builder.buildUnchecked(vls, rank);
+			}
+		}
+
+		@Override
+		public Schema schema() {
+			return this.scanned;
+		}
+
+		@Override
+		public Statistics getStatistics() {
+			return null;
+		}
+
+		@Override
+		public boolean hasStatistics() {
+			return false;
+		}
+	}
+
+	/**
+	 * Gets the least key of values not lesser than bound
+	 */
+	private long lowerKey(Column column, Comparable<Object> bound) {
+		if(bound == null) {
+			return Long.MIN_VALUE;
+		}
+		if(column.encoding != ColumnarFormat.DICTIONARY) {
+			return ColumnarFormat.key(column.encoding, bound, null);
+		}
+		int code = 0;
+		while(code < column.dictionary.length && bound.compareTo(column.dictionary[code]) > 0) {
+			code++;
+		}
+		return code;
+	}
+
+	/**
+	 * Gets the greatest key of values not greater than bound
+	 */
+	private long upperKey(Column column, Comparable<Object> bound) {
+		if(bound == null) {
+			return Long.MAX_VALUE;
+		}
+		if(column.encoding != ColumnarFormat.DICTIONARY) {
+			return ColumnarFormat.key(column.encoding, bound, null);
+		}
+		int code = column.dictionary.length - 1;
+		while(code >= 0 && bound.compareTo(column.dictionary[code]) < 0) {
+			code--;
+		}
+		return code;
+	}
+
+	/**
+	 * Scans all columns of the table
+	 * @return lazy expression of the records
+	 */
+	public LazyExpression scan() {
+		return new Scan(this.schema, null, null, null);
+	}
+
+	/**
+	 * Scans only given columns of the table
+	 * @param attributes scanned attributes
+	 * @return lazy expression of the records projected to the attributes
+	 * @throws AttributeNotInSchemaException if an attribute is not stored
+	 * @throws DuplicateAttributeNameException
+	 */
+	public LazyExpression scan(Collection<Attribute> attributes)
+			throws AttributeNotInSchemaException, DuplicateAttributeNameException {
+		return new Scan(this.projection(attributes), null, null, null);
+	}
+
+	/**
+	 * Scans given columns of records with value of the attribute in the closed range.
+	 * Blocks outside of the range are not read.
+	 * @param attributes scanned attributes
+	 * @param attribute attribute of the range, it does not need to be scanned
+	 * @param from lower bound of the range, null if unbounded
+	 * @param to upper bound of the range, null if unbounded
+	 * @return lazy expression of the records projected to the attributes
+	 * @throws AttributeNotInSchemaException if an attribute is not stored
+	 * @throws DuplicateAttributeNameException
+	 */
+	@SuppressWarnings("unchecked")
+	public LazyExpression scan(Collection<Attribute> attributes, Attribute attribute, Object from, Object to)
+			throws AttributeNotInSchemaException, DuplicateAttributeNameException {
+		Column range = this.columns.get(attribute);
+		if(range == null) {
+			throw new AttributeNotInSchemaException(attribute, this.schema);
+		}
+		if(!Comparable.class.isAssignableFrom(attribute.domain)) {
+			throw new IllegalArgumentException("Attribute " + attribute + " is not comparable");
+		}
+		return new Scan(this.projection(attributes), range, (Comparable<Object>)from, (Comparable<Object>)to);
+	}
+
+	/**
+	 * Scans the table with pushed down restriction and projection.
+	 * Columns referenced by the predicate are decoded first and other columns are decoded only
+	 * for blocks with a record satisfying the predicate.
+	 * @param pushdown restriction and projection
+	 * @return lazy expression of the records
+	 * @throws AttributeNotInSchemaException if an attribute is not stored
+	 * @throws DuplicateAttributeNameException
+	 */
+	public LazyExpression scan(Pushdown pushdown)
+			throws AttributeNotInSchemaException, DuplicateAttributeNameException {
+		Schema scanned = pushdown.columns == null ? this.schema : this.projection(pushdown.columns);
+		if(pushdown.predicate == null) {
+			return new Scan(scanned, null, null, null);
+		}
+		return new Scan(scanned, null, null, null, this.projection(pushdown.referenced), pushdown.predicate);
+	}
+
+	private Schema projection(Collection<Attribute> attributes)
+			throws AttributeNotInSchemaException, DuplicateAttributeNameException {
+		for(Attribute a : attributes) {
+			if(!this.columns.containsKey(a)) {
+				throw new AttributeNotInSchemaException(a, this.schema);
+			}
+		}
+		return Schema.factory(attributes);
+	}
+
+	@Override
+	public Table eval() {
+		return this;
+	}
+
+	@Override
+	public Schema schema() {
+		return this.schema;
+	}
+
+	@Override
+	public boolean insert(Record record) {
+		throw new UnsupportedOperationException("Columnar table is read only");
+	}
+
+	@Override
+	public boolean insert(Collection<Record.AttributeValuePair> values, double rank) {
+		throw new UnsupportedOperationException("Columnar table is read only");
+	}
+
+	@Override
+	public boolean delete(Record record) {
+		throw new UnsupportedOperationException("Columnar table is read only");
+	}
+
+	@Override
+	public boolean upsertIfHigherRank(Record record) {
+		throw new UnsupportedOperationException("Columnar table is read only");
+	}
+
+	@Override
+	public Iterator<Record> iterator() {
+		final LazyExpression scan = this.scan();
+		return new Iterator<Record>() {
+			private Record next = scan.next();
+
+			@Override
+			public boolean hasNext() {
+				return this.next != null;
+			}
+
+			@Override
+			public Record next() {
+				if(this.next == null) {
+					throw new NoSuchElementException("last element");
+				}
+				Record current = this.next;
+				this.next = scan.next();
+				return current;
+			}
+		};
+	}
+
+	@Override
+	public Stream<Record> stream() {
+		return StreamSupport.stream(
+				Spliterators.spliteratorUnknownSize(this.iterator(), Spliterator.ORDERED),
+				false);
+	}
+
+	@Override
+	public boolean contains(Record record) {
+		return this.stream().anyMatch(r -> r.equals(record));
+	}
+
+	@Override
+	public boolean containsNoRank(Record record) {
+		return this.stream().anyMatch(r -> r.equalsNoRank(record));
+	}
+
+	@Override
+	public Optional<Record> findNoRank(Record record) {
+		return this.stream().filter(r -> r.equalsNoRank(record)).findAny();
+	}
+
+	@Override
+	public boolean isEmpty() {
+		return this.rowCount == 0;
+	}
+
+	@Override
+	public int size() {
+		return (int)Math.min(Integer.MAX_VALUE, this.rowCount);
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("ColumnarTable[")
+				.append(this.schema.toString())
+				.append("]")
+				.toString();
+	}
+
+	@Override
+	public Statistics getStatistics() {
+		return this.statistics;
+	}
+
+	@Override
+	public boolean hasStatistics() {
+		return true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.channel.close();
+	}
+}
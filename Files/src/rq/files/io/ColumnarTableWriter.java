@@ -0,0 +1,161 @@
+/**
+ *
+ */
+package rq.files.io;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import rq.common.interfaces.Table;
+import rq.common.io.contexts.ClassNotInContextException;
+import rq.common.io.contexts.ValueSerializerContext;
+import rq.common.table.Attribute;
+import rq.common.table.Record;
+
+/**
+ * Writes table into the columnar table file. Every column is written in its own pass over the table,
+ * so each column is stored contiguously.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class ColumnarTableWriter {
+
+	public static final int DEFAULT_BLOCK_SIZE = 4096;
+
+	private ColumnarTableWriter() {
+	}
+
+	/**
+	 * Writes the table using default block size and serialization context
+	 * @param table written table
+	 * @param path path of the file
+	 * @throws IOException
+	 * @throws ClassNotInContextException if values of a dictionary encoded column cannot be serialized
+	 */
+	public static void write(Table table, Path path) throws IOException, ClassNotInContextException {
+		ColumnarTableWriter.write(table, path, DEFAULT_BLOCK_SIZE, ValueSerializerContext.DEFAULT);
+	}
+
+	/**
+	 * Writes the table
+	 * @param table written table
+	 * @param path path of the file
+	 * @param blockSize number of values in a block
+	 * @param context serializes values of dictionary encoded columns
+	 * @throws IOException
+	 * @throws ClassNotInContextException if values of a dictionary encoded column cannot be serialized
+	 */
+	public static void write(Table table, Path path, int blockSize, ValueSerializerContext context)
+			throws IOException, ClassNotInContextException {
+		Attribute[] attributes = table.schema().stream().toArray(Attribute[]::new);
+		long rowCount = table.stream().count();
+
+		try(DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(path)))) {
+			out.writeInt(ColumnarFormat.MAGIC);
+			out.writeInt(ColumnarFormat.VERSION);
+			out.writeLong(rowCount);
+			out.writeInt(blockSize);
+			out.writeInt(attributes.length);
+			for(Attribute a : attributes) {
+				out.writeUTF(a.serialize());
+				out.writeByte(ColumnarFormat.encoding(a.domain));
+			}
+
+			// DataOutputStream.size saturates at 2 GB, so the position is tracked here
+			long position = out.size();
+			ByteArrayOutputStream footerBytes = new ByteArrayOutputStream();
+			DataOutputStream footer = new DataOutputStream(footerBytes);
+			for(int c = 0; c <= attributes.length; c++) {
+				Attribute attribute = c < attributes.length ? attributes[c] : null;
+				byte encoding = attribute == null ? ColumnarFormat.PLAIN : ColumnarFormat.encoding(attribute.domain);
+
+				Map<Object, Integer> dictionary = null;
+				if(encoding == ColumnarFormat.DICTIONARY) {
+					dictionary = ColumnarTableWriter.dictionary(table, attribute);
+					footer.writeInt(dictionary.size());
+					Object[] values = new Object[dictionary.size()];
+					dictionary.forEach((v, code) -> values[code] = v);
+					for(Object v : values) {
+						footer.writeUTF(context.serializeValue(v));
+					}
+				}
+
+				Object[] block = new Object[blockSize];
+				int count = 0;
+				for(Record record : table) {
+					block[count++] = attribute == null ? (Object)record.rank : record.getNoThrow(attribute);
+					if(count == blockSize) {
+						position = ColumnarTableWriter.writeBlock(out, footer, position, encoding, block, count, dictionary);
+						count = 0;
+					}
+				}
+				if(count > 0) {
+					position = ColumnarTableWriter.writeBlock(out, footer, position, encoding, block, count, dictionary);
+				}
+			}
+
+			footer.flush();
+			footerBytes.writeTo(out);
+			out.writeLong(position);
+		}
+	}
+
+	/**
+	 * Creates dictionary of the column. Codes follow natural order of comparable values, so block minimum and maximum
+	 * of the codes bound the values.
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Map<Object, Integer> dictionary(Table table, Attribute attribute) {
+		Set<Object> distinct = new HashSet<Object>();
+		for(Record record : table) {
+			distinct.add(record.getNoThrow(attribute));
+		}
+		List<Object> values = new ArrayList<Object>(distinct);
+		if(Comparable.class.isAssignableFrom(attribute.domain)) {
+			values.sort((Comparator)Comparator.naturalOrder());
+		}
+		Map<Object, Integer> dictionary = new HashMap<Object, Integer>();
+		for(int i = 0; i < values.size(); i++) {
+			dictionary.put(values.get(i), i);
+		}
+		return dictionary;
+	}
+
+	/**
+	 * Writes block and its directory entry
+	 * @return position following the block
+	 */
+	private static long writeBlock(
+			DataOutputStream out,
+			DataOutputStream footer,
+			long position,
+			byte encoding,
+			Object[] block,
+			int count,
+			Map<Object, Integer> dictionary) throws IOException {
+		long min = Long.MAX_VALUE, max = Long.MIN_VALUE;
+		for(int i = 0; i < count; i++) {
+			long key = ColumnarFormat.key(encoding, block[i], dictionary);
+			min = Math.min(min, key);
+			max = Math.max(max, key);
+		}
+		byte[] encoded = ColumnarFormat.encode(encoding, block, count, dictionary, min, max);
+		footer.writeLong(position);
+		footer.writeInt(encoded.length);
+		footer.writeLong(min);
+		footer.writeLong(max);
+		out.write(encoded);
+		return position + encoded.length;
+	}
+}
@@ -6,6 +6,7 @@ package rq.files.io;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.file.Files;
 import java.nio.file.Path;
 
 import rq.common.table.Schema;
@@ -21,11 +22,17 @@ import rq.common.table.Record;
  */
 public class LazyTable implements Closeable, SchemaProvider, LazyExpression {
 	private RecordReader reader;
+	/** Reader used instead of the record reader */
+	private LazyExpression source;
 	
 	private LazyTable(RecordReader reader) {
 		this.reader = reader;
 	}
 	
+	private <T extends LazyExpression & Closeable> LazyTable(T source) {
+		this.source = source;
+	}
+	
 	public static LazyTable open(Path path)
 			throws IOException {
 			return new LazyTable(RecordReader.open(path, ValueParserContext.DEFAULT));
@@ -36,15 +43,104 @@ public class LazyTable implements Closeable, SchemaProvider, LazyExpression {
 		return new LazyTable(RecordReader.open(stream, ValueParserContext.DEFAULT));
 	}
 	
+	/**
+	 * Opens the table evaluating restriction and projection while parsing the lines
+	 * @param path path of the csv file
+	 * @param pushdown restriction and projection
+	 * @return lazy table
+	 * @throws IOException
+	 */
+	public static LazyTable open(Path path, Pushdown pushdown)
+			throws IOException {
+		return new LazyTable(RecordReader.open(Files.newInputStream(path), ValueParserContext.DEFAULT, pushdown));
+	}
+	
+	/**
+	 * Opens the table parsed by multiple threads, records are returned in order of the file
+	 * @param path path of the csv file
+	 * @param threads number of parsing threads
+	 * @return lazy table
+	 * @throws IOException
+	 */
+	public static LazyTable open(Path path, int threads)
+			throws IOException {
+		return LazyTable.openParallel(path, ValueParserContext.DEFAULT, threads, true);
+	}
+	
+	/**
+	 * Opens the table parsed by multiple threads
+	 * @param path path of the csv file
+	 * @param context parsing context
+	 * @param threads number of parsing threads
+	 * @param ordered if false, records are returned in order they are parsed
+	 * @return lazy table
+	 * @throws IOException
+	 */
+	public static LazyTable openParallel(Path path, ValueParserContext context, int threads, boolean ordered)
+			throws IOException {
+		return LazyTable.openParallel(path, context, threads, ordered, Pushdown.NONE);
+	}
+	
+	/**
+	 * Opens the table parsed by multiple threads, which evaluate restriction and projection
+	 * @param path path of the csv file
+	 * @param context parsing context
+	 * @param threads number of parsing threads
+	 * @param ordered if false, records are returned in order they are parsed
+	 * @param pushdown restriction and projection
+	 * @return lazy table
+	 * @throws IOException
+	 */
+	public static LazyTable openParallel(Path path, ValueParserContext context, int threads, boolean ordered, Pushdown pushdown)
+			throws IOException {
+		return new LazyTable(ParallelRecordReader.open(path, context, threads, ordered, pushdown));
+	}
+	
+	/**
+	 * Opens the table scanning memory mapped file
+	 * @param path path of the csv file
+	 * @param context parsing context
+	 * @return lazy table
+	 * @throws IOException
+	 */
+	public static LazyTable openMapped(Path path, ValueParserContext context)
+			throws IOException {
+		return LazyTable.openMapped(path, context, Pushdown.NONE);
+	}
+	
+	/**
+	 * Opens the table scanning memory mapped file, evaluating restriction and projection on the scanned bytes
+	 * @param path path of the csv file
+	 * @param context parsing context
+	 * @param pushdown restriction and projection
+	 * @return lazy table
+	 * @throws IOException
+	 */
+	public static LazyTable openMapped(Path path, ValueParserContext context, Pushdown pushdown)
+			throws IOException {
+		return new LazyTable(MappedCsvScanner.open(path, context, pushdown));
+	}
+	
+	public static LazyTable openMapped(Path path)
+			throws IOException {
+		return LazyTable.openMapped(path, ValueParserContext.DEFAULT);
+	}
+	
 	@Override
 	public void close() throws IOException {
 		if(this.reader != null) {
 			this.reader.close();
 		}
+		if(this.source != null) {
+			((Closeable)this.source).close();
+		}
 	}
 
 	@Override
 	public Record next() {
+		if(this.source != null) {
+			return this.source.next();
+		}
 		try {
 			return reader.next();
 		}catch(Exception e) {
@@ -54,6 +150,9 @@ public class LazyTable implements Closeable, SchemaProvider, LazyExpression {
 
 	@Override
 	public Schema schema() {
+		if(this.source != null) {
+			return this.source.schema();
+		}
 		try {
 			return reader.schema();
 		}catch(Exception e) {
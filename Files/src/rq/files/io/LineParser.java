@@ -0,0 +1,238 @@
+/**
+ *
+ */
+package rq.files.io;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import rq.common.exceptions.AttributeNotInSchemaException;
+import rq.common.exceptions.DuplicateAttributeNameException;
+import rq.common.exceptions.TypeSchemaMismatchException;
+import rq.common.io.contexts.ClassNotInContextException;
+import rq.common.io.contexts.ValueParserContext;
+import rq.common.table.Attribute;
+import rq.common.table.Record;
+import rq.common.table.RecordBuilder;
+import rq.common.table.Schema;
+import rq.files.helpers.AttributeParser;
+
+/**
+ * Parses csv lines into records. Header is parsed once, so parsing functions and positions of the columns
+ * are resolved once per file.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+final class LineParser {
+
+	/**
+	 * Values of a single line
+	 */
+	interface Fields {
+		/**
+		 * Parses value of the column
+		 * @param column position of the csv column
+		 * @return parsed value
+		 * @throws ClassNotInContextException if the context cannot parse domain of the column
+		 */
+		Object value(int column) throws ClassNotInContextException;
+
+		/**
+		 * Parses rank stored in the column
+		 * @param column position of the rank column
+		 * @return rank
+		 */
+		double rank(int column);
+	}
+
+	private static final String RANK = "rank";
+
+	/** Schema of the parsed records */
+	final Schema schema;
+	/** Attributes of the csv columns, null for the rank column */
+	final List<Attribute> columnOrder;
+	/** Index of the column in the schema, -1 for columns not parsed into the record */
+	private final int[] indices;
+	private final int[] outputColumns;
+	private final Function<String, Object>[] parsers;
+	private final int rankColumn;
+	private final RecordBuilder builder;
+	private final ValueParserContext context;
+
+	private final Function<Record, Double> predicate;
+	private final RecordBuilder predicateBuilder;
+	/** Index of the column in the predicate schema, -1 for columns not referenced by the predicate */
+	private final int[] predicateIndices;
+	private final int[] predicateColumns;
+
+	/**
+	 * Creates the parser from csv header
+	 * @param header columns of the header
+	 * @param context parsing context
+	 * @throws ClassNotFoundException
+	 * @throws DuplicateAttributeNameException
+	 */
+	LineParser(String[] header, ValueParserContext context) throws ClassNotFoundException, DuplicateAttributeNameException {
+		this(header, context, Pushdown.NONE);
+	}
+
+	/**
+	 * Creates the parser from csv header
+	 * @param header columns of the header
+	 * @param context parsing context
+	 * @param pushdown restriction and projection applied to the lines
+	 * @throws ClassNotFoundException
+	 * @throws DuplicateAttributeNameException
+	 * @throws IllegalArgumentException if the pushdown refers attribute not in the header
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	LineParser(String[] header, ValueParserContext context, Pushdown pushdown) throws ClassNotFoundException, DuplicateAttributeNameException {
+		this.context = context;
+		this.columnOrder = new ArrayList<Attribute>();
+		int rank = -1;
+		for(int i = 0; i < header.length; i++) {
+			if(header[i].equals(RANK)) {
+				rank = i;
+				this.columnOrder.add(null);
+			}
+			else {
+				this.columnOrder.add(AttributeParser.parse(header[i]));
+			}
+		}
+		this.rankColumn = rank;
+		Schema fileSchema = Schema.factory(this.columnOrder.stream().filter(x -> x != null).toList());
+		this.schema = pushdown.columns == null ? fileSchema : LineParser.subschema(fileSchema, pushdown.columns);
+		this.builder = RecordBuilder.factory(this.schema);
+
+		this.predicate = pushdown.predicate;
+		this.predicateBuilder = this.predicate == null ? null : RecordBuilder.factory(LineParser.subschema(fileSchema, pushdown.referenced));
+
+		this.indices = new int[header.length];
+		this.predicateIndices = new int[header.length];
+		this.parsers = new Function[header.length];
+		List<Integer> output = new ArrayList<Integer>();
+		List<Integer> referenced = new ArrayList<Integer>();
+		for(int i = 0; i < header.length; i++) {
+			Attribute a = this.columnOrder.get(i);
+			this.indices[i] = -1;
+			this.predicateIndices[i] = -1;
+			if(a == null) {
+				continue;
+			}
+			if(this.schema.contains(a)) {
+				this.indices[i] = this.schema.attributeIndex(a).get();
+				output.add(i);
+			}
+			if(this.predicateBuilder != null && this.predicateBuilder.schema.contains(a)) {
+				this.predicateIndices[i] = this.predicateBuilder.schema.attributeIndex(a).get();
+				referenced.add(i);
+			}
+			try {
+				this.parsers[i] = context.getParsingFunction(a.domain);
+			} catch (ClassNotInContextException e) {
+				// Reported when a value of the column is parsed
+				this.parsers[i] = null;
+			}
+		}
+		this.outputColumns = output.stream().mapToInt(Integer::intValue).toArray();
+		this.predicateColumns = referenced.stream().mapToInt(Integer::intValue).toArray();
+	}
+
+	/**
+	 * Makes schema of the attributes, all of which must be in the file schema
+	 */
+	private static Schema subschema(Schema fileSchema, Collection<Attribute> attributes) throws DuplicateAttributeNameException {
+		for(Attribute a : attributes) {
+			if(!fileSchema.contains(a)) {
+				throw new IllegalArgumentException(new AttributeNotInSchemaException(a, fileSchema));
+			}
+		}
+		return Schema.factory(attributes);
+	}
+
+	/**
+	 * Parses a single line
+	 * @param line values of the line
+	 * @return parsed record, null if the line is dropped by the pushed down predicate
+	 * @throws ClassNotInContextException if the context cannot parse domain of a column
+	 */
+	Record parse(String[] line) throws ClassNotInContextException {
+		return this.parse(new Fields() {
+			@Override
+			public Object value(int column) throws ClassNotInContextException {
+				return LineParser.this.parse(column, line[column]);
+			}
+
+			@Override
+			public double rank(int column) {
+				return Double.parseDouble(line[column]);
+			}
+		});
+	}
+
+	/**
+	 * Parses a single line. Only columns referenced by the predicate are parsed before it is evaluated.
+	 * @param fields values of the line
+	 * @return parsed record, null if the line is dropped by the pushed down predicate
+	 * @throws ClassNotInContextException if the context cannot parse domain of a column
+	 */
+	Record parse(Fields fields) throws ClassNotInContextException {
+		double rank = this.rankColumn < 0 ? 1.0d : fields.rank(this.rankColumn);
+
+		Object[] referenced = null;
+		if(this.predicate != null) {
+			referenced = new Object[this.predicateBuilder.schema.size()];
+			for(int i : this.predicateColumns) {
+				referenced[this.predicateIndices[i]] = fields.value(i);
+			}
+			try {
+				rank = this.predicate.apply(this.predicateBuilder.build(referenced, rank));
+			} catch (TypeSchemaMismatchException e) {
+				// Unlikely
+				throw new RuntimeException(e);
+			}
+			if(!(rank > 0.0d)) {
+				return null;
+			}
+		}
+
+		Object[] values = new Object[this.schema.size()];
+		for(int i : this.outputColumns) {
+			if(referenced != null && this.predicateIndices[i] >= 0) {
+				values[this.indices[i]] = referenced[this.predicateIndices[i]];
+			}
+			else {
+				values[this.indices[i]] = fields.value(i);
+			}
+		}
+		try {
+			return this.builder.build(values, rank);
+		} catch (TypeSchemaMismatchException e) {
+			// Unlikely
+			throw new RuntimeException(e);
+		}
+	}
+
+	/**
+	 * @return number of the csv columns
+	 */
+	int columns() {
+		return this.parsers.length;
+	}
+
+	/**
+	 * Parses a single value of a column
+	 * @param column position of the csv column
+	 * @param value serialized value
+	 * @return parsed value
+	 * @throws ClassNotInContextException if the context cannot parse domain of the column
+	 */
+	Object parse(int column, String value) throws ClassNotInContextException {
+		if(this.parsers[column] == null) {
+			throw new ClassNotInContextException(this.context, this.columnOrder.get(column).domain);
+		}
+		return this.parsers[column].apply(value);
+	}
+}
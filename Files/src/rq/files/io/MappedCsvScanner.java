@@ -0,0 +1,477 @@
+/**
+ *
+ */
+package rq.files.io;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import rq.common.exceptions.DuplicateAttributeNameException;
+import rq.common.interfaces.LazyExpression;
+import rq.common.interfaces.SchemaProvider;
+import rq.common.io.contexts.ClassNotInContextException;
+import rq.common.io.contexts.ValueParserContext;
+import rq.common.statistic.Statistics;
+import rq.common.table.Attribute;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+
+/**
+ * Reads records from a memory mapped csv file.
+ * Delimiters and quotes are found directly in the mapped bytes and numeric columns are parsed
+ * from the bytes without intermediate strings. The header is interpreted the same way as by {@link RecordReader}.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class MappedCsvScanner implements LazyExpression, SchemaProvider, Closeable {
+
+	/** Default number of bytes mapped at once */
+	public static final int WINDOW_BYTES = 1 << 30;
+
+	private static final byte QUOTE = '"';
+	private static final byte DELIMITER = ',';
+	private static final byte NEW_LINE = '\n';
+	private static final byte CARRIAGE_RETURN = '\r';
+	private static final byte SPACE = ' ';
+
+	/** Column domains parsed from bytes */
+	private static final byte OTHER = 0;
+	private static final byte INT = 1;
+	private static final byte DOUBLE = 2;
+
+	/** Powers of ten exactly representable as doubles */
+	private static final double[] POW10 = {
+			1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+			1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+	private static final long MAX_EXACT_MANTISSA = 1L << 53;
+
+	private final FileChannel channel;
+	private final long fileSize;
+	private final Charset charset = Charset.defaultCharset();
+	private final LineParser lineParser;
+	private final byte[] types;
+	private final LineParser.Fields fields = new LineParser.Fields() {
+		@Override
+		public Object value(int column) throws ClassNotInContextException {
+			return MappedCsvScanner.this.value(column);
+		}
+
+		@Override
+		public double rank(int column) {
+			return MappedCsvScanner.this.parseDouble(column);
+		}
+	};
+
+	private int windowBytes;
+	private MappedByteBuffer window;
+	private long windowStart;
+	/** Position of the next line in the window */
+	private int position;
+
+	private int fieldCount;
+	private int[] starts = new int[16];
+	private int[] ends = new int[16];
+	private boolean[] escaped = new boolean[16];
+	private byte[] scratch = new byte[256];
+
+	private MappedCsvScanner(FileChannel channel, ValueParserContext context, int windowBytes, Pushdown pushdown) throws IOException {
+		this.channel = channel;
+		this.fileSize = channel.size();
+		this.windowBytes = windowBytes;
+		this.map(0);
+
+		if(!this.scanLine()) {
+			throw new IOException("Missing csv header");
+		}
+		String[] header = new String[this.fieldCount];
+		for(int i = 0; i < this.fieldCount; i++) {
+			header[i] = this.string(i);
+		}
+		try {
+			this.lineParser = new LineParser(header, context, pushdown);
+		} catch (ClassNotFoundException | DuplicateAttributeNameException e) {
+			throw new IOException("Invalid csv header", e);
+		}
+
+		this.types = new byte[header.length];
+		for(int i = 0; i < header.length; i++) {
+			Attribute a = this.lineParser.columnOrder.get(i);
+			if(a == null || (a.domain.equals(Double.class) && MappedCsvScanner.isDefault(context, Double.class))) {
+				this.types[i] = DOUBLE;
+			}
+			else if(a.domain.equals(Integer.class) && MappedCsvScanner.isDefault(context, Integer.class)) {
+				this.types[i] = INT;
+			}
+			else {
+				this.types[i] = OTHER;
+			}
+		}
+	}
+
+	/**
+	 * Checks whether the context parses the domain by the default function, which is replaced by parsing from bytes
+	 */
+	private static boolean isDefault(ValueParserContext context, Class<?> domain) {
+		try {
+			return context.getParsingFunction(domain) == ValueParserContext.DEFAULT.getParsingFunction(domain);
+		} catch (ClassNotInContextException e) {
+			return false;
+		}
+	}
+
+	public static MappedCsvScanner open(Path path) throws IOException {
+		return MappedCsvScanner.open(path, ValueParserContext.DEFAULT);
+	}
+
+	public static MappedCsvScanner open(Path path, ValueParserContext context) throws IOException {
+		return MappedCsvScanner.open(path, context, WINDOW_BYTES);
+	}
+
+	public static MappedCsvScanner open(Path path, ValueParserContext context, Pushdown pushdown) throws IOException {
+		return MappedCsvScanner.open(path, context, WINDOW_BYTES, pushdown);
+	}
+
+	public static MappedCsvScanner open(Path path, ValueParserContext context, int windowBytes) throws IOException {
+		return MappedCsvScanner.open(path, context, windowBytes, Pushdown.NONE);
+	}
+
+	/**
+	 * Opens the scanner
+	 * @param path path of the csv file
+	 * @param context parsing context
+	 * @param windowBytes number of bytes mapped at once, grows for lines longer than the window
+	 * @param pushdown restriction and projection applied while scanning
+	 * @return scanner
+	 * @throws IOException if the header cannot be read
+	 */
+	public static MappedCsvScanner open(Path path, ValueParserContext context, int windowBytes, Pushdown pushdown) throws IOException {
+		if(windowBytes < 1) {
+			throw new IllegalArgumentException("Window size must be positive");
+		}
+		FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			return new MappedCsvScanner(channel, context, windowBytes, pushdown);
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Maps the window starting at the file position
+	 */
+	private void map(long start) throws IOException {
+		long length = Math.min(this.windowBytes, this.fileSize - start);
+		this.window = this.channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+		this.windowStart = start;
+		this.position = 0;
+	}
+
+	private boolean lastWindow() {
+		return this.windowStart + this.window.limit() >= this.fileSize;
+	}
+
+	/**
+	 * Finds fields of the next non empty line
+	 * @return false at the end of the file
+	 */
+	private boolean scanLine() throws IOException {
+		while(true) {
+			int end = this.scanFields(this.position);
+			if(end >= 0) {
+				this.position = end;
+				if(this.fieldCount == 1 && this.starts[0] == this.ends[0] && !this.escaped[0]) {
+					// Empty line
+					if(end >= this.window.limit() && this.lastWindow()) {
+						return false;
+					}
+					continue;
+				}
+				return true;
+			}
+			// Line crosses end of the window
+			if(this.position == 0) {
+				if(this.windowBytes > Integer.MAX_VALUE / 2) {
+					throw new IOException("Line is longer than the maximal mapping window");
+				}
+				this.windowBytes *= 2;
+			}
+			this.map(this.windowStart + this.position);
+		}
+	}
+
+	/**
+	 * Splits line starting at the position to fields
+	 * @param from start of the line in the window
+	 * @return position after the line or -1 if the line continues in the next window
+	 */
+	private int scanFields(int from) {
+		MappedByteBuffer buffer = this.window;
+		int limit = buffer.limit();
+		boolean last = this.lastWindow();
+		int p = from;
+		this.fieldCount = 0;
+		while(true) {
+			int field = this.fieldCount;
+			if(field == this.starts.length) {
+				this.grow();
+			}
+			this.escaped[field] = false;
+
+			int q = p;
+			while(q < limit && buffer.get(q) == SPACE) {
+				q++;
+			}
+			if(q < limit && buffer.get(q) == QUOTE) {
+				p = q + 1;
+				this.starts[field] = p;
+				while(true) {
+					if(p >= limit) {
+						if(!last) {
+							return -1;
+						}
+						this.ends[field] = p;
+						break;
+					}
+					if(buffer.get(p) == QUOTE) {
+						if(p + 1 < limit && buffer.get(p + 1) == QUOTE) {
+							this.escaped[field] = true;
+							p += 2;
+							continue;
+						}
+						if(p + 1 >= limit && !last) {
+							return -1;
+						}
+						this.ends[field] = p;
+						p++;
+						break;
+					}
+					p++;
+				}
+				while(p < limit && buffer.get(p) != DELIMITER && buffer.get(p) != NEW_LINE) {
+					p++;
+				}
+			}
+			else {
+				this.starts[field] = p;
+				while(p < limit && buffer.get(p) != DELIMITER && buffer.get(p) != NEW_LINE) {
+					p++;
+				}
+				int end = p;
+				if(end > this.starts[field] && buffer.get(end - 1) == CARRIAGE_RETURN) {
+					end--;
+				}
+				this.ends[field] = end;
+			}
+			this.fieldCount++;
+
+			if(p >= limit) {
+				return last ? p : -1;
+			}
+			if(buffer.get(p) == NEW_LINE) {
+				return p + 1;
+			}
+			p++;
+		}
+	}
+
+	private void grow() {
+		int length = this.starts.length * 2;
+		this.starts = Arrays.copyOf(this.starts, length);
+		this.ends = Arrays.copyOf(this.ends, length);
+		this.escaped = Arrays.copyOf(this.escaped, length);
+	}
+
+	/**
+	 * Decodes the field as a string
+	 */
+	private String string(int field) {
+		int length = this.ends[field] - this.starts[field];
+		if(this.scratch.length < length) {
+			this.scratch = new byte[Math.max(length, this.scratch.length * 2)];
+		}
+		this.window.get(this.starts[field], this.scratch, 0, length);
+		String s = new String(this.scratch, 0, length, this.charset);
+		if(this.escaped[field]) {
+			s = s.replace("\"\"", "\"");
+		}
+		return s;
+	}
+
+	/**
+	 * Parses the field as a long without allocation if it contains only an optional sign and digits
+	 */
+	private long parseLong(int field) {
+		MappedByteBuffer buffer = this.window;
+		int p = this.starts[field];
+		int end = this.ends[field];
+		while(p < end && buffer.get(p) == SPACE) {
+			p++;
+		}
+		while(end > p && buffer.get(end - 1) == SPACE) {
+			end--;
+		}
+		boolean negative = false;
+		if(p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+			negative = buffer.get(p) == '-';
+			p++;
+		}
+		if(p == end || end - p > 18 || this.escaped[field]) {
+			return Long.parseLong(this.string(field).strip());
+		}
+		long value = 0;
+		for(; p < end; p++) {
+			int digit = buffer.get(p) - '0';
+			if(digit < 0 || digit > 9) {
+				return Long.parseLong(this.string(field).strip());
+			}
+			value = value * 10 + digit;
+		}
+		return negative ? -value : value;
+	}
+
+	private int parseInt(int field) {
+		long value = this.parseLong(field);
+		if(value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+			return Integer.parseInt(this.string(field).strip());
+		}
+		return (int)value;
+	}
+
+	/**
+	 * Parses the field as a double without allocation if it is a decimal exactly representable
+	 * by the fast path, falls back to {@link Double#parseDouble(String)} otherwise
+	 */
+	private double parseDouble(int field) {
+		MappedByteBuffer buffer = this.window;
+		int p = this.starts[field];
+		int end = this.ends[field];
+		while(p < end && buffer.get(p) == SPACE) {
+			p++;
+		}
+		while(end > p && buffer.get(end - 1) == SPACE) {
+			end--;
+		}
+		boolean negative = false;
+		if(p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+			negative = buffer.get(p) == '-';
+			p++;
+		}
+		long mantissa = 0;
+		int digits = 0;
+		int scale = 0;
+		boolean point = false;
+		boolean any = false;
+		for(; p < end; p++) {
+			byte b = buffer.get(p);
+			if(b >= '0' && b <= '9') {
+				any = true;
+				if(digits == 18) {
+					return Double.parseDouble(this.string(field));
+				}
+				if(mantissa != 0 || b != '0') {
+					digits++;
+				}
+				mantissa = mantissa * 10 + (b - '0');
+				if(point) {
+					scale--;
+				}
+			}
+			else if(b == '.' && !point) {
+				point = true;
+			}
+			else {
+				break;
+			}
+		}
+		if(p < end) {
+			byte b = buffer.get(p);
+			if(b != 'e' && b != 'E') {
+				return Double.parseDouble(this.string(field));
+			}
+			p++;
+			boolean negativeExponent = false;
+			if(p < end && (buffer.get(p) == '-' || buffer.get(p) == '+')) {
+				negativeExponent = buffer.get(p) == '-';
+				p++;
+			}
+			int exponent = 0;
+			if(p == end) {
+				return Double.parseDouble(this.string(field));
+			}
+			for(; p < end; p++) {
+				int digit = buffer.get(p) - '0';
+				if(digit < 0 || digit > 9 || exponent > 1000) {
+					return Double.parseDouble(this.string(field));
+				}
+				exponent = exponent * 10 + digit;
+			}
+			scale += negativeExponent ? -exponent : exponent;
+		}
+		if(!any || mantissa >= MAX_EXACT_MANTISSA || scale < -22 || scale > 22 || this.escaped[field]) {
+			return Double.parseDouble(this.string(field));
+		}
+		double value = scale < 0 ? mantissa / POW10[-scale] : mantissa * POW10[scale];
+		return negative ? -value : value;
+	}
+
+	/**
+	 * Parses value of the csv column from the field of the same position
+	 */
+	private Object value(int column) throws ClassNotInContextException {
+		switch(this.types[column]) {
+		case INT:
+			return this.parseInt(column);
+		case DOUBLE:
+			return this.parseDouble(column);
+		default:
+			return this.lineParser.parse(column, this.string(column));
+		}
+	}
+
+	@Override
+	public Record next() {
+		try {
+			while(this.scanLine()) {
+				int columns = this.lineParser.columns();
+				if(this.fieldCount != columns) {
+					throw new IOException("Line has " + this.fieldCount + " fields, expected " + columns);
+				}
+				Record record = this.lineParser.parse(this.fields);
+				if(record != null) {
+					return record;
+				}
+			}
+			return null;
+		} catch (IOException | ClassNotInContextException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public Schema schema() {
+		return this.lineParser.schema;
+	}
+
+	@Override
+	public Statistics getStatistics() {
+		return null;
+	}
+
+	@Override
+	public boolean hasStatistics() {
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.window = null;
+		this.channel.close();
+	}
+}
@@ -0,0 +1,288 @@
+/**
+ *
+ */
+package rq.files.io;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringReader;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.opencsv.CSVReader;
+import com.opencsv.exceptions.CsvValidationException;
+
+import rq.common.exceptions.DuplicateAttributeNameException;
+import rq.common.interfaces.LazyExpression;
+import rq.common.interfaces.SchemaProvider;
+import rq.common.io.contexts.ClassNotInContextException;
+import rq.common.io.contexts.ValueParserContext;
+import rq.common.statistic.Statistics;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+
+/**
+ * Reads records from a csv file in parallel.
+ * The file is split into chunks of bytes ending at line boundaries, which are parsed on a pool of worker threads.
+ * Records are returned either in the order of the file or in the order the chunks were parsed.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public class ParallelRecordReader implements LazyExpression, SchemaProvider, Closeable {
+
+	/** Default number of bytes of a chunk */
+	public static final int CHUNK_BYTES = 1 << 22;
+
+	private static final byte QUOTE = '"';
+	private static final byte NEW_LINE = '\n';
+
+	private final InputStream stream;
+	private final LineParser lineParser;
+	private final Charset charset = Charset.defaultCharset();
+	private final ExecutorService executor;
+	private final CompletionService<Record[]> completionService;
+	private final Deque<Future<Record[]>> pending = new ArrayDeque<Future<Record[]>>();
+	private final int maxPending;
+	private final boolean ordered;
+	private final int chunkBytes;
+
+	private byte[] carry = new byte[0];
+	private boolean eof = false;
+	private Record[] current = null;
+	private int position = 0;
+
+	private ParallelRecordReader(InputStream stream, ValueParserContext context, int threads, boolean ordered, int chunkBytes, Pushdown pushdown)
+			throws IOException {
+		this.stream = stream;
+		this.ordered = ordered;
+		this.chunkBytes = chunkBytes;
+		this.maxPending = threads * 2;
+		try {
+			this.lineParser = new LineParser(this.readHeader(), context, pushdown);
+		} catch (ClassNotFoundException | DuplicateAttributeNameException | CsvValidationException e) {
+			throw new IOException("Invalid csv header", e);
+		}
+		this.executor = Executors.newFixedThreadPool(threads, r -> {
+			Thread t = new Thread(r, "rq-csv-parser");
+			t.setDaemon(true);
+			return t;
+		});
+		this.completionService = new ExecutorCompletionService<Record[]>(this.executor);
+	}
+
+	public static ParallelRecordReader open(Path path)
+			throws IOException {
+		return ParallelRecordReader.open(path, ValueParserContext.DEFAULT, Runtime.getRuntime().availableProcessors(), true);
+	}
+
+	public static ParallelRecordReader open(Path path, ValueParserContext context, int threads, boolean ordered)
+			throws IOException {
+		return ParallelRecordReader.open(path, context, threads, ordered, Pushdown.NONE);
+	}
+
+	public static ParallelRecordReader open(Path path, ValueParserContext context, int threads, boolean ordered, Pushdown pushdown)
+			throws IOException {
+		return ParallelRecordReader.open(Files.newInputStream(path), context, threads, ordered, CHUNK_BYTES, pushdown);
+	}
+
+	public static ParallelRecordReader open(InputStream stream, ValueParserContext context, int threads, boolean ordered)
+			throws IOException {
+		return ParallelRecordReader.open(stream, context, threads, ordered, CHUNK_BYTES, Pushdown.NONE);
+	}
+
+	/**
+	 * Opens the reader
+	 * @param stream csv data
+	 * @param context parsing context
+	 * @param threads number of parsing threads
+	 * @param ordered if true, records are returned in the order of the file
+	 * @param chunkBytes approximate number of bytes parsed by a single task
+	 * @param pushdown restriction and projection evaluated by the parsing threads
+	 * @return reader
+	 * @throws IOException if the header cannot be read
+	 */
+	public static ParallelRecordReader open(InputStream stream, ValueParserContext context, int threads, boolean ordered, int chunkBytes, Pushdown pushdown)
+			throws IOException {
+		if(threads < 1) {
+			throw new IllegalArgumentException("Number of threads must be positive");
+		}
+		if(chunkBytes < 1) {
+			throw new IllegalArgumentException("Chunk size must be positive");
+		}
+		return new ParallelRecordReader(new BufferedInputStream(stream), context, threads, ordered, chunkBytes, pushdown);
+	}
+
+	/**
+	 * Reads the first line of the file
+	 */
+	private String[] readHeader() throws IOException, CsvValidationException {
+		ByteArrayOutputStream line = new ByteArrayOutputStream();
+		boolean quoted = false;
+		int b = this.stream.read();
+		while(b >= 0 && (quoted || b != NEW_LINE)) {
+			if(b == QUOTE) {
+				quoted = !quoted;
+			}
+			line.write(b);
+			b = this.stream.read();
+		}
+		if(b < 0) {
+			this.eof = true;
+		}
+		try(CSVReader reader = new CSVReader(new StringReader(line.toString(this.charset)))) {
+			String[] header = reader.readNext();
+			if(header == null) {
+				throw new IOException("Missing csv header");
+			}
+			return header;
+		}
+	}
+
+	/**
+	 * Reads next chunk ending at a line boundary
+	 * @return chunk or null at the end of the file
+	 */
+	private byte[] readChunk() throws IOException {
+		byte[] buffer = Arrays.copyOf(this.carry, this.carry.length + this.chunkBytes);
+		int length = this.carry.length;
+		int scanned = 0;
+		boolean quoted = false;
+		while(!this.eof) {
+			int read = this.stream.readNBytes(buffer, length, buffer.length - length);
+			if(read < buffer.length - length) {
+				this.eof = true;
+			}
+			length += read;
+
+			int boundary = -1;
+			for(int i = scanned; i < length; i++) {
+				if(buffer[i] == QUOTE) {
+					quoted = !quoted;
+				}
+				else if(!quoted && buffer[i] == NEW_LINE) {
+					boundary = i;
+				}
+			}
+			scanned = length;
+
+			if(this.eof) {
+				break;
+			}
+			if(boundary >= 0) {
+				this.carry = Arrays.copyOfRange(buffer, boundary + 1, length);
+				return Arrays.copyOf(buffer, boundary + 1);
+			}
+			// Line longer than the chunk
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		this.carry = new byte[0];
+		return length == 0 ? null : Arrays.copyOf(buffer, length);
+	}
+
+	/**
+	 * Parses the chunk
+	 */
+	private Record[] parse(byte[] chunk) throws IOException, CsvValidationException, ClassNotInContextException {
+		List<Record> records = new ArrayList<Record>();
+		try(CSVReader reader = new CSVReader(new StringReader(new String(chunk, this.charset)))) {
+			String[] line = reader.readNext();
+			while(line != null) {
+				Record record = this.lineParser.parse(line);
+				if(record != null) {
+					records.add(record);
+				}
+				line = reader.readNext();
+			}
+		}
+		return records.toArray(new Record[records.size()]);
+	}
+
+	/**
+	 * Submits chunks until enough of them are parsed
+	 */
+	private void submit() throws IOException {
+		while(this.pending.size() < this.maxPending) {
+			byte[] chunk = this.readChunk();
+			if(chunk == null) {
+				return;
+			}
+			if(this.ordered) {
+				this.pending.add(this.executor.submit(() -> this.parse(chunk)));
+			}
+			else {
+				this.pending.add(this.completionService.submit(() -> this.parse(chunk)));
+			}
+		}
+	}
+
+	/**
+	 * Takes next parsed chunk
+	 */
+	private Record[] take() throws InterruptedException, ExecutionException {
+		if(this.ordered) {
+			return this.pending.poll().get();
+		}
+		Future<Record[]> done = this.completionService.take();
+		this.pending.remove(done);
+		return done.get();
+	}
+
+	@Override
+	public Record next() {
+		while(this.current == null || this.position >= this.current.length) {
+			try {
+				this.submit();
+				if(this.pending.isEmpty()) {
+					this.current = null;
+					return null;
+				}
+				this.current = this.take();
+				this.position = 0;
+			} catch (IOException e) {
+				throw new RuntimeException(e);
+			} catch (ExecutionException e) {
+				throw new RuntimeException(e.getCause());
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException(e);
+			}
+		}
+		return this.current[this.position++];
+	}
+
+	@Override
+	public Schema schema() {
+		return this.lineParser.schema;
+	}
+
+	@Override
+	public Statistics getStatistics() {
+		return null;
+	}
+
+	@Override
+	public boolean hasStatistics() {
+		return false;
+	}
+
+	@Override
+	public void close() throws IOException {
+		this.executor.shutdownNow();
+		this.stream.close();
+	}
+}
@@ -0,0 +1,68 @@
+/**
+ *
+ */
+package rq.files.io;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Function;
+
+import rq.common.table.Attribute;
+import rq.common.table.Record;
+
+/**
+ * Restriction and projection evaluated by a reader while parsing the file.
+ * The predicate gets record containing only the referenced attributes and the rank of the line,
+ * lines evaluated to rank 0 are dropped before the rest of their columns is parsed.
+ * Surviving records get the rank returned by the predicate, same as by LazyRestriction.
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+public final class Pushdown {
+
+	/** Reads all columns of all lines */
+	public static final Pushdown NONE = new Pushdown(null, List.of(), null);
+
+	/** Attributes of the read records, null for all attributes of the file */
+	public final Collection<Attribute> columns;
+	/** Attributes the predicate reads */
+	public final Collection<Attribute> referenced;
+	/** Predicate computing rank of the record, null if lines are not restricted */
+	public final Function<Record, Double> predicate;
+
+	private Pushdown(Collection<Attribute> columns, Collection<Attribute> referenced, Function<Record, Double> predicate) {
+		this.columns = columns;
+		this.referenced = referenced;
+		this.predicate = predicate;
+	}
+
+	/**
+	 * Creates pushdown of both restriction and projection
+	 * @param columns attributes of the read records, null for all attributes
+	 * @param referenced attributes the predicate reads
+	 * @param predicate predicate computing rank of the record
+	 * @return pushdown
+	 */
+	public static Pushdown factory(Collection<Attribute> columns, Collection<Attribute> referenced, Function<Record, Double> predicate) {
+		return new Pushdown(columns, referenced, predicate);
+	}
+
+	/**
+	 * Creates pushdown of a projection
+	 * @param columns attributes of the read records
+	 * @return pushdown
+	 */
+	public static Pushdown projection(Collection<Attribute> columns) {
+		return new Pushdown(columns, List.of(), null);
+	}
+
+	/**
+	 * Creates pushdown of a restriction
+	 * @param referenced attributes the predicate reads
+	 * @param predicate predicate computing rank of the record
+	 * @return pushdown
+	 */
+	public static Pushdown restriction(Collection<Attribute> referenced, Function<Record, Double> predicate) {
+		return new Pushdown(null, referenced, predicate);
+	}
+}
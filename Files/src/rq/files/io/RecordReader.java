@@ -11,25 +11,16 @@ import java.io.Reader;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.ArrayList;
-import java.util.List;
-import java.util.function.Function;
-import java.util.stream.Collectors;
 
 import com.opencsv.CSVReader;
 import com.opencsv.exceptions.CsvValidationException;
 
-import rq.common.exceptions.AttributeNotInSchemaException;
 import rq.common.exceptions.DuplicateAttributeNameException;
-import rq.common.exceptions.TypeSchemaMismatchException;
 import rq.common.io.contexts.ClassNotInContextException;
 import rq.common.io.contexts.ValueParserContext;
-import rq.common.table.Attribute;
 import rq.common.table.Record;
 import rq.common.table.Schema;
 import rq.files.exceptions.ColumnOrderingNotInitializedException;
-import rq.files.helpers.AttributeParser;
-import rq.files.helpers.ValueParser;
 
 /**
  * Reads record from a csv file
@@ -40,13 +31,14 @@ public class RecordReader implements Closeable {
 	
 	private CSVReader reader;
 	private Schema schema = null;
-	private List<Attribute> columnOrder = null;
+	private LineParser lineParser = null;
 	private ValueParserContext context;
-	private Function<String[], Double> rankParser = (String[] s) -> 1.0d;
+	private final Pushdown pushdown;
 	
-	private RecordReader(CSVReader reader, ValueParserContext context) {
+	private RecordReader(CSVReader reader, ValueParserContext context, Pushdown pushdown) {
 		this.reader = reader;
 		this.context = context;
+		this.pushdown = pushdown;
 	}
 	
 	public static RecordReader open(Path path)
@@ -61,10 +53,23 @@ public class RecordReader implements Closeable {
 	}
 	
 	public static RecordReader open(InputStream stream, ValueParserContext context) 
+		throws IOException {
+		return RecordReader.open(stream, context, Pushdown.NONE);
+	}
+	
+	/**
+	 * Opens the reader evaluating restriction and projection while parsing the lines
+	 * @param stream
+	 * @param context
+	 * @param pushdown
+	 * @return record reader
+	 * @throws IOException
+	 */
+	public static RecordReader open(InputStream stream, ValueParserContext context, Pushdown pushdown) 
 		throws IOException {
 		Reader sReader = new InputStreamReader(stream);
 		CSVReader csvReader = new CSVReader(sReader);
-		return new RecordReader(csvReader, context);
+		return new RecordReader(csvReader, context, pushdown);
 	}
 	
 	public static RecordReader open(InputStream stream)
@@ -86,22 +91,9 @@ public class RecordReader implements Closeable {
 	 * @throws DuplicateAttributeNameException 
 	 */
 	private Schema parseSchema(String[] headers) throws ClassNotFoundException, DuplicateAttributeNameException {
-		this.columnOrder = new ArrayList<Attribute>();
-		
-		for(int i = 0; i < headers.length; i++) {
-			String s = headers[i];
-			if(!s.equals("rank")) {
-				this.columnOrder.add(AttributeParser.parse(s));
-			} else {
-				final int j = i;
-				this.rankParser = (String[] r) -> Double.parseDouble(r[j]);
-				this.columnOrder.add(null);
-			}
-		}
-		
-		Schema s = Schema.factory(this.columnOrder.stream().filter(x -> x != null).collect(Collectors.toList()));
-		this.schema = s;
-		return s;
+		this.lineParser = new LineParser(headers, this.context, this.pushdown);
+		this.schema = this.lineParser.schema;
+		return this.schema;
 	}
 	
 	public Schema schema() throws CsvValidationException, ClassNotFoundException, DuplicateAttributeNameException, IOException {
@@ -114,38 +106,16 @@ public class RecordReader implements Closeable {
 	/**
 	 * Parses a single line
 	 * @param line string data
-	 * @return parsed record
+	 * @return parsed record, null if the line is dropped by the pushed down predicate
 	 * @throws ColumnOrderingNotInitializedException
 	 * @throws ClassNotInContextException
 	 */
 	private Record parseLine(String[] line) 
 		throws ColumnOrderingNotInitializedException, ClassNotInContextException{
-		if(this.columnOrder == null) {
+		if(this.lineParser == null) {
 			throw new ColumnOrderingNotInitializedException();
 		}
-		List<Record.AttributeValuePair> l = new ArrayList<Record.AttributeValuePair>();
-		int i = 0;
-		for(Attribute a : this.columnOrder) {
-			if(a!= null) {
-				Object o = ValueParser.parse(a, line[i], this.context);
-				Record.AttributeValuePair pair = new Record.AttributeValuePair(a, o);
-				l.add(pair);
-			}
-			i++;
-		}
-		
-		Record r;
-		try {
-			r = Record.factory(
-					this.schema, 
-					l, 
-					this.rankParser.apply(line));
-		} catch (TypeSchemaMismatchException | AttributeNotInSchemaException e) {
-			// Unlikely
-			throw new RuntimeException(e);
-		}
-		
-		return r;
+		return this.lineParser.parse(line);
 	}
 	
 	public Record next() throws CsvValidationException, ClassNotFoundException, DuplicateAttributeNameException,
@@ -154,11 +124,14 @@ public class RecordReader implements Closeable {
 			this.schema = this.schema();
 		}
 		String[] line = this.reader.readNext();
-		if(line == null) {
-			return null;
+		while(line != null) {
+			Record record = this.parseLine(line);
+			if(record != null) {
+				return record;
+			}
+			line = this.reader.readNext();
 		}
-		Record record = this.parseLine(line);
-		return record;
+		return null;
 	}
 
 	@Override
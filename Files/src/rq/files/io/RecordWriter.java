@@ -3,12 +3,17 @@
  */
 package rq.files.io;
 
+import java.io.BufferedWriter;
 import java.io.Closeable;
 import java.io.FileOutputStream;
 import java.io.Flushable;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 
 import com.opencsv.CSVWriter;
 
@@ -29,9 +34,18 @@ import rq.files.helpers.ValueSerializer;
  */
 public class RecordWriter implements Closeable, Flushable {
 	
+	/** Size of the character buffer of the writer */
+	public static final int BUFFER_CHARS = 1 << 16;
+	/** Suffix of the files written gzip compressed */
+	public static final String GZIP_SUFFIX = ".gz";
+	
 	private final CSVWriter writer;
 	private final ValueSerializerContext context;
 	private Schema schema;
+	/** Serializers of the header attributes in iteration order, null if resolved per value */
+	private Function<Object, String>[] serializers;
+	/** Last record schema found equal to the header schema */
+	private Schema matched;
 	
 	private RecordWriter(CSVWriter writer, ValueSerializerContext context) {
 		this.writer = writer;
@@ -41,10 +55,40 @@ public class RecordWriter implements Closeable, Flushable {
 	
 	public static RecordWriter open(OutputStream stream, ValueSerializerContext context) {
 		OutputStreamWriter osWriter = new OutputStreamWriter(stream);
-		CSVWriter writer = new CSVWriter(osWriter);
+		CSVWriter writer = new CSVWriter(new BufferedWriter(osWriter, BUFFER_CHARS));
 		return new RecordWriter(writer, context);
 	}
 	
+	/**
+	 * Opens the writer compressing the output by gzip
+	 * @param stream
+	 * @param context
+	 * @return RecordWriter instance
+	 * @throws IOException
+	 */
+	public static RecordWriter openGzip(OutputStream stream, ValueSerializerContext context) throws IOException {
+		return RecordWriter.open(new GZIPOutputStream(stream, BUFFER_CHARS), context);
+	}
+	
+	/**
+	 * Opens the writer of a file, files with .gz suffix are gzip compressed
+	 * @param path
+	 * @param context
+	 * @return RecordWriter instance
+	 * @throws IOException
+	 */
+	public static RecordWriter open(Path path, ValueSerializerContext context) throws IOException {
+		OutputStream stream = Files.newOutputStream(path);
+		if(path.getFileName().toString().endsWith(GZIP_SUFFIX)) {
+			return RecordWriter.openGzip(stream, context);
+		}
+		return RecordWriter.open(stream, context);
+	}
+	
+	public static RecordWriter open(Path path) throws IOException {
+		return RecordWriter.open(path, ValueSerializerContext.DEFAULT);
+	}
+	
 	public static RecordWriter open(OutputStream stream) {
 		return RecordWriter.open(stream, ValueSerializerContext.DEFAULT);
 	}
@@ -78,10 +122,47 @@ public class RecordWriter implements Closeable, Flushable {
 			throw new DuplicateHeaderWriteException(this.schema, schema);
 		}
 		this.schema = schema;
+		this.serializers = this.resolveSerializers(schema);
 		String[] header = this.serializeHeader(schema);
 		this.writer.writeNext(header);
 	}
 	
+	/**
+	 * Resolves serializing functions of the schema attributes
+	 * @param schema
+	 * @return functions in iteration order of the schema
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	private Function<Object, String>[] resolveSerializers(Schema schema) {
+		Function<Object, String>[] resolved = new Function[schema.size()];
+		int i = 0;
+		for(Attribute a : schema) {
+			try {
+				resolved[i] = this.context.getSerializingFunction(a.domain);
+			} catch (ClassNotInContextException e) {
+				// Resolved by the class of each value
+				resolved[i] = null;
+			}
+			i++;
+		}
+		return resolved;
+	}
+	
+	/**
+	 * Checks whether serializers of the header can be used for the schema
+	 * @param schema
+	 * @return true if the schema is equal to the header schema
+	 */
+	private boolean matchesHeader(Schema schema) {
+		if(schema != this.matched) {
+			if(!schema.equals(this.schema)) {
+				return false;
+			}
+			this.matched = schema;
+		}
+		return true;
+	}
+	
 	/**
 	 * Serializes a single record
 	 * @param record
@@ -100,7 +181,13 @@ public class RecordWriter implements Closeable, Flushable {
 				throw new RuntimeException(e);
 			}
 			
-			String s = ValueSerializer.serialize(value, this.context);
+			String s;
+			if(this.serializers[i] != null && this.matchesHeader(record.schema)) {
+				s = this.serializers[i].apply(value);
+			}
+			else {
+				s = ValueSerializer.serialize(value, this.context);
+			}
 			
 			serialized[i] = s;
 			i++;
@@ -142,7 +229,20 @@ public class RecordWriter implements Closeable, Flushable {
 		this.writer.flush();;		
 	}
 	
+	/**
+	 * Writes all records of the expression without materializing them
+	 * @param exp
+	 * @throws ClassNotInContextException
+	 */
 	public void writeLazyExpression(LazyExpression exp) throws ClassNotInContextException {
+		if(this.schema == null) {
+			try {
+				this.writeHeader(exp.schema());
+			}catch(DuplicateHeaderWriteException e) {
+				//Unlikely
+				throw new RuntimeException(e);
+			}
+		}
 		var record = exp.next();
 		while(record != null) {
 			this.writeRecord(record);
@@ -28,6 +28,7 @@ import rq.common.io.contexts.ValueParserContext;
  */
 public class TableReader implements Closeable{	
 	private RecordReader recordReader;
+	private ParallelRecordReader parallelReader;
 	private final Function<Schema, Table> tableSupplier;
 	
 	private TableReader(RecordReader recordReader, Function<Schema, Table> schemaSupplier) {
@@ -35,6 +36,11 @@ public class TableReader implements Closeable{
 		this.tableSupplier = schemaSupplier;
 	}
 	
+	private TableReader(ParallelRecordReader parallelReader, Function<Schema, Table> schemaSupplier) {
+		this.parallelReader = parallelReader;
+		this.tableSupplier = schemaSupplier;
+	}
+	
 	public static TableReader open(Path path)
 		throws IOException {
 		return TableReader.open(path, ValueParserContext.DEFAULT);
@@ -74,6 +80,25 @@ public class TableReader implements Closeable{
 		return TableReader.openMappedToFile(stream, ValueParserContext.DEFAULT, capacity);
 	}
 	
+	/**
+	 * Opens reader parsing the file by multiple threads
+	 * @param path path of the csv file
+	 * @param context parsing context
+	 * @param threads number of parsing threads
+	 * @return table reader
+	 * @throws IOException
+	 */
+	public static TableReader openParallel(Path path, ValueParserContext context, int threads)
+		throws IOException {
+		ParallelRecordReader reader = ParallelRecordReader.open(path, context, threads, false);
+		return new TableReader(reader, (Schema s) -> new MemoryTable(s));
+	}
+	
+	public static TableReader openParallel(Path path, int threads)
+		throws IOException {
+		return TableReader.openParallel(path, ValueParserContext.DEFAULT, threads);
+	}
+	
 	public static TableReader open(String path)
 		throws IOException {
 		Path p = Paths.get(path);
@@ -92,6 +117,9 @@ public class TableReader implements Closeable{
 	 * @throws ClassNotInContextException
 	 */
 	public Table read() {
+		if(this.parallelReader != null) {
+			return this.readParallel();
+		}
 		try {
 			Schema schema = this.recordReader.schema();
 			Table table = this.tableSupplier.apply(schema);
@@ -110,8 +138,32 @@ public class TableReader implements Closeable{
 		}
 	}
 
+	/**
+	 * Reads the table by the parallel reader
+	 */
+	private Table readParallel() {
+		Table table = this.tableSupplier.apply(this.parallelReader.schema());
+		try {
+			Record record = this.parallelReader.next();
+			while (record != null) {
+				table.insert(record);
+				record = this.parallelReader.next();
+			}
+		}
+		catch (TableRecordSchemaMismatch e) {
+			// Unlikely
+			throw new RuntimeException(e);
+		}
+		return table;
+	}
+
 	@Override
 	public void close() throws IOException {
-		this.recordReader.close();
+		if(this.recordReader != null) {
+			this.recordReader.close();
+		}
+		if(this.parallelReader != null) {
+			this.parallelReader.close();
+		}
 	}
 }
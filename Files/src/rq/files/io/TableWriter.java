@@ -3,9 +3,9 @@ package rq.files.io;
 import java.io.Closeable;
 import java.io.IOException;
 import java.io.OutputStream;
-import java.nio.file.Files;
 import java.nio.file.Path;
 
+import rq.common.interfaces.LazyExpression;
 import rq.common.interfaces.Table;
 import rq.common.io.contexts.ClassNotInContextException;
 import rq.common.io.contexts.ValueSerializerContext;
@@ -43,6 +43,27 @@ public class TableWriter implements Closeable {
 		return new TableWriter(RecordWriter.open(stream, context));
 	}
 	
+	/**
+	 * Opens the writer of a file, files with .gz suffix are gzip compressed
+	 * @param path
+	 * @param context
+	 * @return TableWritter instance
+	 * @throws IOException
+	 */
+	public static TableWriter open(Path path, ValueSerializerContext context) throws IOException {
+		return new TableWriter(RecordWriter.open(path, context));
+	}
+	
+	/**
+	 * Opens the writer of a file, files with .gz suffix are gzip compressed
+	 * @param path
+	 * @return TableWritter instance
+	 * @throws IOException
+	 */
+	public static TableWriter open(Path path) throws IOException {
+		return TableWriter.open(path, ValueSerializerContext.DEFAULT);
+	}
+	
 	/**
 	 * Writes the table into a file
 	 * @param oTable
@@ -57,6 +78,17 @@ public class TableWriter implements Closeable {
 		}
 		this.recordWriter.flush();
 	}
+	
+	/**
+	 * Writes records of the expression into a file without materializing a table
+	 * @param exp
+	 * @throws ClassNotInContextException
+	 * @throws IOException
+	 */
+	public void write(LazyExpression exp) throws ClassNotInContextException, IOException {
+		this.recordWriter.writeLazyExpression(exp);
+		this.recordWriter.flush();
+	}
 
 	@Override
 	public void close() throws IOException {
@@ -67,8 +99,14 @@ public class TableWriter implements Closeable {
 	}
 	
 	public static void spit(Table table, Path path) throws IOException, ClassNotInContextException, DuplicateHeaderWriteException {
-		var tw = TableWriter.open(Files.newOutputStream(path));
+		var tw = TableWriter.open(path);
 		tw.write(table);
 		tw.close();
 	}
+	
+	public static void spit(LazyExpression exp, Path path) throws IOException, ClassNotInContextException {
+		var tw = TableWriter.open(path);
+		tw.write(exp);
+		tw.close();
+	}
 }
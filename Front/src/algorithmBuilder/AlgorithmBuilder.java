@@ -21,6 +21,7 @@ public abstract class AlgorithmBuilder {
 	protected final Function<Table, Function<Table, LazyExpression>> recursiveExpressionProvider;
 	protected final Function<Table, LazyExpression> postprocessProvider;
 	protected final int k;
+	protected int parallelism = 1;
 	
 	protected AlgorithmBuilder(
 			Function<Table, LazyExpression> initialExpressionProvider,
@@ -33,6 +34,14 @@ public abstract class AlgorithmBuilder {
 		this.k = k;
 	}
 	
+	/**
+	 * Sets number of threads used by parallel algorithms
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		this.parallelism = parallelism;
+	}
+	
 	public abstract TabularExpression buildMainQuery(Table iTable, AlgorithmMonitor monitor);
 	public abstract TabularExpression buildPostprocessQuery(Table iTable);
 	
@@ -44,7 +53,9 @@ public abstract class AlgorithmBuilder {
 					AlgorithmBuilderUnrestricted.class,
 					AlgorithmBuilderTransformed.class,
 					AlgorithmBuilderTransformed_topKPruning.class,
-					AlgorithmBuilderTopK.class);
+					AlgorithmBuilderTopK.class,
+					AlgorithmBuilderSemiNaive.class,
+					AlgorithmBuilderParallel.class);
 	
 	/**
 	 * List of algorithm names
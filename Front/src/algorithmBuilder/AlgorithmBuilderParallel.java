@@ -0,0 +1,43 @@
+package algorithmBuilder;
+
+import java.util.function.Function;
+
+import annotations.BuildsAlgorithm;
+import rq.common.algorithms.LazyRecursiveParallel;
+import rq.common.interfaces.LazyExpression;
+import rq.common.interfaces.Table;
+import rq.common.interfaces.TabularExpression;
+import rq.common.table.TopKTable;
+import rq.common.tools.AlgorithmMonitor;
+
+@BuildsAlgorithm(LazyRecursiveParallel.class)
+public class AlgorithmBuilderParallel extends AlgorithmBuilder {
+	
+	public AlgorithmBuilderParallel(Function<Table, LazyExpression> initialExpressionProvider,
+			Function<Table, Function<Table, LazyExpression>> recursiveExpressionProvider,
+			Function<Table, LazyExpression> postprocessProvider,
+			Integer k) {
+		super(initialExpressionProvider, recursiveExpressionProvider, postprocessProvider, k);
+	}
+
+	@Override
+	public TabularExpression buildMainQuery(Table iTable, AlgorithmMonitor monitor) {
+		TabularExpression exp = null;
+		
+		exp = LazyRecursiveParallel.factory(
+				this.initialExpressionProvider.apply(iTable), 
+				this.recursiveExpressionProvider.apply(iTable),
+				this.parallelism,
+				monitor);
+		
+		return exp;
+	}
+
+	@Override
+	public TabularExpression buildPostprocessQuery(Table iTable) {
+		return TopKTable.realizer(
+				this.postprocessProvider.apply(iTable), 
+				this.k);
+	}
+
+}
@@ -1,6 +1,9 @@
 package data;
 
+import java.util.function.Function;
+
 import rq.common.table.Attribute;
+import rq.common.table.Record;
 import rq.common.types.DateTime;
 import rq.common.types.Str10;
 
@@ -16,5 +19,11 @@ public class Electricity {
 	public final static Attribute peaks = new Attribute("PEAKS", Integer.class);
 	// Computed columns
 	public final static Attribute aTime = new Attribute("addedTime", DateTime.class);
+	
+	/**
+	 * Keeps records with value above the moving average
+	 */
+	public final static Function<Record, Double> ABOVE_AVERAGE =
+			r -> (Double)r.getNoThrow(value) > (Double)r.getNoThrow(movingAvg) ? r.rank : 0.0d;
 
 }
@@ -19,6 +19,7 @@ import rq.common.interfaces.LazyExpression;
 import rq.common.interfaces.Table;
 import rq.common.interfaces.TabularExpression;
 import rq.common.tools.AlgorithmMonitor;
+import rq.files.io.Pushdown;
 
 public abstract class Queries2 {
 	private final Class<? extends LazyRecursive> algorithm;
@@ -41,6 +42,31 @@ public abstract class Queries2 {
 		return Integer.toString(this.k);
 	}
 	
+	protected int threads = Runtime.getRuntime().availableProcessors();
+	
+	/**
+	 * Parameters of the recursive algorithm
+	 */
+	private static final List<String> ALGORITHM_PARAMETERS = Arrays.asList("K", "THREADS");
+	
+	@QueryParameter("THREADS")
+	public void setThreads(String threads) {
+		this.threads = Integer.parseInt(threads);
+	}
+	
+	@QueryParameterGetter("THREADS")
+	public String getThreads() {
+		return Integer.toString(this.threads);
+	}
+	
+	/**
+	 * Gets number of threads used by the query and by reading its input
+	 * @return number of threads
+	 */
+	public int threads() {
+		return this.threads;
+	}
+	
 	protected Queries2(
 			Class<? extends LazyRecursive> algorithm,
 			AlgorithmMonitor monitor) {
@@ -57,6 +83,7 @@ public abstract class Queries2 {
 					this.recursiveStepProvider(), 
 					this.postprocessProvider(),
 					this.k);
+			this.algorithmBuilder.setParallelism(this.threads);
 			}catch(Exception e) {
 				throw new RuntimeException(e);
 			}
@@ -105,6 +132,15 @@ public abstract class Queries2 {
 	 */
 	public abstract LazyExpression preprocess(LazyExpression iTable);
 	
+	/**
+	 * Restriction evaluated while the input file is parsed, before the preprocessing query.
+	 * It must not change the result of the preprocessing query.
+	 * @return pushdown
+	 */
+	public Pushdown pushdown() {
+		return Pushdown.NONE;
+	}
+	
 	/**
 	 * Buils main query of the experiment
 	 * @param iTable
@@ -150,6 +186,34 @@ public abstract class Queries2 {
 	 * @return string
 	 */
 	public String parameterString() {
+		return 
+			this.parameterMap().entrySet().stream()
+				.map(e -> e.toString())
+				.reduce((s1, s2) -> new StringBuilder().append(s1).append("_").append(s2).toString())
+				.get();
+	}
+	
+	/**
+	 * Returns identifier of the data prepared by the pushdown and preprocess query.
+	 * It contains name of the query and values of its parameters, except parameters of the recursive algorithm,
+	 * which do not change the prepared data.
+	 * @return identifier string
+	 */
+	public String preparedDataIdentificator() {
+		Map<String, String> parmMap = this.parameterMap();
+		parmMap.keySet().removeAll(ALGORITHM_PARAMETERS);
+		StringBuilder sb = new StringBuilder(this.getClass().getAnnotation(CallingArg.class).value());
+		for(Map.Entry<String, String> e : parmMap.entrySet()) {
+			sb.append("_").append(e);
+		}
+		return sb.toString();
+	}
+	
+	/**
+	 * Gets values of all query parameters sorted by parameter name
+	 * @return map of values
+	 */
+	private Map<String, String> parameterMap() {
 		Class<? extends Queries2> clazz = this.getClass();
 		
 		Map<String, String> parmMap = new TreeMap<String, String>();
@@ -166,11 +230,7 @@ public abstract class Queries2 {
 			}
 		}
 		
-		return 
-			parmMap.entrySet().stream()
-				.map(e -> e.toString())
-				.reduce((s1, s2) -> new StringBuilder().append(s1).append("_").append(s2).toString())
-				.get();
+		return parmMap;
 	}
 	
 	/**
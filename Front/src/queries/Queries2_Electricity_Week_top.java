@@ -1,6 +1,7 @@
 package queries;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.function.Function;
 
 import annotations.CallingArg;
@@ -24,6 +25,7 @@ import rq.common.operators.Projection;
 import rq.common.similarities.LinearSimilarity;
 import rq.common.table.LazyFacade;
 import rq.common.tools.AlgorithmMonitor;
+import rq.files.io.Pushdown;
 
 @CallingArg("electricityWeekTop")
 public class Queries2_Electricity_Week_top extends Queries2 {
@@ -124,12 +126,17 @@ public class Queries2_Electricity_Week_top extends Queries2 {
 		return (Table iTable) -> new LazyFacade(iTable);
 	}
 
+	@Override
+	public Pushdown pushdown() {
+		return Pushdown.restriction(List.of(Electricity.value, Electricity.movingAvg), Electricity.ABOVE_AVERAGE);
+	}
+	
 	@Override
 	public LazyExpression preprocess(LazyExpression iTable) {
 		LazyExpression le = 
 				LazyRestriction.factory(
 						iTable, 
-						r -> (Double)r.getNoThrow(Electricity.value) > (Double)r.getNoThrow(Electricity.movingAvg) ? r.rank : 0.0d);
+						Electricity.ABOVE_AVERAGE);
 
 		return le;
 	}
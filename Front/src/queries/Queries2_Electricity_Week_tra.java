@@ -1,6 +1,7 @@
 package queries;
 
 import java.time.Duration;
+import java.util.List;
 import java.util.function.BiFunction;
 import java.util.function.Function;
 
@@ -25,6 +26,7 @@ import rq.common.operators.Projection;
 import rq.common.similarities.LinearSimilarity;
 import rq.common.tools.AlgorithmMonitor;
 import rq.common.table.LazyFacade;
+import rq.files.io.Pushdown;
 
 @CallingArg("electricityWeekTra")
 public class Queries2_Electricity_Week_tra extends Queries2 {
@@ -161,12 +163,17 @@ public class Queries2_Electricity_Week_tra extends Queries2 {
 				});
 	}
 
+	@Override
+	public Pushdown pushdown() {
+		return Pushdown.restriction(List.of(Electricity.value, Electricity.movingAvg), Electricity.ABOVE_AVERAGE);
+	}
+	
 	@Override
 	public LazyExpression preprocess(LazyExpression iTable) {
 		LazyExpression le = 
 				LazyRestriction.factory(
 						iTable, 
-						(rq.common.table.Record r) -> (Double)r.getNoThrow(Electricity.value) > (Double)r.getNoThrow(Electricity.movingAvg) ? r.rank : 0.0d);
+						Electricity.ABOVE_AVERAGE);
 
 		return le;
 	}
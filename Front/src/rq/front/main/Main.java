@@ -23,6 +23,8 @@ import rq.common.algorithms.LazyRecursive;
 import rq.common.annotations.Algorithm;
 import rq.common.interfaces.LazyExpression;
 import rq.common.interfaces.TabularExpression;
+import rq.common.io.contexts.ValueParserContext;
+import rq.common.table.FileMappedTable;
 import rq.common.tools.AlgorithmMonitor;
 import rq.files.io.LazyTable;
 import rq.files.io.TableWriter;
@@ -36,6 +38,8 @@ import rq.common.interfaces.Table;
 public class Main {	
 	private static final String STATHEADER = "statheader";
 	private static final String ARGS_FILE_SWITCH = "-argsFile";
+	/** Suffix of the prepared data files */
+	private static final String PREPARED_SUFFIX = ".rqt";
 	
 	/**
 	 * path to input file
@@ -169,6 +173,51 @@ public class Main {
 		return stream;
 	}
 	
+	/**
+	 * Gets path of the prepared data file.
+	 * It lies next to the input file and its name consists of the input file name and identifier of the prepared data.
+	 * @return path
+	 */
+	private Path preparedPath() {
+		String name = new StringBuilder()
+				.append(this.path.getFileName())
+				.append(".")
+				.append(this.queries.preparedDataIdentificator())
+				.append(PREPARED_SUFFIX)
+				.toString()
+				.replaceAll("[^A-Za-z0-9._=-]", "_");
+		return this.path.resolveSibling(name);
+	}
+	
+	/**
+	 * Opens the data prepared by an earlier run.
+	 * If there is none, or the input file changed since, the input is read, preprocessed and stored for the later runs.
+	 * @return prepared data
+	 * @throws IOException
+	 */
+	private FileMappedTable prepare() throws IOException {
+		Path prepared = this.preparedPath();
+		if(Files.exists(prepared)
+				&& Files.getLastModifiedTime(prepared).compareTo(Files.getLastModifiedTime(this.path)) > 0) {
+			try {
+				return FileMappedTable.open(prepared);
+			} catch (IOException | ClassNotFoundException e) {
+				// File left by an interrupted run, the data is prepared again
+			}
+		}
+		
+		try(LazyTable iTable = LazyTable.openParallel(
+				this.path, 
+				ValueParserContext.DEFAULT, 
+				this.queries.threads(), 
+				true, 
+				this.queries.pushdown())) {
+			LazyExpression prep = 
+					this.queries.preprocess(iTable);
+			return LazyExpression.realizeMapped(prep, prepared);
+		}
+	}
+	
 	/**
 	 * Main workhorse method
 	 * @param output stream
@@ -178,10 +227,7 @@ public class Main {
 		
 		long start = System.currentTimeMillis();
 		
-		LazyTable iTable = LazyTable.open(this.path);
-		LazyExpression prep = 
-				this.queries.preprocess(iTable);
-		Table prepped = LazyExpression.realizeMapped(prep, 1_000_000);
+		FileMappedTable prepped = this.prepare();
 		
 		long end = System.currentTimeMillis();
 		this.preparationTime = end - start;
@@ -209,6 +255,7 @@ public class Main {
 		this.outputStatistic(statOutputStream);
 		statOutputStream.close();
 		
+		prepped.close();
 		System.out.println("Processing finished.\n");
 	}
 	
@@ -11,7 +11,10 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import rq.common.onOperators.RecordValue;
 import rq.common.table.Attribute;
+import rq.common.table.Record;
+import rq.common.table.Schema;
 
 /**
  * @author r.skrabal
@@ -90,5 +93,27 @@ class AttributeTest {
 		assertTrue(this.As.equalsName(this.Ai));
 		assertFalse(this.As.equalsName(this.Bs));
 	}
-
+	
+	/**
+	 * Test method for {@link rq.common.table.Attribute#bind(rq.common.table.Schema)}.
+	 */
+	@Test
+	void testBind() throws Exception {
+		Schema s1 = Schema.factory(this.Ai, this.Bs);
+		Schema s2 = Schema.factory(this.Bs, new Attribute("C", Integer.class), this.Ai);
+		Record r1 = Record.factory(s1, 1.0d,
+				new Record.AttributeValuePair(this.Ai, 1),
+				new Record.AttributeValuePair(this.Bs, "foo"));
+		Record r2 = Record.factory(s2, 1.0d,
+				new Record.AttributeValuePair(this.Ai, 2),
+				new Record.AttributeValuePair(this.Bs, "bar"),
+				new Record.AttributeValuePair(new Attribute("C", Integer.class), 3));
+		
+		RecordValue bound = this.Bs.bind(s1);
+		assertEquals("foo", bound.value(r1));
+		assertEquals("bar", bound.value(r2));
+		assertEquals(this.Bs.toString(), bound.toString());
+		assertEquals(String.class, bound.domain());
+		assertSame(this.As, this.As.bind(s1));
+	}
 }
@@ -0,0 +1,128 @@
+/**
+ *
+ */
+package rq.test.all;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rq.common.interfaces.LazyExpression;
+import rq.common.io.contexts.ValueSerializerContext;
+import rq.common.table.Attribute;
+import rq.common.table.MemoryTable;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+import rq.common.types.DateTime;
+import rq.common.types.Str10;
+import rq.files.io.ColumnarTable;
+import rq.files.io.ColumnarTableWriter;
+import rq.files.io.Pushdown;
+
+/**
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+class ColumnarTableTest {
+
+	Attribute a, d, s, t;
+	Schema schema;
+	MemoryTable table;
+	Path path;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.a = new Attribute("A", Integer.class);
+		this.d = new Attribute("D", Double.class);
+		this.s = new Attribute("S", Str10.class);
+		this.t = new Attribute("T", DateTime.class);
+		this.schema = Schema.factory(a, d, s, t);
+		this.table = new MemoryTable(this.schema);
+		for(int i = 0; i < 10; i++) {
+			this.table.insert(Record.factory(
+					this.schema,
+					Arrays.asList(
+							new Record.AttributeValuePair(a, 1000 + i),
+							new Record.AttributeValuePair(d, i / 4.0d),
+							new Record.AttributeValuePair(s, Str10.factory(i % 2 == 0 ? "even" : "odd")),
+							new Record.AttributeValuePair(t, new DateTime(LocalDateTime.of(2024, 1, 1, 0, 0).plusHours(i * 7)))),
+					(i + 1) / 10.0d));
+		}
+		this.path = Files.createTempFile("rq.test.", ".col");
+		ColumnarTableWriter.write(this.table, this.path, 4, ValueSerializerContext.DEFAULT);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		Files.deleteIfExists(this.path);
+	}
+
+	private static Set<Record> drain(LazyExpression exp) {
+		Set<Record> records = new HashSet<Record>();
+		Record r = exp.next();
+		while(r != null) {
+			records.add(r);
+			r = exp.next();
+		}
+		return records;
+	}
+
+	@Test
+	void testRoundTrip() throws Exception {
+		try(ColumnarTable ct = ColumnarTable.open(this.path)) {
+			assertEquals(this.schema, ct.schema());
+			assertEquals(10, ct.size());
+			assertEquals(new HashSet<Record>(this.table.stream().toList()), new HashSet<Record>(ct.stream().toList()));
+		}
+	}
+
+	@Test
+	void testScanColumns() throws Exception {
+		try(ColumnarTable ct = ColumnarTable.open(this.path)) {
+			LazyExpression scan = ct.scan(Arrays.asList(this.s));
+			assertEquals(Schema.factory(this.s), scan.schema());
+			Set<Record> records = drain(scan);
+			assertEquals(10, records.size());
+			assertTrue(records.stream().allMatch(r -> r.schema.size() == 1));
+		}
+	}
+
+	@Test
+	void testScanRange() throws Exception {
+		try(ColumnarTable ct = ColumnarTable.open(this.path)) {
+			Set<Record> records = drain(ct.scan(Arrays.asList(this.a, this.d), this.a, 1003, 1005));
+			assertEquals(3, records.size());
+			assertTrue(records.stream().allMatch(r -> {
+				int v = (Integer)r.getNoThrow(this.a);
+				return v >= 1003 && v <= 1005;
+			}));
+
+			records = drain(ct.scan(Arrays.asList(this.a), this.s, Str10.factory("odd"), null));
+			assertEquals(5, records.size());
+		}
+	}
+
+	@Test
+	void testScanPushdown() throws Exception {
+		try(ColumnarTable ct = ColumnarTable.open(this.path)) {
+			LazyExpression scan = ct.scan(Pushdown.factory(
+					List.of(this.a),
+					List.of(this.d, this.s),
+					r -> (Double)r.getNoThrow(this.d) >= 1.0d && r.getNoThrow(this.s).equals(Str10.factory("odd")) ? 0.5d : 0.0d));
+			assertEquals(Schema.factory(this.a), scan.schema());
+			Set<Record> records = drain(scan);
+			assertEquals(3, records.size());
+			assertTrue(records.stream().allMatch(r -> r.rank == 0.5d && (Integer)r.getNoThrow(this.a) % 2 == 1 && (Integer)r.getNoThrow(this.a) >= 1005));
+		}
+	}
+}
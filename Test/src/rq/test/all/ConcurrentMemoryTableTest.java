@@ -0,0 +1,132 @@
+/**
+ *
+ */
+package rq.test.all;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rq.common.table.Attribute;
+import rq.common.table.ConcurrentMemoryTable;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+
+/**
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+class ConcurrentMemoryTableTest {
+
+	Schema schema;
+	Attribute a, b;
+	Record r1, r2, r3;
+	ConcurrentMemoryTable table;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.a = new Attribute("A", Integer.class);
+		this.b = new Attribute("B", String.class);
+		this.schema = Schema.factory(a, b);
+		this.r1 = this.record(1, "foo", 1.0d);
+		this.r2 = this.record(2, "bar", 1.0d);
+		this.r3 = this.record(1, "foo", 0.8d);
+		this.table = new ConcurrentMemoryTable(this.schema);
+	}
+
+	private Record record(int a, String b, double rank) throws Exception {
+		return Record.factory(
+				this.schema,
+				Arrays.asList(
+						new Record.AttributeValuePair(this.a, a),
+						new Record.AttributeValuePair(this.b, b)),
+				rank);
+	}
+
+	@Test
+	void testInsertDelete() throws Exception {
+		assertTrue(this.table.isEmpty());
+		assertTrue(this.table.insert(r1));
+		assertFalse(this.table.insert(r1));
+		assertTrue(this.table.insert(r3));
+		assertTrue(this.table.insert(r2));
+		assertEquals(3, this.table.size());
+		assertEquals(3, this.table.stream().count());
+		assertTrue(this.table.contains(r3));
+
+		assertTrue(this.table.delete(r1));
+		assertFalse(this.table.delete(r1));
+		assertEquals(2, this.table.size());
+		assertFalse(this.table.contains(r1));
+		assertTrue(this.table.containsNoRank(r1));
+		assertEquals(Optional.of(r3), this.table.findNoRank(r1));
+
+		assertTrue(this.table.delete(r3));
+		assertFalse(this.table.containsNoRank(r1));
+		assertEquals(1, this.table.size());
+	}
+
+	@Test
+	void testUpsertIfHigherRank() throws Exception {
+		assertTrue(this.table.upsertIfHigherRank(r3));
+		assertFalse(this.table.upsertIfHigherRank(r3));
+		assertTrue(this.table.upsertIfHigherRank(r1));
+		assertFalse(this.table.upsertIfHigherRank(r3));
+		assertEquals(1, this.table.size());
+		assertTrue(this.table.contains(r1));
+		assertFalse(this.table.contains(r3));
+	}
+
+	@Test
+	void testConcurrentUpsert() throws Exception {
+		final int threads = 8, keys = 1000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Callable<Void>> tasks = new ArrayList<Callable<Void>>();
+			for(int t = 0; t < threads; t++) {
+				final int thread = t;
+				tasks.add(() -> {
+					for(int i = 0; i < keys; i++) {
+						double rank = (double)((i + thread) % threads + 1) / threads;
+						this.table.upsertIfHigherRank(this.record(i, "x", rank));
+					}
+					return null;
+				});
+			}
+			for(Future<Void> future : executor.invokeAll(tasks)) {
+				future.get();
+			}
+		}
+		finally {
+			executor.shutdown();
+		}
+
+		assertEquals(keys, this.table.size());
+		assertEquals(keys, this.table.stream().count());
+		assertTrue(this.table.stream().allMatch(r -> r.rank == 1.0d));
+	}
+
+	@Test
+	void testLazyIterator() throws Exception {
+		this.table.insert(r1);
+		this.table.insert(r2);
+		var it = this.table.lazyIterator();
+		int count = 0;
+		while(it.next() != null) {
+			count++;
+		}
+		assertEquals(2, count);
+		it.restart();
+		assertNotNull(it.next());
+	}
+}
@@ -2,10 +2,14 @@ package rq.test.all;
 
 import static org.junit.jupiter.api.Assertions.*;
 
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.Optional;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -13,10 +17,16 @@ import org.junit.jupiter.api.Test;
 
 import rq.common.exceptions.AttributeNotInSchemaException;
 import rq.common.exceptions.TypeSchemaMismatchException;
+import rq.common.interfaces.LazyExpression;
 import rq.common.table.Attribute;
+import rq.common.table.DateTimeCursor;
+import rq.common.table.DoubleCursor;
 import rq.common.table.FileMappedTable;
+import rq.common.table.IntCursor;
+import rq.common.table.LazyFacade;
 import rq.common.table.Record;
 import rq.common.table.Schema;
+import rq.common.types.DateTime;
 import rq.common.types.Str10;
 
 class FileMappedTableTest {
@@ -177,4 +187,246 @@ class FileMappedTableTest {
 		assertTrue(this.t1.isEmpty());
 		assertFalse(this.t2.isEmpty());
 	}
+	
+	@Test
+	void testUpsertIfHigherRank() {
+		assertTrue(this.t1.upsertIfHigherRank(this.r1));
+		assertTrue(this.t1.upsertIfHigherRank(this.r2));
+		assertFalse(this.t1.upsertIfHigherRank(this.r1));
+		
+		assertTrue(this.t1.upsertIfHigherRank(this.r3));
+		assertEquals(2, this.t1.size());
+		assertTrue(this.t1.contains(this.r3));
+		assertFalse(this.t1.contains(this.r1));
+		assertTrue(this.t1.contains(this.r2));
+	}
+	
+	@Test
+	void testGrowth() throws Exception {
+		FileMappedTable t = FileMappedTable.factory(this.schema, 2);
+		try {
+			for(int i = 0; i < 7; i++) {
+				assertTrue(t.insert(Record.factory(
+						this.schema,
+						Arrays.asList(
+								new Record.AttributeValuePair(a, i),
+								new Record.AttributeValuePair(b, Str10.factory("foo"))),
+						1.0d)));
+			}
+			assertEquals(7, t.size());
+			assertEquals(7L, t.longSize());
+			assertEquals(5, t.get(5).get().getNoThrow(a));
+			assertEquals(Optional.empty(), t.get(7));
+			
+			Iterator<Record> it = t.iterator();
+			for(int i = 0; i < 7; i++) {
+				assertEquals(i, it.next().getNoThrow(a));
+			}
+			assertFalse(it.hasNext());
+			
+			assertTrue(t.delete(t.get(3).get()));
+			assertEquals(Optional.empty(), t.get(3));
+			assertEquals(6, t.size());
+		}
+		finally {
+			t.close();
+		}
+	}
+	
+	@Test
+	void testGrowthPastCapacity() throws Exception {
+		try(FileMappedTable t = FileMappedTable.factory(this.schema)) {
+			for(int i = 0; i < 300000; i++) {
+				t.insert(Record.factory(
+						this.schema,
+						Arrays.asList(
+								new Record.AttributeValuePair(a, i),
+								new Record.AttributeValuePair(b, Str10.factory("foo"))),
+						1.0d));
+			}
+			assertEquals(300000L, t.longSize());
+			// Segments double, so the default capacity does not lead to a mapping per hundred records
+			assertTrue(t.segmentCount() <= 15);
+			for(int i = 0; i < 300000; i += 997) {
+				assertEquals(i, t.get(i).get().getNoThrow(a));
+			}
+			assertEquals(299999, t.get(299999).get().getNoThrow(a));
+			
+			int i = 0;
+			for(Record record : t) {
+				assertEquals(i++, record.getNoThrow(a));
+			}
+			assertEquals(300000, i);
+		}
+	}
+	
+	@Test
+	void testCompact() {
+		this.t3.insert(this.r1);
+		this.t3.insert(this.r2);
+		this.t3.insert(this.r4);
+		assertTrue(this.t3.delete(this.r1));
+		assertFalse(this.t3.delete(this.r1));
+		assertFalse(this.t3.contains(this.r1));
+		assertEquals(2, this.t3.size());
+		
+		this.t3.compact();
+		assertEquals(2, this.t3.size());
+		assertEquals(this.r2, this.t3.get(0).get());
+		assertEquals(this.r4, this.t3.get(1).get());
+		assertEquals(Optional.empty(), this.t3.get(2));
+		assertTrue(this.t3.contains(this.r4));
+		
+		assertTrue(this.t3.insert(this.r1));
+		assertEquals(this.r1, this.t3.get(2).get());
+		assertEquals(3, this.t3.stream().count());
+	}
+	
+	@Test
+	void testCursors() throws Exception {
+		Attribute d = new Attribute("D", Double.class);
+		Attribute t = new Attribute("T", DateTime.class);
+		Schema s = Schema.factory(this.a, d, t);
+		FileMappedTable table = FileMappedTable.factory(s);
+		try {
+			for(int i = 0; i < 3; i++) {
+				table.insert(Record.factory(
+						s,
+						Arrays.asList(
+								new Record.AttributeValuePair(this.a, i),
+								new Record.AttributeValuePair(d, i * 0.5d),
+								new Record.AttributeValuePair(t, new DateTime(LocalDateTime.of(2020 + i, 1, 2, 3, 4)))),
+						1.0d / (i + 1)));
+			}
+			table.delete(table.get(1).get());
+			
+			IntCursor ic = table.intCursor(this.a);
+			DoubleCursor dc = table.doubleCursor(d);
+			DateTimeCursor tc = table.dateTimeCursor(t);
+			assertTrue(ic.next() && dc.next() && tc.next());
+			assertEquals(0, ic.get());
+			assertEquals(0.0d, dc.get());
+			assertEquals(LocalDateTime.of(2020, 1, 2, 3, 4), tc.get());
+			assertEquals(1.0d, dc.rank());
+			
+			assertTrue(ic.next() && dc.next() && tc.next());
+			assertEquals(2, ic.get());
+			assertEquals(1.0d, dc.get());
+			assertEquals(2022, tc.year());
+			assertEquals(table.get(2).get(), tc.record());
+			assertFalse(ic.next());
+			
+			ic.restart();
+			assertTrue(ic.next());
+			assertEquals(0, ic.get());
+			
+			assertThrows(IllegalArgumentException.class, () -> table.intCursor(d));
+		}
+		finally {
+			table.close();
+		}
+	}
+	
+	@Test
+	void testPersistent() throws Exception {
+		Path path = Files.createTempFile("rq.test.", ".bin");
+		try {
+			FileMappedTable t = FileMappedTable.create(this.schema, path);
+			t.insert(this.r1);
+			t.insert(this.r2);
+			t.insert(this.r4);
+			t.delete(this.r2);
+			t.statistics.addRankHistogram(2);
+			t.statistics.addSize();
+			t.statistics.gather();
+			t.close();
+			
+			t = FileMappedTable.open(path);
+			assertEquals(this.schema, t.schema());
+			assertEquals(2, t.size());
+			assertTrue(t.contains(this.r1));
+			assertFalse(t.contains(this.r2));
+			assertTrue(t.contains(this.r4));
+			assertTrue(t.statistics.getRankHistogram(2).isPresent());
+			assertTrue(t.statistics.getSize().isEmpty());
+			
+			t.insert(this.r3);
+			assertEquals(this.r3, t.get(1).get());
+			t.close();
+			
+			t = FileMappedTable.open(path);
+			assertEquals(3, t.size());
+			t.close();
+		}
+		finally {
+			Files.deleteIfExists(path);
+		}
+	}
+	
+	@Test
+	void testRealizePersistent() throws Exception {
+		Path path = Files.createTempFile("rq.test.", ".bin");
+		try {
+			this.t1.insert(this.r1);
+			this.t1.insert(this.r4);
+			FileMappedTable t = LazyExpression.realizeMapped(new LazyFacade(this.t1), path);
+			t.close();
+			
+			t = FileMappedTable.open(path);
+			assertEquals(2, t.size());
+			assertTrue(t.contains(this.r1));
+			assertTrue(t.contains(this.r4));
+			t.close();
+		}
+		finally {
+			Files.deleteIfExists(path);
+		}
+	}
+	
+	@Test
+	void testRankIterator() {
+		this.t1.insert(this.r2);
+		this.t1.insert(this.r4);
+		this.t1.insert(this.r1);
+		
+		Iterator<Record> it = this.t1.rankIterator();
+		assertEquals(this.r4, it.next());
+		assertEquals(this.r2, it.next());
+		assertEquals(this.r1, it.next());
+		assertThrows(NoSuchElementException.class, () -> it.next());
+		
+		assertTrue(this.t1.upsertIfHigherRank(this.r3));
+		assertTrue(this.t1.delete(this.r4));
+		Iterator<Record> it2 = this.t1.rankIterator();
+		assertEquals(this.r3, it2.next());
+		assertEquals(this.r2, it2.next());
+		assertFalse(it2.hasNext());
+	}
+	
+	@Test
+	void testRankIteratorTies() throws Exception {
+		for(int i = 0; i < 1000; i++) {
+			this.t1.insert(Record.factory(
+					this.schema,
+					Arrays.asList(
+							new Record.AttributeValuePair(a, i),
+							new Record.AttributeValuePair(b, Str10.factory("foo"))),
+					(i * 7 % 10) / 10.0d));
+		}
+		
+		Iterator<Record> it = this.t1.rankIterator();
+		Record previous = it.next();
+		int count = 1;
+		while(it.hasNext()) {
+			Record record = it.next();
+			assertTrue(record.rank <= previous.rank);
+			if(record.rank == previous.rank) {
+				// Ties keep the insertion order
+				assertTrue((Integer)record.getNoThrow(a) > (Integer)previous.getNoThrow(a));
+			}
+			previous = record;
+			count++;
+		}
+		assertEquals(1000, count);
+	}
 }
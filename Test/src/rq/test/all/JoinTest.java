@@ -198,4 +198,42 @@ class JoinTest {
 				j1.schema());
 	}
 
+	
+	@Test
+	void testEvalHashed() throws Exception {
+		Record r23 = Record.factory(
+				schema2,
+				Arrays.asList(
+						new Record.AttributeValuePair(a, 1), 
+						new Record.AttributeValuePair(c, "bah")),
+				0.5d);
+		t2.insert(r23);
+		Join j4 = Join.factory(
+				t1, 
+				t2, 
+				Lukasiewitz.PRODUCT, 
+				Lukasiewitz.INFIMUM, 
+				new OnEquals(a, a),
+				new OnSimilar(a, a, NaiveSimilarity.INTEGER_SIMILARITY));
+		
+		Table rslt = j4.eval();
+		Set<Record> rcrds = rslt.stream().collect(Collectors.toSet());
+		assertEquals(2, rcrds.size());
+		assertTrue(rcrds.contains(
+				Record.factory(this.expected, 
+						Arrays.asList(
+								new Record.AttributeValuePair(la, 1),
+								new Record.AttributeValuePair(ra, 1),
+								new Record.AttributeValuePair(b, "foo"),
+								new Record.AttributeValuePair(c, "baz")), 
+						0.8d)));
+		assertTrue(rcrds.contains(
+				Record.factory(this.expected, 
+						Arrays.asList(
+								new Record.AttributeValuePair(la, 1),
+								new Record.AttributeValuePair(ra, 1),
+								new Record.AttributeValuePair(b, "foo"),
+								new Record.AttributeValuePair(c, "bah")), 
+						Lukasiewitz.PRODUCT.apply(0.8d, Lukasiewitz.PRODUCT.apply(0.5d, 1.0d)))));
+	}
 }
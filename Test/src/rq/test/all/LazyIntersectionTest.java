@@ -3,6 +3,9 @@ package rq.test.all;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
 import java.util.Set;
 import java.util.stream.Collectors;
 
@@ -19,6 +22,7 @@ import rq.common.latices.Lukasiewitz;
 import rq.common.operators.Intersection;
 import rq.common.operators.LazyIntersection;
 import rq.common.table.Attribute;
+import rq.common.table.LazyFacade;
 import rq.common.table.MemoryTable;
 import rq.common.table.Record;
 import rq.common.table.Schema;
@@ -140,4 +144,46 @@ class LazyIntersectionTest {
 		assertEquals(this.schema, i2.schema());
 	}
 
+	
+	private MemoryTable random(Random random) throws Exception {
+		MemoryTable t = new MemoryTable(this.schema);
+		for(int i = 0; i < 100; i++) {
+			t.upsertIfHigherRank(Record.factory(
+					this.schema, 
+					Arrays.asList(
+							new Record.AttributeValuePair(a, random.nextInt(150)), 
+							new Record.AttributeValuePair(b, "x")), 
+					(random.nextInt(1000) + 1) / 1000.0d));
+		}
+		return t;
+	}
+	
+	private Map<Record.NoRankKey, Double> collect(LazyExpression exp) {
+		Map<Record.NoRankKey, Double> rcrds = new HashMap<Record.NoRankKey, Double>();
+		Record record = exp.next();
+		while(record != null) {
+			assertNull(rcrds.put(record.noRankKey(), record.rank));
+			record = exp.next();
+		}
+		return rcrds;
+	}
+	
+	@Test
+	void testModes() throws Exception {
+		Random random = new Random(5);
+		MemoryTable left = this.random(random);
+		MemoryTable right = this.random(random);
+		Map<Record.NoRankKey, Double> expected = new HashMap<Record.NoRankKey, Double>();
+		right.forEach(r -> left.findNoRank(r).ifPresent(l -> expected.put(r.noRankKey(), Math.min(l.rank, r.rank))));
+		assertFalse(expected.isEmpty());
+		
+		assertEquals(expected, this.collect(LazyIntersection.factory(left, right)));
+		assertEquals(expected, this.collect(LazyIntersection.factory(new LazyFacade(left), new LazyFacade(right))));
+		assertEquals(expected, this.collect(LazyIntersection.sortMerge(
+				LazyFacade.sorted(left, Record.VALUE_COMPARATOR), 
+				LazyFacade.sorted(right, Record.VALUE_COMPARATOR))));
+		assertThrows(IllegalStateException.class, () -> this.collect(LazyIntersection.sortMerge(
+				LazyFacade.sorted(left, Record.VALUE_COMPARATOR.reversed()), 
+				LazyFacade.sorted(right, Record.VALUE_COMPARATOR))));
+	}
 }
@@ -4,6 +4,9 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.ByteArrayInputStream;
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.BiFunction;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,14 +15,18 @@ import org.junit.jupiter.api.Test;
 import rq.common.exceptions.AttributeNotInSchemaException;
 import rq.common.exceptions.OnOperatornNotApplicableToSchemaException;
 import rq.common.exceptions.TypeSchemaMismatchException;
+import rq.common.latices.Goguen;
 import rq.common.latices.Lukasiewitz;
 import rq.common.onOperators.OnEquals;
 import rq.common.onOperators.OnGreaterThanOrEquals;
+import rq.common.onOperators.OnOperator;
 import rq.common.onOperators.OnSimilar;
 import rq.common.operators.LazyJoin;
+import rq.common.similarities.LinearSimilarity;
 import rq.common.similarities.NaiveSimilarity;
 import rq.common.table.Attribute;
 import rq.common.table.Record;
+import rq.common.table.RecordBatch;
 import rq.common.table.Schema;
 import rq.files.io.LazyTable;
 
@@ -198,4 +205,228 @@ class LazyJoinTest {
 		assertNull(this.j3.next());
 	}
 
+	
+	@Test
+	void testNextHashed() throws Exception {
+		String data3 =
+				"A:java.lang.Integer,C:java.lang.String,rank\n"
+			+	"1, \"baz\", 1.0\n"
+			+	"2, \"qux\", 0.5\n"
+			+	"1, \"bah\", 0.4";
+		LazyTable w1 = LazyTable.open(new ByteArrayInputStream(this.data1.getBytes()));
+		LazyTable w2 = LazyTable.open(new ByteArrayInputStream(data3.getBytes()));
+		LazyJoin j4 = LazyJoin.factory(
+				w1, 
+				w2, 
+				Lukasiewitz.PRODUCT, 
+				Lukasiewitz.INFIMUM, 
+				new OnEquals(a, a),
+				new OnSimilar(a, a, NaiveSimilarity.INTEGER_SIMILARITY));
+		
+		Set<Record> rcrds = new HashSet<Record>();
+		Record record = j4.next();
+		while(record != null) {
+			rcrds.add(record);
+			record = j4.next();
+		}
+		w1.close();
+		w2.close();
+		
+		assertEquals(3, rcrds.size());
+		assertTrue(rcrds.contains(
+				Record.factory(this.expected, 
+						Arrays.asList(
+								new Record.AttributeValuePair(la, 1),
+								new Record.AttributeValuePair(ra, 1),
+								new Record.AttributeValuePair(b, "foo"),
+								new Record.AttributeValuePair(c, "baz")), 
+						0.8d)));
+		assertTrue(rcrds.contains(
+				Record.factory(this.expected, 
+						Arrays.asList(
+								new Record.AttributeValuePair(la, 1),
+								new Record.AttributeValuePair(ra, 1),
+								new Record.AttributeValuePair(b, "foo"),
+								new Record.AttributeValuePair(c, "bah")), 
+						Lukasiewitz.PRODUCT.apply(0.8d, Lukasiewitz.PRODUCT.apply(0.4d, 1.0d)))));
+		assertTrue(rcrds.contains(
+				Record.factory(this.expected, 
+						Arrays.asList(
+								new Record.AttributeValuePair(la, 2),
+								new Record.AttributeValuePair(ra, 2),
+								new Record.AttributeValuePair(b, "bar"),
+								new Record.AttributeValuePair(c, "qux")), 
+						Lukasiewitz.PRODUCT.apply(0.7d, Lukasiewitz.PRODUCT.apply(0.5d, 1.0d)))));
+	}
+	
+	@Test
+	void testNextBand() throws Exception {
+		String data3 =
+				"A:java.lang.Integer,C:java.lang.String,rank\n"
+			+	"1, \"baz\", 1.0\n"
+			+	"3, \"qux\", 0.5\n"
+			+	"6, \"bah\", 0.4\n"
+			+	"2, \"quu\", 0.9";
+		BiFunction<Object, Object, Double> bounded = LinearSimilarity.integerSimilarityUntil(2);
+		BiFunction<Object, Object, Double> unbounded = (Object o1, Object o2) -> bounded.apply(o1, o2);
+		
+		Set<Record> banded = new HashSet<Record>();
+		Set<Record> nested = new HashSet<Record>();
+		for(int i = 0; i < 2; i++) {
+			LazyTable w1 = LazyTable.open(new ByteArrayInputStream(this.data1.getBytes()));
+			LazyTable w2 = LazyTable.open(new ByteArrayInputStream(data3.getBytes()));
+			LazyJoin j = LazyJoin.factory(
+					w1, 
+					w2, 
+					Lukasiewitz.PRODUCT, 
+					Lukasiewitz.INFIMUM, 
+					new OnSimilar(a, a, i == 0 ? bounded : unbounded));
+			Set<Record> rcrds = i == 0 ? banded : nested;
+			Record record = j.next();
+			while(record != null) {
+				rcrds.add(record);
+				record = j.next();
+			}
+			w1.close();
+			w2.close();
+		}
+		
+		assertEquals(nested, banded);
+		assertTrue(banded.contains(
+				Record.factory(this.expected, 
+						Arrays.asList(
+								new Record.AttributeValuePair(la, 1),
+								new Record.AttributeValuePair(ra, 2),
+								new Record.AttributeValuePair(b, "foo"),
+								new Record.AttributeValuePair(c, "quu")), 
+						Lukasiewitz.PRODUCT.apply(0.8d, Lukasiewitz.PRODUCT.apply(0.9d, 0.5d)))));
+	}
+	
+	@Test
+	void testNextBatch() throws Exception {
+		Set<Record> expected = new HashSet<Record>();
+		Record record = j3.next();
+		while(record != null) {
+			expected.add(record);
+			record = j3.next();
+		}
+		
+		LazyTable w1 = LazyTable.open(new ByteArrayInputStream(this.data1.getBytes()));
+		LazyTable w2 = LazyTable.open(new ByteArrayInputStream(this.data2.getBytes()));
+		LazyJoin j = LazyJoin.factory(
+				w1, 
+				w2, 
+				Lukasiewitz.PRODUCT, 
+				Lukasiewitz.INFIMUM, 
+				new OnGreaterThanOrEquals(a, a));
+		Set<Record> batched = new HashSet<Record>();
+		RecordBatch batch = j.nextBatch(1);
+		assertEquals(1, batch.size());
+		batched.add(batch.get(0));
+		record = j.next();
+		while(record != null) {
+			batched.add(record);
+			batch = j.nextBatch(2);
+			if(batch == null) {
+				break;
+			}
+			assertTrue(batch.size() <= 2);
+			batch.forEach(batched::add);
+			record = j.next();
+		}
+		assertNull(j.nextBatch(2));
+		w1.close();
+		w2.close();
+		
+		assertEquals(expected, batched);
+	}
+	
+	private Set<Record> join(String left, String right, Double threshold, OnOperator on) throws Exception {
+		Set<Record> rcrds = new HashSet<Record>();
+		try(LazyTable w1 = LazyTable.open(new ByteArrayInputStream(left.getBytes()));
+				LazyTable w2 = LazyTable.open(new ByteArrayInputStream(right.getBytes()))) {
+			LazyJoin j = LazyJoin.factory(w1, w2, Goguen.PRODUCT, Goguen.INFIMUM, on);
+			if(threshold != null) {
+				j.setThreshold(() -> threshold);
+			}
+			Record record = j.next();
+			while(record != null) {
+				rcrds.add(record);
+				record = j.next();
+			}
+		}
+		return rcrds;
+	}
+	
+	private Set<Record> joinBatched(String left, String right, Double threshold, OnOperator on) throws Exception {
+		Set<Record> rcrds = new HashSet<Record>();
+		try(LazyTable w1 = LazyTable.open(new ByteArrayInputStream(left.getBytes()));
+				LazyTable w2 = LazyTable.open(new ByteArrayInputStream(right.getBytes()))) {
+			LazyJoin j = LazyJoin.factory(w1, w2, Goguen.PRODUCT, Goguen.INFIMUM, on);
+			if(threshold != null) {
+				j.setThreshold(() -> threshold);
+			}
+			RecordBatch batch = j.nextBatch(2);
+			while(batch != null) {
+				assertTrue(batch.size() <= 2);
+				batch.forEach(rcrds::add);
+				Record record = j.next();
+				if(record != null) {
+					rcrds.add(record);
+				}
+				batch = j.nextBatch(2);
+			}
+			assertNull(j.next());
+		}
+		return rcrds;
+	}
+	
+	@Test
+	void testThreshold() throws Exception {
+		String left = 
+				"A:java.lang.Integer,B:java.lang.String,rank\n"
+			+	"1, \"foo\", 0.8\n"
+			+	"2, \"bar\", 0.3\n"
+			+	"3, \"baz\", 1.0\n"
+			+	"1, \"qux\", 0.6";
+		String right =
+				"A:java.lang.Integer,C:java.lang.String,rank\n"
+			+	"1, \"baz\", 0.5\n"
+			+	"2, \"bah\", 1.0\n"
+			+	"1, \"quu\", 0.9\n"
+			+	"3, \"quz\", 0.7";
+		
+		for(OnOperator on : Arrays.asList(new OnEquals(a, a), new OnGreaterThanOrEquals(a, a))) {
+			Set<Record> all = this.join(left, right, null, on);
+			Set<Record> expected = new HashSet<Record>();
+			all.stream().filter(r -> r.rank >= 0.5d).forEach(expected::add);
+			
+			assertTrue(expected.size() < all.size());
+			assertEquals(expected, this.join(left, right, 0.5d, on));
+		}
+	}
+	
+	@Test
+	void testNextBatchStrategies() throws Exception {
+		String left = 
+				"A:java.lang.Integer,B:java.lang.String,rank\n"
+			+	"1, \"foo\", 0.8\n"
+			+	"2, \"bar\", 0.3\n"
+			+	"3, \"baz\", 1.0\n"
+			+	"1, \"qux\", 0.6";
+		String right =
+				"A:java.lang.Integer,C:java.lang.String,rank\n"
+			+	"1, \"baz\", 0.5\n"
+			+	"2, \"bah\", 1.0\n"
+			+	"1, \"quu\", 0.9\n"
+			+	"3, \"quz\", 0.7";
+		
+		for(OnOperator on : Arrays.asList(new OnEquals(a, a), new OnGreaterThanOrEquals(a, a))) {
+			for(Double threshold : Arrays.asList(null, 0.5d)) {
+				Set<Record> expected = this.join(left, right, threshold, on);
+				assertFalse(expected.isEmpty());
+				assertEquals(expected, this.joinBatched(left, right, threshold, on));
+			}
+		}
+	}
 }
@@ -3,7 +3,12 @@ package rq.test.all;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.ByteArrayInputStream;
+import java.io.File;
 import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,6 +20,8 @@ import rq.common.exceptions.TypeSchemaMismatchException;
 import rq.common.operators.LazyProjection;
 import rq.common.operators.Projection;
 import rq.common.table.Attribute;
+import rq.common.table.LazyFacade;
+import rq.common.table.MemoryTable;
 import rq.common.table.Record;
 import rq.common.table.Schema;
 import rq.files.io.LazyTable;
@@ -146,4 +153,68 @@ class LazyProjectionTest {
 		assertNull(p2.next());
 	}
 
+	
+	@Test
+	void testMerge() throws Exception {
+		Attribute d = new Attribute("D", Integer.class);
+		Schema wide = Schema.factory(c, d);
+		MemoryTable t = new MemoryTable(wide);
+		Map<Integer, Double> expected = new HashMap<Integer, Double>();
+		Random random = new Random(3);
+		for(int i = 0; i < 1000; i++) {
+			int value = random.nextInt(200);
+			double rank = (random.nextInt(1000) + 1) / 1000.0d;
+			t.insert(Record.factory(
+					wide, 
+					Arrays.asList(
+							new Record.AttributeValuePair(c, value), 
+							new Record.AttributeValuePair(d, i)), 
+					rank));
+			expected.merge(value, rank, Math::max);
+		}
+		
+		// Budget under the number of distinct values spills them to disk
+		for(int budget : new int[] {LazyProjection.DEFAULT_MEMORY_BUDGET, 10}) {
+			LazyProjection p = LazyProjection.factory(new LazyFacade(t), List.of(new Projection.To(c, c)), budget);
+			Map<Integer, Double> projected = new HashMap<Integer, Double>();
+			Record record = p.next();
+			while(record != null) {
+				assertNull(projected.put((Integer)record.getNoThrow(c), record.rank));
+				record = p.next();
+			}
+			assertNull(p.next());
+			assertEquals(expected, projected);
+		}
+	}
+
+	private static long tableFiles() {
+		File[] files = new File(System.getProperty("java.io.tmpdir")).listFiles((dir, name) -> name.startsWith("rq.table."));
+		return files == null ? 0 : files.length;
+	}
+	
+	@Test
+	void testClose() throws Exception {
+		MemoryTable t = new MemoryTable(Schema.factory(c));
+		for(int i = 0; i < 100; i++) {
+			t.insert(Record.factory(t.schema(), Arrays.asList(new Record.AttributeValuePair(c, i)), 1.0d));
+		}
+		long before = tableFiles();
+		
+		LazyProjection p = LazyProjection.factory(new LazyFacade(t), List.of(new Projection.To(c, c)), 10);
+		assertNotNull(p.next());
+		assertTrue(tableFiles() > before);
+		
+		// Consumer stops early, the partitions not merged yet are deleted
+		p.close();
+		assertEquals(before, tableFiles());
+		assertNull(p.next());
+	}
+
+	@Test
+	void testToString() {
+		String s = this.p2.toString();
+		assertTrue(s.contains(this.a + " AS " + this.c));
+		assertFalse(s.contains(this.b + " AS " + this.b));
+		assertTrue(s.contains(this.b.toString()));
+	}
 }
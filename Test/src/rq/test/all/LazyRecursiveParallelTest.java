@@ -0,0 +1,198 @@
+package rq.test.all;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rq.common.algorithms.LazyRecursiveParallel;
+import rq.common.algorithms.LazyRecursiveUnrestricted;
+import rq.common.exceptions.AttributeNotInSchemaException;
+import rq.common.exceptions.DuplicateAttributeNameException;
+import rq.common.exceptions.OnOperatornNotApplicableToSchemaException;
+import rq.common.exceptions.RecordValueNotApplicableOnSchemaException;
+import rq.common.exceptions.TypeSchemaMismatchException;
+import rq.common.interfaces.LazyExpression;
+import rq.common.latices.Goguen;
+import rq.common.latices.Lukasiewitz;
+import rq.common.onOperators.OnEquals;
+import rq.common.operators.LazyJoin;
+import rq.common.operators.LazyMapping;
+import rq.common.operators.LazyProjection;
+import rq.common.operators.LazyRestriction;
+import rq.common.operators.Projection;
+import rq.common.table.Attribute;
+import rq.common.table.FileMappedTable;
+import rq.common.table.LazyFacade;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+import rq.common.tools.AlgorithmMonitor;
+import rq.files.io.LazyTable;
+import rq.common.interfaces.Table;
+
+class LazyRecursiveParallelTest {
+	
+	String data = 
+			"A:java.lang.Integer,B:java.lang.String,rank\n"
+		+	"1, \"foo\", 0.8\n"
+		+	"2, \"bar\", 1.0\n"
+		+	"3, \"baz\", 0.8\n"
+		+	"5, \"bah\", 0.8";
+	
+	Schema schema;
+	Attribute a, b;
+	Record r1, r2, r3, r4;
+	LazyTable t1;
+	
+	LazyRecursiveParallel lrp;
+	AlgorithmMonitor monitor;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.t1 = LazyTable.open(new ByteArrayInputStream(this.data.getBytes()));
+		this.a = new Attribute("A", Integer.class);
+		this.b = new Attribute("B", String.class);
+		this.schema = Schema.factory(a, b);
+		r1 = Record.factory(
+				this.schema,
+				Arrays.asList(
+						new Record.AttributeValuePair(a, 1), 
+						new Record.AttributeValuePair(b, "foo")),
+				1.0d);
+		r2 = Record.factory(
+				schema, 
+				Arrays.asList(
+						new Record.AttributeValuePair(a, 2), 
+						new Record.AttributeValuePair(b,"bar")), 
+				1.0d);
+		r3 = Record.factory(
+				schema, 
+				Arrays.asList(
+						new Record.AttributeValuePair(a, 3), 
+						new Record.AttributeValuePair(b,"baz")), 
+				0.8d);
+		r4 = Record.factory(
+				schema, 
+				Arrays.asList(
+						new Record.AttributeValuePair(a, 5), 
+						new Record.AttributeValuePair(b,"bah")), 
+				0.8d);
+		
+		Table t = LazyExpression.realizeInMemory(this.t1);
+		this.monitor = new AlgorithmMonitor();
+		
+		this.lrp = LazyRecursiveParallel.factory(
+				LazyRestriction.factory(new LazyFacade(t), r -> r.getNoThrow(a).equals(1) ? 1.0d : 0.0d), 
+				(Table table) -> {
+					try {
+						return 
+							LazyProjection.factory(
+									LazyJoin.factory(
+											LazyMapping.factory(
+													new LazyFacade(table), 
+													r -> {
+														try {
+															return r.set(a, ((int) r.get(a)) + 1);
+														} catch (AttributeNotInSchemaException | TypeSchemaMismatchException e) {
+															throw new RuntimeException(e);
+														}
+													}), 
+											new LazyFacade(t), 
+											Lukasiewitz.PRODUCT, 
+											Lukasiewitz.INFIMUM, 
+											new OnEquals(a, a)), 
+									new Projection.To(new Attribute("right.A", Integer.class), a),
+									new Projection.To(new Attribute("right.B", String.class), b));
+					} catch (OnOperatornNotApplicableToSchemaException e) {
+						throw new RuntimeException(e);
+					}
+				},
+				4,
+				this.monitor);
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		if(this.t1 != null) {
+			this.t1.close();
+		}
+	}
+
+	@Test
+	void testEval() {
+		Table rslt = this.lrp.eval();
+		Set<Record> rcrds = rslt.stream().collect(Collectors.toSet());
+		assertEquals(3, rcrds.size());
+		assertTrue(rcrds.contains(this.r1));
+		assertTrue(rcrds.contains(this.r2));
+		assertTrue(rcrds.contains(this.r3));
+		assertFalse(rcrds.contains(this.r4));
+	}
+	
+	@Test
+	void testMonitor() {
+		this.lrp.eval();
+		assertEquals(4, this.monitor.iterations.count());
+		assertEquals(Arrays.asList(1L, 1L, 1L, 0L), this.monitor.deltaSizes);
+		assertEquals(3, this.monitor.resultCandidates.count());
+	}
+
+	@Test
+	void testSchema() {
+		assertEquals(this.schema, this.lrp.schema());
+	}
+
+	@Test
+	void testConcurrentFileMappedBase() throws Exception {
+		Attribute from = new Attribute("From", Integer.class);
+		Attribute to = new Attribute("To", Integer.class);
+		Schema edgeSchema = Schema.factory(from, to);
+		
+		try(FileMappedTable edges = FileMappedTable.factory(edgeSchema)) {
+			// Three layers of nodes, so paths have at most two edges
+			Random random = new Random(11);
+			for(int i = 0; i < 20000; i++) {
+				int layer = random.nextInt(2) * 100;
+				edges.insert(Record.factory(
+						edgeSchema,
+						Arrays.asList(
+								new Record.AttributeValuePair(from, layer + random.nextInt(100)),
+								new Record.AttributeValuePair(to, layer + 100 + random.nextInt(100))),
+						(random.nextInt(100) + 1) / 100.0d));
+			}
+			
+			Function<Table, LazyExpression> step = (Table table) -> {
+				try {
+					return LazyProjection.factory(
+							LazyJoin.factory(
+									new LazyFacade(table),
+									new LazyFacade(edges),
+									Goguen.PRODUCT,
+									Goguen.INFIMUM,
+									new OnEquals(to, from)),
+							new Projection.To(new Attribute("left.From", Integer.class), from),
+							new Projection.To(new Attribute("right.To", Integer.class), to));
+				} catch (OnOperatornNotApplicableToSchemaException e) {
+					throw new RuntimeException(e);
+				}
+			};
+			
+			// Whole base is the first delta, so every chunk joins with the mapped table at once
+			Table parallel = LazyRecursiveParallel.factory(new LazyFacade(edges), step, 4, new AlgorithmMonitor()).eval();
+			Table expected = LazyRecursiveUnrestricted.factory(new LazyFacade(edges), step, new AlgorithmMonitor()).eval();
+			
+			assertEquals(
+					expected.stream().collect(Collectors.toSet()),
+					parallel.stream().collect(Collectors.toSet()));
+		}
+	}
+
+}
@@ -14,6 +14,7 @@ import rq.common.table.Attribute;
 import rq.common.table.Schema;
 import rq.files.io.LazyTable;
 import rq.common.table.Record;
+import rq.common.table.RecordBatch;
 
 class LazyRestrictionTest {
 	
@@ -82,4 +83,25 @@ class LazyRestrictionTest {
 		assertNull(this.r.next());
 	}
 
+	
+	@Test
+	void testNextBatch() {
+		RecordBatch batch = this.r.nextBatch(1);
+		assertEquals(1, batch.size());
+		assertEquals(r1, batch.get(0));
+		assertEquals(r3, this.r.next());
+		assertNull(this.r.nextBatch(10));
+	}
+	
+	@Test
+	void testThreshold() {
+		double[] bound = new double[1];
+		LazyRestriction bounded = LazyRestriction.rankBounded(
+				this.r, 
+				r -> r.getNoThrow(a).equals(2) ? 0.0d : r.rank);
+		bounded.setThreshold(() -> bound[0]);
+		assertEquals(r1, bounded.next());
+		bound[0] = 0.75d;
+		assertNull(bounded.next());
+	}
 }
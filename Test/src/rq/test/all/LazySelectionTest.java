@@ -3,6 +3,8 @@ package rq.test.all;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -65,12 +67,12 @@ class LazySelectionTest {
 
 	@Test
 	void testNext() {
-		Record record = this.s1.next();
-		assertEquals(this.r1, record);
-		record = this.s1.next();
-		assertEquals(this.r2, record);
-		record = this.s1.next();
-		assertNull(record);
+		//Order of the records in MemoryTable is not defined
+		Set<Record> rcrds = new HashSet<Record>();
+		rcrds.add(this.s1.next());
+		rcrds.add(this.s1.next());
+		assertEquals(new HashSet<Record>(Arrays.asList(this.r1, this.r2)), rcrds);
+		assertNull(this.s1.next());
 	}
 
 }
@@ -0,0 +1,126 @@
+package rq.test.all;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rq.common.latices.Goguen;
+import rq.common.onOperators.OnEquals;
+import rq.common.onOperators.OnGreaterThanOrEquals;
+import rq.common.onOperators.OnOperator;
+import rq.common.operators.LazyJoin;
+import rq.common.operators.LazyMapping;
+import rq.common.operators.LazyTopKJoin;
+import rq.common.table.Attribute;
+import rq.common.table.LazyFacade;
+import rq.common.table.MemoryTable;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+
+class LazyTopKJoinTest {
+
+	Attribute a, b, c;
+	MemoryTable t1, t2;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.a = new Attribute("A", Integer.class);
+		this.b = new Attribute("B", Integer.class);
+		this.c = new Attribute("C", Integer.class);
+		Schema schema1 = Schema.factory(a, b);
+		Schema schema2 = Schema.factory(a, c);
+		this.t1 = new MemoryTable(schema1);
+		this.t2 = new MemoryTable(schema2);
+
+		Random random = new Random(7);
+		for(int i = 0; i < 300; i++) {
+			this.t1.insert(Record.factory(
+					schema1,
+					Arrays.asList(
+							new Record.AttributeValuePair(a, random.nextInt(20)),
+							new Record.AttributeValuePair(b, i)),
+					(random.nextInt(1000) + 1) / 1000.0d));
+			this.t2.insert(Record.factory(
+					schema2,
+					Arrays.asList(
+							new Record.AttributeValuePair(a, random.nextInt(20)),
+							new Record.AttributeValuePair(c, i)),
+					(random.nextInt(1000) + 1) / 1000.0d));
+		}
+	}
+
+	private List<Double> expectedRanks(OnOperator on, int k) throws Exception {
+		List<Record> all = new ArrayList<Record>();
+		LazyJoin j = LazyJoin.factory(new LazyFacade(this.t1), new LazyFacade(this.t2), Goguen.PRODUCT, Goguen.INFIMUM, on);
+		Record record = j.next();
+		while(record != null) {
+			all.add(record);
+			record = j.next();
+		}
+		all.sort(Record.RANK_COMPARATOR_DSC);
+		return all.stream().limit(k).map(r -> r.rank).toList();
+	}
+
+	@Test
+	void testNext() throws Exception {
+		for(OnOperator on : Arrays.asList(new OnEquals(a, a), new OnGreaterThanOrEquals(a, a))) {
+			int[] pulled = new int[1];
+			LazyTopKJoin j = LazyTopKJoin.factory(
+					LazyMapping.factory(LazyFacade.byRank(this.t1), r -> { pulled[0]++; return r; }),
+					LazyFacade.byRank(this.t2),
+					10,
+					Arrays.asList(on),
+					Goguen.PRODUCT,
+					Goguen.INFIMUM);
+
+			List<Double> ranks = new ArrayList<Double>();
+			Record record = j.next();
+			while(record != null) {
+				ranks.add(record.rank);
+				record = j.next();
+			}
+
+			assertEquals(this.expectedRanks(on, 10), ranks);
+			assertTrue(pulled[0] < this.t1.size());
+		}
+	}
+
+	@Test
+	void testThreshold() throws Exception {
+		LazyTopKJoin j = LazyTopKJoin.factory(
+				LazyFacade.byRank(this.t1),
+				LazyFacade.byRank(this.t2),
+				100,
+				Arrays.asList(new OnEquals(a, a)),
+				Goguen.PRODUCT,
+				Goguen.INFIMUM);
+		j.setThreshold(() -> 0.8d);
+
+		List<Double> ranks = new ArrayList<Double>();
+		Record record = j.next();
+		while(record != null) {
+			ranks.add(record.rank);
+			record = j.next();
+		}
+
+		assertEquals(this.expectedRanks(new OnEquals(a, a), 100).stream().filter(r -> r >= 0.8d).toList(), ranks);
+	}
+
+	@Test
+	void testUnsorted() {
+		LazyTopKJoin j = LazyTopKJoin.factory(
+				new LazyFacade(this.t1),
+				LazyFacade.byRank(this.t2),
+				this.t1.size() * this.t2.size(),
+				new OnEquals(a, a));
+		assertThrows(IllegalStateException.class, () -> {
+			while(j.next() != null);
+		});
+	}
+}
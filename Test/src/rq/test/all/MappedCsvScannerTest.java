@@ -0,0 +1,142 @@
+/**
+ *
+ */
+package rq.test.all;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rq.common.io.contexts.ValueParserContext;
+import rq.common.table.Attribute;
+import rq.common.table.Record;
+import rq.common.table.Schema;
+import rq.files.io.LazyTable;
+import rq.files.io.MappedCsvScanner;
+import rq.files.io.Pushdown;
+import rq.files.io.RecordReader;
+
+/**
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+class MappedCsvScannerTest {
+
+	Path path;
+	List<Record> expected;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		String[] doubles = { "0.5", "-12.25", "1e3", "3.14159265358979", "1234567890123456789.5", "+7", ".25", "2.5E-3" };
+		StringBuilder sb = new StringBuilder("A:java.lang.Integer,\"B:java.lang.String\",C:java.lang.Double,rank\r\n");
+		for(int i = 0; i < 200; i++) {
+			sb.append(i % 3 == 0 ? -i : i).append(',');
+			if(i % 5 == 0) {
+				sb.append("\"say \"\"hi\"\", ").append(i).append('"');
+			}
+			else {
+				sb.append("plain ").append(i);
+			}
+			sb.append(",\"").append(doubles[i % doubles.length]).append("\",").append((i % 10) / 10.0d);
+			sb.append(i % 2 == 0 ? "\r\n" : "\n");
+		}
+		this.path = Files.createTempFile("rq.test.", ".csv");
+		Files.writeString(this.path, sb.toString());
+
+		this.expected = new ArrayList<Record>();
+		try(RecordReader reader = RecordReader.open(this.path)) {
+			Record r = reader.next();
+			while(r != null) {
+				this.expected.add(r);
+				r = reader.next();
+			}
+		}
+	}
+
+	@AfterEach
+	void tearDown() throws Exception {
+		Files.deleteIfExists(this.path);
+	}
+
+	private List<Record> scan(int windowBytes) throws Exception {
+		List<Record> records = new ArrayList<Record>();
+		try(MappedCsvScanner scanner = MappedCsvScanner.open(this.path, ValueParserContext.DEFAULT, windowBytes)) {
+			assertEquals(this.expected.get(0).schema, scanner.schema());
+			Record r = scanner.next();
+			while(r != null) {
+				records.add(r);
+				r = scanner.next();
+			}
+			assertNull(scanner.next());
+		}
+		return records;
+	}
+
+	@Test
+	void testScan() throws Exception {
+		assertEquals(200, this.expected.size());
+		assertEquals(this.expected, this.scan(MappedCsvScanner.WINDOW_BYTES));
+	}
+
+	@Test
+	void testSmallWindow() throws Exception {
+		assertEquals(this.expected, this.scan(16));
+	}
+
+	@Test
+	void testLazyTable() throws Exception {
+		try(LazyTable table = LazyTable.openMapped(this.path)) {
+			assertEquals(this.expected.get(0), table.next());
+		}
+	}
+
+	@Test
+	void testPushdown() throws Exception {
+		Attribute a = new Attribute("A", Integer.class);
+		Attribute b = new Attribute("B", String.class);
+		Attribute c = new Attribute("C", Double.class);
+		Function<Record, Double> predicate = r -> (Integer)r.getNoThrow(a) > 0 && (Double)r.getNoThrow(c) < 100.0d ? r.rank / 2.0d : 0.0d;
+		Pushdown pushdown = Pushdown.factory(List.of(a, b), List.of(a, c), predicate);
+
+		List<Record> expected = new ArrayList<Record>();
+		for(Record r : this.expected) {
+			double rank = predicate.apply(r);
+			if(rank > 0.0d) {
+				expected.add(Record.factory(
+						Schema.factory(a, b),
+						List.of(new Record.AttributeValuePair(a, r.getNoThrow(a)), new Record.AttributeValuePair(b, r.getNoThrow(b))),
+						rank));
+			}
+		}
+		assertFalse(expected.isEmpty());
+
+		List<Record> records = new ArrayList<Record>();
+		try(LazyTable table = LazyTable.openMapped(this.path, ValueParserContext.DEFAULT, pushdown)) {
+			assertEquals(Schema.factory(a, b), table.schema());
+			Record r = table.next();
+			while(r != null) {
+				records.add(r);
+				r = table.next();
+			}
+		}
+		assertEquals(expected, records);
+
+		records.clear();
+		try(LazyTable table = LazyTable.open(this.path, pushdown)) {
+			Record r = table.next();
+			while(r != null) {
+				records.add(r);
+				r = table.next();
+			}
+		}
+		assertEquals(expected, records);
+	}
+}
@@ -6,6 +6,7 @@ package rq.test.all;
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Optional;
 
 import org.junit.jupiter.api.AfterAll;
@@ -214,4 +215,50 @@ class MemoryTableTest {
 		assertTrue(this.t4.findNoRank(this.r4).isEmpty());
 		assertEquals(Optional.of(this.r1), this.t4.findNoRank(this.r3));
 	}
+	
+	@Test
+	void testNoRankIndexConsistency() throws TableRecordSchemaMismatch {
+		assertTrue(this.t3.update(this.r1, this.r3));
+		assertEquals(Optional.of(this.r3), this.t3.findNoRank(this.r1));
+		
+		assertTrue(this.t3.delete(this.r3));
+		assertFalse(this.t3.containsNoRank(this.r1));
+		assertTrue(this.t3.findNoRank(this.r1).isEmpty());
+		
+		this.t3.insert(this.r4);
+		assertEquals(Optional.of(this.r4), this.t3.findNoRank(this.r4));
+		assertFalse(this.t3.containsNoRank(this.r2));
+	}
+	
+	@Test
+	void testUpsertIfHigherRank() throws TableRecordSchemaMismatch {
+		assertFalse(this.t3.upsertIfHigherRank(this.r3));
+		assertEquals(Optional.of(this.r1), this.t3.findNoRank(this.r3));
+		
+		assertTrue(this.t1.upsertIfHigherRank(this.r3));
+		assertTrue(this.t1.upsertIfHigherRank(this.r1));
+		assertEquals(1, this.t1.size());
+		assertTrue(this.t1.contains(this.r1));
+		assertFalse(this.t1.contains(this.r3));
+		
+		assertTrue(this.t1.upsertIfHigherRank(this.r2));
+		assertEquals(2, this.t1.size());
+	}
+	
+	@Test
+	void testRankIterator() throws TableRecordSchemaMismatch {
+		Iterator<Record> it = this.t2.rankIterator();
+		assertEquals(1.0d, it.next().rank);
+		assertEquals(1.0d, it.next().rank);
+		assertEquals(this.r3, it.next());
+		assertFalse(it.hasNext());
+		
+		Record r5 = new Record(this.r4, 0.9d);
+		this.t2.insert(r5);
+		it = this.t2.rankIterator();
+		it.next();
+		it.next();
+		assertEquals(r5, it.next());
+		assertEquals(this.r3, it.next());
+	}
 }
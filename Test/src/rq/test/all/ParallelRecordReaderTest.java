@@ -0,0 +1,87 @@
+/**
+ *
+ */
+package rq.test.all;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rq.common.io.contexts.ValueParserContext;
+import rq.common.table.Record;
+import rq.files.io.ParallelRecordReader;
+import rq.files.io.Pushdown;
+import rq.files.io.RecordReader;
+
+/**
+ * @author Mgr. Radomir Skrabal
+ *
+ */
+class ParallelRecordReaderTest {
+
+	byte[] data;
+	List<Record> expected;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		StringBuilder sb = new StringBuilder("A:java.lang.Integer,B:java.lang.String,rank\n");
+		for(int i = 0; i < 1000; i++) {
+			sb.append(i).append(",\"line ").append(i);
+			if(i % 7 == 0) {
+				sb.append("\nwith, \"\"quoted\"\" break");
+			}
+			sb.append("\",").append((i % 10) / 10.0d).append('\n');
+		}
+		this.data = sb.toString().getBytes();
+
+		this.expected = new ArrayList<Record>();
+		try(RecordReader reader = RecordReader.open(new ByteArrayInputStream(this.data))) {
+			Record r = reader.next();
+			while(r != null) {
+				this.expected.add(r);
+				r = reader.next();
+			}
+		}
+	}
+
+	private List<Record> read(boolean ordered) throws Exception {
+		List<Record> records = new ArrayList<Record>();
+		try(ParallelRecordReader reader = ParallelRecordReader.open(
+				new ByteArrayInputStream(this.data), ValueParserContext.DEFAULT, 4, ordered, 256, Pushdown.NONE)) {
+			Record r = reader.next();
+			while(r != null) {
+				records.add(r);
+				r = reader.next();
+			}
+			assertNull(reader.next());
+		}
+		return records;
+	}
+
+	@Test
+	void testOrdered() throws Exception {
+		assertEquals(1000, this.expected.size());
+		assertEquals(this.expected, this.read(true));
+	}
+
+	@Test
+	void testUnordered() throws Exception {
+		List<Record> records = this.read(false);
+		assertEquals(this.expected.size(), records.size());
+		assertEquals(new HashSet<Record>(this.expected), new HashSet<Record>(records));
+	}
+
+	@Test
+	void testSchema() throws Exception {
+		try(ParallelRecordReader reader = ParallelRecordReader.open(
+				new ByteArrayInputStream(this.data), ValueParserContext.DEFAULT, 2, true)) {
+			assertEquals(this.expected.get(0).schema, reader.schema());
+		}
+	}
+}
@@ -0,0 +1,78 @@
+package rq.test.all;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.HashMap;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import rq.common.exceptions.TypeSchemaMismatchException;
+import rq.common.table.Attribute;
+import rq.common.table.Record;
+import rq.common.table.RecordBuilder;
+import rq.common.table.Schema;
+
+class RecordBuilderTest {
+	
+	Attribute a, b, c;
+	Schema schema;
+	RecordBuilder builder;
+	Record r1;
+
+	@BeforeEach
+	void setUp() throws Exception {
+		this.a = new Attribute("A", Integer.class);
+		this.b = new Attribute("B", String.class);
+		this.c = new Attribute("C", Double.class);
+		this.schema = Schema.factory(a, b, c);
+		this.builder = RecordBuilder.factory(this.schema);
+		this.r1 = Record.factory(this.schema, 0.5d,
+				new Record.AttributeValuePair(a, 1),
+				new Record.AttributeValuePair(b, "foo"),
+				new Record.AttributeValuePair(c, 2.5d));
+	}
+
+	@Test
+	void testBuild() throws Exception {
+		Object[] vls = new Object[3];
+		vls[this.builder.index(a)] = 1;
+		vls[this.builder.index(b)] = "foo";
+		vls[this.builder.index(c)] = 2.5d;
+		
+		assertEquals(this.r1, this.builder.build(vls, 0.5d));
+		assertEquals(this.r1, this.builder.buildUnchecked(vls, 0.5d));
+		
+		vls[this.builder.index(c)] = 2;
+		assertThrows(TypeSchemaMismatchException.class, () -> this.builder.build(vls, 0.5d));
+	}
+	
+	@Test
+	void testCombine() throws Exception {
+		Attribute d = new Attribute("D", Integer.class);
+		Schema left = Schema.factory(a, b);
+		Schema right = Schema.factory(d, c);
+		Record l = Record.factory(left, 1.0d,
+				new Record.AttributeValuePair(a, 1),
+				new Record.AttributeValuePair(b, "foo"));
+		Record r = Record.factory(right, 1.0d,
+				new Record.AttributeValuePair(d, 7),
+				new Record.AttributeValuePair(c, 2.5d));
+		
+		java.util.Map<Attribute, Attribute> lm = new HashMap<Attribute, Attribute>();
+		lm.put(a, a);
+		lm.put(b, b);
+		java.util.Map<Attribute, Attribute> rm = new HashMap<Attribute, Attribute>();
+		rm.put(c, c);
+		rm.put(d, a);
+		
+		Schema s = Schema.factory(a, b, c);
+		RecordBuilder rb = RecordBuilder.factory(s);
+		//Right record overwrites A
+		Record joined = rb.combine(l, rb.copy(left, lm), r, rb.copy(right, rm), 0.5d);
+		assertEquals(7, joined.get(a));
+		assertEquals("foo", joined.get(b));
+		assertEquals(2.5d, joined.get(c));
+		assertEquals(0.5d, joined.rank);
+	}
+}
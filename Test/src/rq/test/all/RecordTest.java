@@ -154,4 +154,28 @@ class RecordTest {
 		assertEquals(s.get(a), 1);
 		assertEquals(s.get(b), "bar");
 	}
+	
+	@Test
+	void testHashCodeNoRank() {
+		assertEquals(this.r1.hashCodeNoRank(), this.r4.hashCodeNoRank());
+		assertNotEquals(this.r1.hashCodeNoRank(), this.r3.hashCodeNoRank());
+		assertEquals(this.r1.noRankKey(), this.r4.noRankKey());
+		assertNotEquals(this.r1.noRankKey(), this.r2.noRankKey());
+	}
+	
+	@Test
+	void testGetDouble() throws AttributeNotInSchemaException {
+		assertEquals(1.0d, this.r1.getDouble(a));
+		assertEquals(2L, this.r3.getLong(a));
+		assertThrows(AttributeNotInSchemaException.class, () -> this.r1.getDouble(new Attribute("C", Integer.class)));
+	}
+	
+	@Test
+	void testCompareTo() {
+		assertEquals(0, this.r1.compareTo(this.r1));
+		assertTrue(this.r1.compareTo(this.r3) < 0);
+		assertTrue(this.r3.compareTo(this.r1) > 0);
+		assertTrue(this.r4.compareTo(this.r1) < 0);
+		assertTrue(this.r1.compareTo(this.r4) > 0);
+	}
 }
@@ -7,7 +7,10 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.Arrays;
+import java.util.HashSet;
 
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
@@ -15,10 +18,12 @@ import org.junit.jupiter.api.Test;
 
 import rq.common.io.contexts.ClassNotInContextException;
 import rq.common.table.Attribute;
+import rq.common.table.LazyFacade;
 import rq.common.table.Record;
 import rq.common.table.Schema;
 import rq.common.table.MemoryTable;
 import rq.files.exceptions.DuplicateHeaderWriteException;
+import rq.files.io.TableReader;
 import rq.files.io.TableWriter;
 
 /**
@@ -94,4 +99,33 @@ class TableWriterTest {
 				rslt);
 	}
 
+	@Test
+	void testWriteLazyExpression() throws ClassNotInContextException, IOException {
+		this.writer.write(new LazyFacade(t1));
+		String rslt = this.oStream.toString();
+		assertEquals(
+					"\"A:java.lang.Integer\",\"B:java.lang.String\",\"rank\"\n"
+				+	"\"2\",\"bar\",\"0.8\"\n"
+				+	"\"1\",\"foo\",\"1.0\"\n",
+				rslt);
+	}
+	
+	@Test
+	void testWriteGzip() throws Exception {
+		Path path = Files.createTempFile("rq.test.", ".csv.gz");
+		try {
+			TableWriter.spit(t1, path);
+			byte[] bytes = Files.readAllBytes(path);
+			assertEquals((byte)0x1f, bytes[0]);
+			assertEquals((byte)0x8b, bytes[1]);
+			
+			TableReader reader = TableReader.open(new java.util.zip.GZIPInputStream(Files.newInputStream(path)));
+			assertEquals(new HashSet<Record>(t1.stream().toList()), new HashSet<Record>(reader.read().stream().toList()));
+			reader.close();
+		}
+		finally {
+			Files.deleteIfExists(path);
+		}
+	}
+
 }
@@ -4,6 +4,7 @@ import static org.junit.jupiter.api.Assertions.*;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Random;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.Iterator;
@@ -211,4 +212,83 @@ class TopKTableTest {
 		assertTrue(this.t.contains(Record.factory(localSchema, Arrays.asList(new Record.AttributeValuePair(a, 2)), 1.0d)));
 	}
 
+	
+	@Test
+	void testFindNoRankAfterEviction() throws TableRecordSchemaMismatch {
+		this.t = TopKTable.factory(schema, 3);
+		t.insert(r1);
+		t.insert(r2);
+		t.insert(r3);
+		t.insert(r4);
+		
+		assertFalse(t.containsNoRank(r1));
+		assertTrue(t.findNoRank(new Record(r4, 1.0d)).isPresent());
+		
+		t.delete(r4);
+		assertFalse(t.containsNoRank(r4));
+	}
+	
+	@Test
+	void testUpsertIfHigherRank() throws TableRecordSchemaMismatch {
+		this.t = TopKTable.factory(schema, 2);
+		assertTrue(t.upsertIfHigherRank(r2));
+		assertTrue(t.upsertIfHigherRank(r3));
+		assertFalse(t.upsertIfHigherRank(r1));
+		assertFalse(t.upsertIfHigherRank(new Record(r3, 0.25d)));
+		
+		assertTrue(t.upsertIfHigherRank(new Record(r2, 0.5d)));
+		assertEquals(2, t.size());
+		assertEquals(0.3d, t.minRank());
+		assertFalse(t.contains(r2));
+		
+		assertTrue(t.upsertIfHigherRank(r4));
+		assertEquals(2, t.size());
+		assertFalse(t.containsNoRank(r3));
+	}
+	
+	@Test
+	void testTiesKept() throws TableRecordSchemaMismatch, DuplicateAttributeNameException, TypeSchemaMismatchException, AttributeNotInSchemaException {
+		Schema localSchema = Schema.factory(a);
+		this.t = TopKTable.factory(localSchema, 3);
+		
+		for(int i = 0; i < 4; i++) {
+			this.t.insert(Record.factory(localSchema, Arrays.asList(new Record.AttributeValuePair(a, i)), i == 0 ? 0.9d : 0.5d));
+		}
+		assertEquals(4, this.t.size());
+		assertEquals(0.5d, this.t.minRank());
+		
+		this.t.insert(Record.factory(localSchema, Arrays.asList(new Record.AttributeValuePair(a, 4)), 0.8d));
+		assertEquals(5, this.t.size());
+		
+		this.t.insert(Record.factory(localSchema, Arrays.asList(new Record.AttributeValuePair(a, 5)), 0.7d));
+		assertEquals(3, this.t.size());
+		assertEquals(0.7d, this.t.minRank());
+	}
+	
+	@Test
+	void testManyUpserts() throws TableRecordSchemaMismatch, DuplicateAttributeNameException, TypeSchemaMismatchException, AttributeNotInSchemaException {
+		Schema localSchema = Schema.factory(a);
+		this.t = TopKTable.factory(localSchema, 10);
+		double[] best = new double[50];
+		
+		Random random = new Random(42);
+		for(int i = 0; i < 2000; i++) {
+			int value = random.nextInt(best.length);
+			double rank = (random.nextInt(1000) + 1) / 1000.0d;
+			best[value] = Math.max(best[value], rank);
+			this.t.upsertIfHigherRank(Record.factory(localSchema, Arrays.asList(new Record.AttributeValuePair(a, value)), rank));
+		}
+		
+		double[] sorted = Arrays.stream(best).sorted().toArray();
+		assertEquals(10, this.t.size());
+		assertEquals(sorted[sorted.length - 10], this.t.minRank());
+		for(Record r : this.t) {
+			assertEquals(best[(Integer)r.getNoThrow(a)], r.rank);
+		}
+		
+		Record top = this.t.stream().max(Record.RANK_COMPARATOR_ASC).get();
+		assertTrue(this.t.delete(top));
+		assertFalse(this.t.containsNoRank(top));
+		assertEquals(9, this.t.size());
+	}
 }